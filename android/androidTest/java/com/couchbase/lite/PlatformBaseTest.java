@@ -116,6 +116,10 @@ public abstract class PlatformBaseTest implements PlatformTest {
         executionService.postDelayedOnExecutor(delayMs, executionService.getMainExecutor(), task);
     }
 
+    // Android's per-thread allocation counters are deprecated
+    @Override
+    public long getAllocatedBytes() { return -1; }
+
     private static String getSystemProperty(String name) throws Exception {
         Class<?> systemPropertyClazz = Class.forName("android.os.SystemProperties");
         return (String) systemPropertyClazz
@@ -65,7 +65,7 @@ public final class AndroidExecutionService extends AbstractExecutionService {
     public AndroidExecutionService() {
         super((ThreadPoolExecutor) AsyncTask.THREAD_POOL_EXECUTOR);
         mainHandler = new Handler(Looper.getMainLooper());
-        mainThreadExecutor = mainHandler::post;
+        mainThreadExecutor = instrumentMainExecutor(mainHandler::post);
     }
 
     //---------------------------------------------
@@ -150,6 +150,47 @@ Java_com_couchbase_lite_internal_core_C4Document_get(JNIEnv *env, jclass ignore,
     return (jlong) doc;
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    getAll
+ * Signature: (J[Ljava/lang/String;Z[J)V
+ *
+ * Get the documents with the IDs jdocIDs.  The handle for each document goes into joutDocs[i].
+ * The handle is 0 if the document does not exist, if it could not be read or if it is deleted
+ * and jincludeDeleted is false.
+ */
+JNIEXPORT void JNICALL
+Java_com_couchbase_lite_internal_core_C4Document_getAll(JNIEnv *env, jclass ignore,
+                                              jlong jdb,
+                                              jobjectArray jdocIDs,
+                                              jboolean jincludeDeleted,
+                                              jlongArray joutDocs) {
+    jsize n = env->GetArrayLength(jdocIDs);
+    if (n <= 0)
+        return;
+
+    std::vector<jlong> outDocs(n, 0);
+    for (jsize i = 0; i < n; i++) {
+        auto jdocID = (jstring) env->GetObjectArrayElement(jdocIDs, i);
+        C4Document *doc;
+        {
+            jstringSlice docID(env, jdocID);
+            C4Error error;
+            doc = c4doc_get((C4Database *) jdb, docID, true, &error);
+        }
+        env->DeleteLocalRef(jdocID);
+
+        if (doc && !jincludeDeleted && ((doc->flags & kDocDeleted) != 0)) {
+            c4doc_release(doc);
+            doc = nullptr;
+        }
+
+        outDocs[i] = (jlong) doc;
+    }
+
+    env->SetLongArrayRegion(joutDocs, 0, n, outDocs.data());
+}
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Document
  * Method:    getBySequence
@@ -331,6 +372,28 @@ JNIEXPORT void JNICALL Java_com_couchbase_lite_internal_core_C4Document_resolveC
         throwError(env, error);
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    resolveConflict2
+ * Signature: (JLjava/lang/String;Ljava/lang/String;JI)V
+ */
+JNIEXPORT void JNICALL Java_com_couchbase_lite_internal_core_C4Document_resolveConflict2
+        (JNIEnv *env, jclass ignore, jlong jdoc,
+         jstring jWinningRevID,
+         jstring jLosingRevID,
+         jlong jMergedBody, jint jMergedFlags) {
+
+    jstringSlice winningRevID(env, jWinningRevID);
+    jstringSlice losingRevID(env, jLosingRevID);
+    C4Slice mergedBody = kC4SliceNull;
+    if (jMergedBody != 0)
+        mergedBody = *(C4Slice *) jMergedBody;
+    auto revisionFlag = (C4RevisionFlags)jMergedFlags;
+    C4Error error = {};
+    if (!c4doc_resolveConflict((C4Document *) jdoc, winningRevID, losingRevID, mergedBody, revisionFlag, &error))
+        throwError(env, error);
+}
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Document
  * Method:    setExpiration
@@ -586,6 +649,80 @@ Java_com_couchbase_lite_internal_core_C4Document_dictContainsBlobs(JNIEnv *env,
     return containsBlobs;
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_core_C4Document
+ * Method:    saveAll
+ * Signature: (JI[Ljava/lang/String;[J[J[IJ[J[I)V
+ *
+ * Create or update the first jcount documents in a batch.  For each document, if jdocs[i] is
+ * non-zero, update it; otherwise create a new document with the ID jdocIDs[i].  The new document handle (or 0) goes
+ * into joutDocs[i] and the error domain and code (or 0, 0) into joutErrors[2i] and joutErrors[2i+1].
+ * An error on one document does not prevent the others from being saved.
+ */
+JNIEXPORT void JNICALL
+Java_com_couchbase_lite_internal_core_C4Document_saveAll(JNIEnv *env, jclass ignore,
+                                                jlong jdb,
+                                                jint jcount,
+                                                jobjectArray jdocIDs,
+                                                jlongArray jdocs,
+                                                jlongArray jbodies,
+                                                jintArray jflags,
+                                                jlong jsk,
+                                                jlongArray joutDocs,
+                                                jintArray joutErrors) {
+    jsize n = jcount;
+    if (n <= 0)
+        return;
+
+    std::vector<jlong> docs(n);
+    std::vector<jlong> bodies(n);
+    std::vector<jint> flags(n);
+    env->GetLongArrayRegion(jdocs, 0, n, docs.data());
+    env->GetLongArrayRegion(jbodies, 0, n, bodies.data());
+    env->GetIntArrayRegion(jflags, 0, n, flags.data());
+
+    std::vector<jlong> outDocs(n, 0);
+    std::vector<jint> outErrors(2 * n, 0);
+    for (jsize i = 0; i < n; i++) {
+        C4Slice body = kC4SliceNull;
+        unsigned revFlags = (unsigned) flags[i];
+        if (bodies[i] != 0) {
+            body = *(C4Slice *) bodies[i];
+
+            FLDoc fdoc = FLDoc_FromResultData(
+                    *(FLSliceResult *) bodies[i],
+                    kFLTrusted,
+                    (FLSharedKeys) jsk,
+                    kFLSliceNull);
+            if (c4doc_dictContainsBlobs((FLDict) FLDoc_GetRoot(fdoc)))
+                revFlags |= kRevHasAttachments;
+            FLDoc_Release(fdoc);
+        }
+
+        C4Error error = {};
+        C4Document *doc;
+        if (docs[i] != 0) {
+            doc = c4doc_update((C4Document *) docs[i], body, revFlags, &error);
+        } else {
+            auto jdocID = (jstring) env->GetObjectArrayElement(jdocIDs, i);
+            {
+                jstringSlice docID(env, jdocID);
+                doc = c4doc_create((C4Database *) jdb, docID, body, revFlags, &error);
+            }
+            env->DeleteLocalRef(jdocID);
+        }
+
+        outDocs[i] = (jlong) doc;
+        if (!doc) {
+            outErrors[2 * i] = error.domain;
+            outErrors[2 * i + 1] = error.code;
+        }
+    }
+
+    env->SetLongArrayRegion(joutDocs, 0, n, outDocs.data());
+    env->SetIntArrayRegion(joutErrors, 0, 2 * n, outErrors.data());
+}
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4Document
  * Method:    bodyAsJSON
@@ -15,6 +15,7 @@
 // See the License for the specific language governing permissions and
 // limitations under the License.
 //
+#include <vector>
 #include <c4.h>
 #include <c4Base.h>
 #include "com_couchbase_lite_internal_core_C4QueryEnumerator.h"
@@ -49,6 +50,61 @@ Java_com_couchbase_lite_internal_core_C4QueryEnumerator_next(JNIEnv *env, jclass
     return result;
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_core_C4QueryEnumerator
+ * Method:    nextBatch
+ * Signature: (J[J[J[I)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_couchbase_lite_internal_core_C4QueryEnumerator_nextBatch(JNIEnv *env, jclass ignore, jlong handle,
+                                                         jlongArray jcolumns, jlongArray jmissingColumns,
+                                                         jintArray jerror) {
+    auto e = (C4QueryEnumerator *) handle;
+    if (e == nullptr)
+        return 0;
+
+    const jsize maxRows = env->GetArrayLength(jmissingColumns);
+    if (maxRows <= 0)
+        return 0;
+    const jsize nColumns = env->GetArrayLength(jcolumns) / maxRows;
+
+    std::vector<jlong> columns((size_t) maxRows * nColumns, 0);
+    std::vector<jlong> missingColumns((size_t) maxRows, 0);
+
+    jsize nRows = 0;
+    C4Error error = {};
+    while (nRows < maxRows) {
+        if (!c4queryenum_next(e, &error)) {
+            if (error.code == 0)
+                break;
+
+            // Nothing read: throw the error now
+            if (nRows == 0) {
+                throwError(env, error);
+                return 0;
+            }
+
+            // Otherwise, deliver the rows read so far and pass the error back, to be thrown by the next call
+            jint err[3] = {(jint) error.domain, (jint) error.code, (jint) error.internal_info};
+            env->SetIntArrayRegion(jerror, 0, 3, err);
+            break;
+        }
+
+        jlong *row = &columns[(size_t) nRows * nColumns];
+        for (jsize i = 0; i < nColumns; i++)
+            row[i] = (jlong) FLArrayIterator_GetValueAt(&e->columns, (uint32_t) i);
+        missingColumns[nRows] = (jlong) e->missingColumns;
+        nRows++;
+    }
+
+    if (nRows > 0) {
+        env->SetLongArrayRegion(jcolumns, 0, nRows * nColumns, columns.data());
+        env->SetLongArrayRegion(jmissingColumns, 0, nRows, missingColumns.data());
+    }
+
+    return (jint) nRows;
+}
+
 /*
  * Class:     com_couchbase_lite_internal_core_C4QueryEnumerator
  * Method:    getRowCount
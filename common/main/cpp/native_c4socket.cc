@@ -289,13 +289,15 @@ const C4SocketFactory socket_factory() {
 /*
  * Class:     com_couchbase_lite_internal_core_C4Socket
  * Method:    gotHTTPResponse
- * Signature: (JI[B)V
+ * Signature: (JIJ)V
  */
 JNIEXPORT void JNICALL
 Java_com_couchbase_lite_internal_core_C4Socket_gotHTTPResponse(JNIEnv *env, jclass ignore, jlong socket,
                                                      jint httpStatus,
-                                                     jbyteArray jresponseHeadersFleece) {
-    jbyteArraySlice responseHeadersFleece(env, jresponseHeadersFleece, false);
+                                                     jlong jresponseHeadersFleece) {
+    C4Slice responseHeadersFleece = kC4SliceNull;
+    if (jresponseHeadersFleece != 0)
+        responseHeadersFleece = *(C4Slice *) jresponseHeadersFleece;
     c4socket_gotHTTPResponse((C4Socket *) socket, httpStatus, responseHeadersFleece);
 }
 /*
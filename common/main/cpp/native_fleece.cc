@@ -23,11 +23,210 @@
 #include "com_couchbase_lite_internal_fleece_FLDictIterator.h"
 #include "com_couchbase_lite_internal_fleece_FLValue.h"
 #include "com_couchbase_lite_internal_fleece_FLEncoder.h"
+#include "com_couchbase_lite_internal_fleece_FLSharedKeys.h"
 #include "com_couchbase_lite_internal_fleece_FLSliceResult.h"
+#include "com_couchbase_lite_internal_fleece_FleeceBuffer.h"
 
 using namespace litecore;
 using namespace litecore::jni;
 
+// ----------------------------------------------------------------------------
+// Java classes used to decode Fleece values to Java objects
+// ----------------------------------------------------------------------------
+
+static jclass cls_ArrayList;           // global reference
+static jmethodID m_ArrayList_init;     // constructor
+static jmethodID m_ArrayList_add;      // add
+
+static jclass cls_HashMap;             // global reference
+static jmethodID m_HashMap_init;       // constructor
+static jmethodID m_HashMap_put;        // put
+
+static jclass cls_Boolean;             // global reference
+static jmethodID m_Boolean_valueOf;    // valueOf
+
+static jclass cls_Long;                // global reference
+static jmethodID m_Long_valueOf;       // valueOf
+
+static jclass cls_Float;               // global reference
+static jmethodID m_Float_valueOf;      // valueOf
+
+static jclass cls_Double;              // global reference
+static jmethodID m_Double_valueOf;     // valueOf
+
+static jclass getGlobalClass(JNIEnv *env, const char *name) {
+    jclass localClass = env->FindClass(name);
+    if (!localClass)
+        return nullptr;
+    auto globalClass = reinterpret_cast<jclass>(env->NewGlobalRef(localClass));
+    env->DeleteLocalRef(localClass);
+    return globalClass;
+}
+
+bool litecore::jni::initFleece(JNIEnv *env) {
+    cls_ArrayList = getGlobalClass(env, "java/util/ArrayList");
+    if (!cls_ArrayList)
+        return false;
+    m_ArrayList_init = env->GetMethodID(cls_ArrayList, "<init>", "(I)V");
+    m_ArrayList_add = env->GetMethodID(cls_ArrayList, "add", "(Ljava/lang/Object;)Z");
+    if (!m_ArrayList_init || !m_ArrayList_add)
+        return false;
+
+    cls_HashMap = getGlobalClass(env, "java/util/HashMap");
+    if (!cls_HashMap)
+        return false;
+    m_HashMap_init = env->GetMethodID(cls_HashMap, "<init>", "(I)V");
+    m_HashMap_put = env->GetMethodID(
+            cls_HashMap,
+            "put",
+            "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+    if (!m_HashMap_init || !m_HashMap_put)
+        return false;
+
+    cls_Boolean = getGlobalClass(env, "java/lang/Boolean");
+    if (!cls_Boolean)
+        return false;
+    m_Boolean_valueOf = env->GetStaticMethodID(cls_Boolean, "valueOf", "(Z)Ljava/lang/Boolean;");
+    if (!m_Boolean_valueOf)
+        return false;
+
+    cls_Long = getGlobalClass(env, "java/lang/Long");
+    if (!cls_Long)
+        return false;
+    m_Long_valueOf = env->GetStaticMethodID(cls_Long, "valueOf", "(J)Ljava/lang/Long;");
+    if (!m_Long_valueOf)
+        return false;
+
+    cls_Float = getGlobalClass(env, "java/lang/Float");
+    if (!cls_Float)
+        return false;
+    m_Float_valueOf = env->GetStaticMethodID(cls_Float, "valueOf", "(F)Ljava/lang/Float;");
+    if (!m_Float_valueOf)
+        return false;
+
+    cls_Double = getGlobalClass(env, "java/lang/Double");
+    if (!cls_Double)
+        return false;
+    m_Double_valueOf = env->GetStaticMethodID(cls_Double, "valueOf", "(D)Ljava/lang/Double;");
+    if (!m_Double_valueOf)
+        return false;
+
+    return true;
+}
+
+static jobject toJavaObject(JNIEnv *env, FLValue value);
+
+// Java's HashMap resizes when it is 3/4 full
+static jint hashMapCapacity(uint32_t count) {
+    return (jint) ((count / 3) * 4 + 4);
+}
+
+static jobject toJavaList(JNIEnv *env, FLArray array) {
+    // a list, and an element, at each level of nesting
+    if (env->EnsureLocalCapacity(2) != JNI_OK)
+        return nullptr;
+
+    jobject list = env->NewObject(cls_ArrayList, m_ArrayList_init, (jint) FLArray_Count(array));
+    if (!list)
+        return nullptr;
+
+    FLArrayIterator itr;
+    FLArrayIterator_Begin(array, &itr);
+    FLValue item;
+    while ((item = FLArrayIterator_GetValue(&itr)) != nullptr) {
+        jobject obj = toJavaObject(env, item);
+        if (env->ExceptionCheck()) {
+            env->DeleteLocalRef(list);
+            return nullptr;
+        }
+
+        env->CallBooleanMethod(list, m_ArrayList_add, obj);
+        if (obj)
+            env->DeleteLocalRef(obj);
+
+        if (!FLArrayIterator_Next(&itr))
+            break;
+    }
+
+    return list;
+}
+
+static jobject toJavaMap(JNIEnv *env, FLDict dict) {
+    // a map, a key and a value at each level of nesting
+    if (env->EnsureLocalCapacity(3) != JNI_OK)
+        return nullptr;
+
+    jobject map = env->NewObject(cls_HashMap, m_HashMap_init, hashMapCapacity(FLDict_Count(dict)));
+    if (!map)
+        return nullptr;
+
+    FLDictIterator itr;
+    FLDictIterator_Begin(dict, &itr);
+    FLString key;
+    while ((key = FLDictIterator_GetKeyString(&itr)).buf != nullptr) {
+        jstring jkey = toJString(env, key);
+        jobject obj = (jkey == nullptr) ? nullptr : toJavaObject(env, FLDictIterator_GetValue(&itr));
+        if ((jkey == nullptr) || env->ExceptionCheck()) {
+            if (jkey)
+                env->DeleteLocalRef(jkey);
+            env->DeleteLocalRef(map);
+            FLDictIterator_End(&itr);
+            return nullptr;
+        }
+
+        jobject prev = env->CallObjectMethod(map, m_HashMap_put, jkey, obj);
+        if (prev)
+            env->DeleteLocalRef(prev);
+        if (obj)
+            env->DeleteLocalRef(obj);
+        env->DeleteLocalRef(jkey);
+
+        if (!FLDictIterator_Next(&itr))
+            break;
+    }
+    FLDictIterator_End(&itr);
+
+    return map;
+}
+
+// Decode a Fleece value to the Java object that FLValue.asObject would produce.
+static jobject toJavaObject(JNIEnv *env, FLValue value) {
+    switch (FLValue_GetType(value)) {
+        case kFLBoolean:
+            return env->CallStaticObjectMethod(
+                    cls_Boolean,
+                    m_Boolean_valueOf,
+                    (jboolean) FLValue_AsBool(value));
+        case kFLNumber:
+            if (FLValue_IsInteger(value)) {
+                jlong n = (FLValue_IsUnsigned(value))
+                          ? (jlong) FLValue_AsUnsigned(value)
+                          : (jlong) FLValue_AsInt(value);
+                return env->CallStaticObjectMethod(cls_Long, m_Long_valueOf, n);
+            }
+            if (FLValue_IsDouble(value)) {
+                return env->CallStaticObjectMethod(
+                        cls_Double,
+                        m_Double_valueOf,
+                        (jdouble) FLValue_AsDouble(value));
+            }
+            return env->CallStaticObjectMethod(
+                    cls_Float,
+                    m_Float_valueOf,
+                    (jfloat) FLValue_AsFloat(value));
+        case kFLString:
+            return toJString(env, FLValue_AsString(value));
+        case kFLData:
+            return toJByteArray(env, FLValue_AsData(value));
+        case kFLArray:
+            return toJavaList(env, FLValue_AsArray(value));
+        case kFLDict:
+            return toJavaMap(env, FLValue_AsDict(value));
+        default:
+            return nullptr;
+    }
+}
+
 // ----------------------------------------------------------------------------
 // FLArray
 // ----------------------------------------------------------------------------
@@ -384,6 +583,16 @@ Java_com_couchbase_lite_internal_fleece_FLValue_isUnsigned(JNIEnv *env, jclass i
     return (jboolean) FLValue_IsUnsigned((FLValue) jvalue);
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLValue
+ * Method:    asJavaObject
+ * Signature: (J)Ljava/lang/Object;
+ */
+JNIEXPORT jobject JNICALL
+Java_com_couchbase_lite_internal_fleece_FLValue_asJavaObject(JNIEnv *env, jclass ignore, jlong jvalue) {
+    return toJavaObject(env, (FLValue) jvalue);
+}
+
 /*
  * Class:     com_couchbase_lite_internal_fleece_FLValue
  * Method:    JSON5ToJSON
@@ -493,6 +702,20 @@ Java_com_couchbase_lite_internal_fleece_FLSliceResult_getBuf(JNIEnv *env, jclass
     return toJByteArray(env, s);
 }
 
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLSliceResult
+ * Method:    getContent
+ * Signature: (J)Ljava/nio/ByteBuffer;
+ */
+JNIEXPORT jobject JNICALL
+Java_com_couchbase_lite_internal_fleece_FLSliceResult_getContent(JNIEnv *env, jclass ignore, jlong jslice) {
+    // A direct buffer cannot have a null address: use a dummy one for an empty slice.
+    static char empty;
+    auto *res = (FLSliceResult *) jslice;
+    void *buf = (res->buf == nullptr) ? &empty : (void *) res->buf;
+    return env->NewDirectByteBuffer(buf, (jlong) res->size);
+}
+
 /*
  * Class:     com_couchbase_lite_internal_fleece_FLSliceResult
  * Method:    getSize
@@ -503,3 +726,85 @@ Java_com_couchbase_lite_internal_fleece_FLSliceResult_getSize(JNIEnv *env, jclas
     return (jlong) ((FLSliceResult *) jslice)->size;
 }
 
+// ----------------------------------------------------------------------------
+// FLSharedKeys
+// ----------------------------------------------------------------------------
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLSharedKeys
+ * Method:    decode
+ * Signature: (JI)Ljava/lang/String;
+ */
+JNIEXPORT jstring JNICALL
+Java_com_couchbase_lite_internal_fleece_FLSharedKeys_decode(JNIEnv *env, jclass ignore, jlong jsk, jint jkey) {
+    FLString key = FLSharedKeys_Decode((FLSharedKeys) jsk, (int) jkey);
+    return (!key.buf) ? nullptr : toJString(env, key);
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FLSharedKeys
+ * Method:    encode
+ * Signature: (JLjava/lang/String;)I
+ */
+JNIEXPORT jint JNICALL
+Java_com_couchbase_lite_internal_fleece_FLSharedKeys_encode(JNIEnv *env, jclass ignore, jlong jsk, jstring jstr) {
+    jstringSlice str(env, jstr);
+    return (jint) FLSharedKeys_Encode((FLSharedKeys) jsk, str, true);
+}
+
+// ----------------------------------------------------------------------------
+// FleeceBuffer
+// ----------------------------------------------------------------------------
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FleeceBuffer
+ * Method:    getDocData
+ * Signature: (J[J)Ljava/nio/ByteBuffer;
+ *
+ * The returned buffer maps the doc's memory: it is valid only as long as the doc.
+ */
+JNIEXPORT jobject JNICALL
+Java_com_couchbase_lite_internal_fleece_FleeceBuffer_getDocData(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jvalue,
+        jlongArray jinfo) {
+    FLDoc doc = FLValue_FindDoc((FLValue) jvalue);
+    if (!doc)
+        return nullptr;
+
+    FLSlice data = FLDoc_GetData(doc);
+    FLSharedKeys sk = FLDoc_GetSharedKeys(doc);
+    FLDoc_Release(doc);
+
+    if (!data.buf)
+        return nullptr;
+
+    jlong info[2] = {(jlong) data.buf, (jlong) sk};
+    env->SetLongArrayRegion(jinfo, 0, 2, info);
+
+    return env->NewDirectByteBuffer((void *) data.buf, (jlong) data.size);
+}
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FleeceBuffer
+ * Method:    getSliceData
+ * Signature: (J[J)Ljava/nio/ByteBuffer;
+ *
+ * The returned buffer maps the slice's memory: it is valid only as long as the slice.
+ */
+JNIEXPORT jobject JNICALL
+Java_com_couchbase_lite_internal_fleece_FleeceBuffer_getSliceData(
+        JNIEnv *env,
+        jclass ignore,
+        jlong jslice,
+        jlongArray jinfo) {
+    auto *slice = (FLSliceResult *) jslice;
+    if (!slice->buf)
+        return nullptr;
+
+    jlong info[1] = {(jlong) slice->buf};
+    env->SetLongArrayRegion(jinfo, 0, 1, info);
+
+    return env->NewDirectByteBuffer((void *) slice->buf, (jlong) slice->size);
+}
@@ -17,6 +17,7 @@
 //
 #include "native_glue.hh"
 #include "com_couchbase_lite_internal_fleece_FLEncoder.h"
+#include "com_couchbase_lite_internal_fleece_FleeceWriter.h"
 
 using namespace litecore;
 using namespace litecore::jni;
@@ -232,3 +233,31 @@ JNIEXPORT void JNICALL
 Java_com_couchbase_lite_internal_fleece_FLEncoder_reset(JNIEnv *env, jclass ignore, jlong jenc) {
     FLEncoder_Reset((FLEncoder) jenc);
 }
+
+// ----------------------------------------------------------------------------
+// FleeceWriter
+// ----------------------------------------------------------------------------
+
+/*
+ * Class:     com_couchbase_lite_internal_fleece_FleeceWriter
+ * Method:    toSliceResult
+ * Signature: (Ljava/nio/ByteBuffer;I)J
+ */
+JNIEXPORT jlong JNICALL
+Java_com_couchbase_lite_internal_fleece_FleeceWriter_toSliceResult(
+        JNIEnv *env,
+        jclass ignore,
+        jobject jbuf,
+        jint jsize) {
+    auto buf = env->GetDirectBufferAddress(jbuf);
+    if (!buf) {
+        throwError(env, {FleeceDomain, kFLMemoryError});
+        return 0;
+    }
+
+    FLSliceResult res = FLSlice_Copy({buf, (size_t) jsize});
+    auto *sliceResult = (C4SliceResult *) ::malloc(sizeof(C4SliceResult));
+    sliceResult->buf = res.buf;
+    sliceResult->size = res.size;
+    return (jlong) sliceResult;
+}
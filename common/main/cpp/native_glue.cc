@@ -118,6 +118,7 @@ JNI_OnLoad(JavaVM *jvm, void *reserved) {
         #ifdef COUCHBASE_ENTERPRISE
         && initC4Listener(env)
         #endif
+        && initFleece(env)
         && initC4Observer(env)
         && initC4Replicator(env)
         && initC4Socket(env)) {
@@ -39,6 +39,8 @@ namespace litecore {
 
         void deleteGlobalRef(jobject gRef);
 
+        bool initFleece(JNIEnv *);       // Implemented in native_fleece.cc
+
         bool initC4Observer(JNIEnv *);   // Implemented in native_c4observer.cc
         bool initC4Replicator(JNIEnv *); // Implemented in native_c4replicator.cc
         bool initC4Socket(JNIEnv *);     // Implemented in native_c4socket.cc
@@ -34,6 +34,7 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.json.JSONException;
@@ -57,7 +58,9 @@ import com.couchbase.lite.internal.core.C4Replicator;
 import com.couchbase.lite.internal.core.C4ReplicatorListener;
 import com.couchbase.lite.internal.core.SharedKeys;
 import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLSharedKeys;
 import com.couchbase.lite.internal.fleece.FLSliceResult;
+import com.couchbase.lite.internal.fleece.FleeceWriter;
 import com.couchbase.lite.internal.support.Log;
 import com.couchbase.lite.internal.utils.ClassUtils;
 import com.couchbase.lite.internal.utils.FileUtils;
@@ -106,6 +109,12 @@ abstract class AbstractDatabase {
     // A random but absurdly large number.
     private static final int MAX_CONFLICT_RESOLUTION_RETRIES = 13;
 
+    // The largest number of writes committed in a single group
+    private static final int MAX_GROUP_COMMIT_SIZE = 256;
+
+    // The largest number of documents passed to LiteCore in a single bulk write call
+    private static final int BULK_WRITE_CHUNK_SIZE = 128;
+
     // How long to wait after a database opens before expiring docs
     private static final long INITIAL_PURGE_DELAY_MS = 3;
     private static final long STANDARD_PURGE_INTERVAL_MS = 1000;
@@ -265,6 +274,8 @@ abstract class AbstractDatabase {
 
     private final String path;
 
+    // This database's share of the execution service: postExecutor and queryExecutor run in it.
+    private final ExecutionService.ExecutionLane executionLane;
     // Executor for purge and posting Database/Document changes.
     private final ExecutionService.CloseableExecutor postExecutor;
     // Executor for LiveQuery.
@@ -272,6 +283,20 @@ abstract class AbstractDatabase {
 
     private final SharedKeys sharedKeys;
 
+    // Reused to encode every document saved by this database: created on first use
+    @GuardedBy("dbLock")
+    @Nullable
+    private FleeceWriter fleeceWriter;
+
+    // Non-null iff group commit is enabled
+    @Nullable
+    private final GroupCommitter groupCommitter;
+
+    // Compiled queries, shared by all of the Query objects that have the same JSON
+    @GuardedBy("dbLock")
+    @NonNull
+    private final QueryCache queryCache;
+
     private final DocumentExpirationStrategy purgeStrategy;
 
     @GuardedBy("activeProcesses")
@@ -291,6 +316,9 @@ abstract class AbstractDatabase {
 
     private volatile CountDownLatch closeLatch;
 
+    // Coalesces database observer callbacks: true if a call to postDatabaseChanged is scheduled
+    private final AtomicBoolean dbChangesScheduled = new AtomicBoolean();
+
     //---------------------------------------------
     // Constructors
     //---------------------------------------------
@@ -316,8 +344,10 @@ abstract class AbstractDatabase {
         // Copy configuration
         this.config = config.readOnlyCopy();
 
-        this.postExecutor = CouchbaseLiteInternal.getExecutionService().getSerialExecutor();
-        this.queryExecutor = CouchbaseLiteInternal.getExecutionService().getSerialExecutor();
+        this.executionLane = CouchbaseLiteInternal.getExecutionService()
+            .createLane("db " + name, this.config.getExecutionWeight(), this.config.getMaxConcurrency());
+        this.postExecutor = executionLane.getSerialExecutor();
+        this.queryExecutor = executionLane.getSerialExecutor();
 
         this.activeProcesses = new HashSet<>();
         this.docChangeNotifiers = new HashMap<>();
@@ -334,6 +364,12 @@ abstract class AbstractDatabase {
         // Initialize a shared keys:
         this.sharedKeys = new SharedKeys(c4Database);
 
+        this.groupCommitter = (!this.config.isGroupCommit())
+            ? null
+            : new GroupCommitter(this::commitGroup, this.config.getGroupCommitWindowMs(), MAX_GROUP_COMMIT_SIZE);
+
+        this.queryCache = new QueryCache(this.config.getQueryCacheSize());
+
         this.purgeStrategy = new DocumentExpirationStrategy(this, STANDARD_PURGE_INTERVAL_MS, postExecutor);
         this.purgeStrategy.schedulePurge(INITIAL_PURGE_DELAY_MS);
 
@@ -357,6 +393,7 @@ abstract class AbstractDatabase {
 
         this.config = new DatabaseConfiguration();
 
+        this.executionLane = null;
         this.postExecutor = null;
         this.queryExecutor = null;
 
@@ -365,6 +402,10 @@ abstract class AbstractDatabase {
 
         this.sharedKeys = null;
 
+        this.groupCommitter = null;
+
+        this.queryCache = new QueryCache(this.config.getQueryCacheSize());
+
         this.purgeStrategy = null;
     }
 
@@ -427,6 +468,33 @@ abstract class AbstractDatabase {
         }
     }
 
+    /**
+     * Gets the existing Document objects with the given IDs.  This is much faster than
+     * calling getDocument for each ID: the documents are read with a single call to LiteCore.
+     * The returned list has one entry for each ID, in the order of the collection:
+     * if the document with the ID doesn't exist in the database, its entry is null.
+     *
+     * @param ids the document IDs
+     * @return the Document objects
+     */
+    @NonNull
+    public List<Document> getDocuments(@NonNull Collection<String> ids) {
+        Preconditions.assertNotNull(ids, "ids");
+        final String[] docIDs = ids.toArray(new String[0]);
+        for (String id: docIDs) { Preconditions.assertNotNull(id, "id"); }
+
+        final List<Document> docs = new ArrayList<>(docIDs.length);
+        synchronized (dbLock) {
+            mustBeOpen();
+            final C4Document[] c4Docs = C4Document.getAll(getC4DatabaseLocked(), docIDs, false);
+            for (int i = 0; i < docIDs.length; i++) {
+                final C4Document c4Doc = c4Docs[i];
+                docs.add((c4Doc == null) ? null : new Document((Database) this, docIDs[i], c4Doc, false));
+            }
+        }
+        return docs;
+    }
+
     /**
      * Saves a document to the database. When write operations are executed
      * concurrently, the last writer will overwrite all other written values.
@@ -516,6 +584,52 @@ abstract class AbstractDatabase {
 
     // Batch operations:
 
+    /**
+     * Saves a collection of documents to the database, in a single transaction.
+     * The write of each document has its own outcome: a conflict or an error writing one
+     * document does not prevent the others from being saved.  When used with LAST_WRITE_WINS
+     * concurrency control, the last write operation will win if there is a conflict.
+     * When used with FAIL_ON_CONFLICT concurrency control, the outcome of a conflicting
+     * write is CONFLICTED.
+     *
+     * @param documents          The documents.
+     * @param concurrencyControl The concurrency control.
+     * @return the outcome of the write of each document, in the order of the collection
+     * @throws CouchbaseLiteException if the transaction fails
+     */
+    @NonNull
+    public BulkWriteResult saveAll(
+        @NonNull Collection<? extends MutableDocument> documents,
+        @NonNull ConcurrencyControl concurrencyControl)
+        throws CouchbaseLiteException {
+        Preconditions.assertNotNull(documents, "documents");
+        Preconditions.assertNotNull(concurrencyControl, "concurrencyControl");
+        return writeAll(new ArrayList<Document>(documents), false, concurrencyControl);
+    }
+
+    /**
+     * Deletes a collection of documents from the database, in a single transaction.
+     * The delete of each document has its own outcome: a conflict or an error deleting one
+     * document does not prevent the others from being deleted.  When used with LAST_WRITE_WINS
+     * concurrency control, the last write operation will win if there is a conflict.
+     * When used with FAIL_ON_CONFLICT concurrency control, the outcome of a conflicting
+     * delete is CONFLICTED.
+     *
+     * @param documents          The documents.
+     * @param concurrencyControl The concurrency control.
+     * @return the outcome of the delete of each document, in the order of the collection
+     * @throws CouchbaseLiteException if the transaction fails
+     */
+    @NonNull
+    public BulkWriteResult deleteAll(
+        @NonNull Collection<? extends Document> documents,
+        @NonNull ConcurrencyControl concurrencyControl)
+        throws CouchbaseLiteException {
+        Preconditions.assertNotNull(documents, "documents");
+        Preconditions.assertNotNull(concurrencyControl, "concurrencyControl");
+        return writeAll(new ArrayList<Document>(documents), true, concurrencyControl);
+    }
+
     /**
      * Purges the given document from the database. This is more drastic than delete(Document),
      * it removes all traces of the document. The purge will NOT be replicated to other databases.
@@ -635,7 +749,10 @@ abstract class AbstractDatabase {
                     throw new CouchbaseLiteException("In-batch task failed", e);
                 }
                 finally {
-                    db.endTransaction(commit);
+                    try { db.endTransaction(commit); }
+                    finally {
+                        if (!commit) { invalidateSharedKeys(); }
+                    }
                 }
             }
             catch (LiteCoreException e) {
@@ -789,8 +906,10 @@ abstract class AbstractDatabase {
 
         synchronized (dbLock) {
             final C4Database c4Db = getC4DatabaseLocked();
+            // Compiled queries do not see the new index
+            queryCache.invalidate();
             try {
-                final String json = JsonUtils.toJson(index.items()).toString();
+                final String json = JsonUtils.toJsonString(index.items());
                 c4Db.createIndex(
                     name,
                     json,
@@ -810,11 +929,24 @@ abstract class AbstractDatabase {
 
     public void deleteIndex(@NonNull String name) throws CouchbaseLiteException {
         synchronized (dbLock) {
-            try { getC4DatabaseLocked().deleteIndex(name); }
+            final C4Database c4Db = getC4DatabaseLocked();
+            // Compiled queries may use the deleted index
+            queryCache.invalidate();
+            try { c4Db.deleteIndex(name); }
             catch (LiteCoreException e) { throw CBLStatus.convertException(e); }
         }
     }
 
+    /**
+     * Get metrics for this database's cache of compiled queries.
+     *
+     * @return the query cache metrics.
+     */
+    @NonNull
+    public QueryCacheMetrics getQueryCacheMetrics() {
+        synchronized (dbLock) { return queryCache.getMetrics(); }
+    }
+
     public boolean performMaintenance(MaintenanceType type) throws CouchbaseLiteException {
         synchronized (dbLock) {
             try { return getC4DatabaseLocked().performMaintenance(type); }
@@ -857,7 +989,7 @@ abstract class AbstractDatabase {
 
             // This stuff might just speed things up a little
             shutdownActiveProcesses(activeProcesses);
-            shutdownExecutors(postExecutor, queryExecutor, 0);
+            shutdownExecutors(executionLane, postExecutor, queryExecutor, 0);
         }
         finally {
             super.finalize();
@@ -872,6 +1004,10 @@ abstract class AbstractDatabase {
     @NonNull
     Object getLock() { return dbLock; }
 
+    // Null only for a database that was never opened
+    @Nullable
+    FLSharedKeys getFLSharedKeys() { return (sharedKeys == null) ? null : sharedKeys.getFLSharedKeys(); }
+
     boolean equalsWithPath(Database other) {
         if (other == null) { return false; }
 
@@ -891,6 +1027,22 @@ abstract class AbstractDatabase {
     // Instead of clone()
     Database copy() throws CouchbaseLiteException { return new Database(this.name, this.config); }
 
+    /**
+     * Gets the content of an existing document, as an object. If the document with the given ID doesn't
+     * exist in the database, the value returned will be null.
+     *
+     * @param id    the document ID
+     * @param codec the codec that creates the object from the document's properties
+     * @param <T>   the type of the object
+     * @return the object
+     */
+    @Nullable
+    <T> T getDocument(@NonNull String id, @NonNull DocumentCodec<T> codec) {
+        Preconditions.assertNotNull(codec, "codec");
+        final Document doc = getDocument(id);
+        return (doc == null) ? null : doc.toObject(codec);
+    }
+
     //////// DATABASES:
 
     // WARNING: this is the state at the time of the call!
@@ -952,10 +1104,19 @@ abstract class AbstractDatabase {
         unregisterProcess(query);
     }
 
-    C4Query createQuery(@NonNull String json) throws LiteCoreException {
-        synchronized (dbLock) { return getC4DatabaseLocked().createQuery(json); }
+    // The query belongs to the cache: it must be used only while holding the db lock, and never freed.
+    @NonNull
+    C4Query getPreparedQuery(@NonNull String json) throws LiteCoreException {
+        synchronized (dbLock) {
+            final C4Database c4Db = getC4DatabaseLocked();
+            return queryCache.get(json, c4Db::createQuery);
+        }
     }
 
+    @VisibleForTesting
+    @NonNull
+    QueryCache getQueryCache() { return queryCache; }
+
     C4Document getC4Document(@NonNull String id) throws LiteCoreException {
         synchronized (dbLock) { return getC4DatabaseLocked().get(id); }
     }
@@ -964,6 +1125,15 @@ abstract class AbstractDatabase {
         synchronized (dbLock) { return getC4DatabaseLocked().getSharedFleeceEncoder(); }
     }
 
+    // The writer may add shared keys: use it only in a transaction.
+    @NonNull
+    FleeceWriter getSharedFleeceWriter() {
+        synchronized (dbLock) {
+            if (fleeceWriter == null) { fleeceWriter = new FleeceWriter(getFLSharedKeys()); }
+            return fleeceWriter;
+        }
+    }
+
     long getNextDocumentExpiration() {
         synchronized (dbLock) { return getC4DatabaseLocked().nextDocExpiration(); }
     }
@@ -1177,6 +1347,15 @@ abstract class AbstractDatabase {
     private void endTransaction(boolean commit) throws CouchbaseLiteException {
         try { getC4DatabaseLocked().endTransaction(commit); }
         catch (LiteCoreException e) { throw CBLStatus.convertException(e); }
+        finally {
+            if (!commit) { invalidateSharedKeys(); }
+        }
+    }
+
+    // An abort discards any shared keys added in the transaction
+    @GuardedBy("dbLock")
+    private void invalidateSharedKeys() {
+        if (sharedKeys != null) { sharedKeys.getFLSharedKeys().invalidate(); }
     }
 
     private C4Database openC4Db() throws CouchbaseLiteException {
@@ -1268,11 +1447,27 @@ abstract class AbstractDatabase {
     private void registerC4DbObserver() {
         if (!isOpen()) { return; }
         c4DbObserver = c4Database.createDatabaseObserver(
-            (observer, context) -> scheduleOnPostNotificationExecutor(this::postDatabaseChanged, 0),
+            (observer, context) -> scheduleDbChangeNotification(postExecutor),
             this);
     }
 
+    // Called from the database observer callback, on a LiteCore thread.
+    // A single call to postDatabaseChanged drains all pending changes:
+    // there is no point in scheduling another, if one is already scheduled.
+    @VisibleForTesting
+    void scheduleDbChangeNotification(@NonNull Executor executor) {
+        if (!dbChangesScheduled.compareAndSet(false, true)) { return; }
+
+        try { executor.execute(this::postDatabaseChanged); }
+        catch (RuntimeException e) {
+            // If the flag stayed set, no change would ever be posted again.
+            dbChangesScheduled.set(false);
+            Log.w(DOMAIN, "Failed scheduling database change notification", e);
+        }
+    }
+
     private void postDatabaseChanged() {
+        dbChangesScheduled.set(false);
         synchronized (dbLock) {
             if (!isOpen() || (c4DbObserver == null)) { return; }
 
@@ -1440,13 +1635,10 @@ abstract class AbstractDatabase {
                 }
             }
 
-            // Merged body:
-            final byte[] mergedBodyBytes = (mergedBody == null) ? null : mergedBody.getBuf();
-
             // Ask LiteCore to do the resolution:
             final C4Document rawDoc = Preconditions.assertNotNull(localDoc.getC4doc(), "raw doc is null");
             // The remote branch has to win so that the doc revision history matches the server's.
-            rawDoc.resolveConflict(remoteDoc.getRevisionID(), localDoc.getRevisionID(), mergedBodyBytes, mergedFlags);
+            rawDoc.resolveConflict(remoteDoc.getRevisionID(), localDoc.getRevisionID(), mergedBody, mergedFlags);
             rawDoc.save(0);
 
             Log.v(DOMAIN, "Conflict resolved as doc '%s' rev %s", rawDoc.getDocID(), rawDoc.getRevID());
@@ -1519,36 +1711,194 @@ abstract class AbstractDatabase {
                 CBLError.Code.NOT_FOUND);
         }
 
+        // A thread that holds the lock (e.g., in a batch) must not wait for another thread to commit.
+        if ((groupCommitter != null) && (!Thread.holdsLock(dbLock))) {
+            groupCommitter.write(new GroupCommitter.PendingWrite(document, baseDoc, deleting, concurrencyControl));
+            return;
+        }
+
         synchronized (dbLock) {
-            prepareDocument(document);
+            boolean commit = false;
+            beginTransaction();
+            try { commit = saveLocked(document, baseDoc, deleting, concurrencyControl); }
+            finally { endTransaction(commit); }
+        }
+    }
 
+    // Save a group of documents in a single transaction.
+    // Failures of individual saves do not prevent the others from being committed:
+    // rolling back would leave the documents that were saved claiming revisions that do not exist.
+    private void commitGroup(@NonNull List<GroupCommitter.PendingWrite> writes) throws CouchbaseLiteException {
+        synchronized (dbLock) {
             boolean commit = false;
             beginTransaction();
             try {
+                for (GroupCommitter.PendingWrite write: writes) {
+                    try { saveLocked(write.document, write.baseDoc, write.deleting, write.concurrencyControl); }
+                    catch (CouchbaseLiteException | RuntimeException e) { write.fail(e); }
+                }
+                commit = true;
+            }
+            finally {
+                endTransaction(commit);
+            }
+        }
+    }
+
+    // Write a list of documents in a single transaction.
+    // Documents are passed to LiteCore in chunks, to limit the number of trips across JNI.
+    private BulkWriteResult writeAll(
+        @NonNull List<Document> documents,
+        boolean deleting,
+        @NonNull ConcurrencyControl concurrencyControl)
+        throws CouchbaseLiteException {
+        final int n = documents.size();
+        final BulkWriteResult result = new BulkWriteResult(n);
+        synchronized (dbLock) {
+            boolean commit = false;
+            beginTransaction();
+            try {
+                for (int i = 0; i < n; i += BULK_WRITE_CHUNK_SIZE) {
+                    final int end = Math.min(n, i + BULK_WRITE_CHUNK_SIZE);
+                    writeChunkLocked(documents, i, end, deleting, concurrencyControl, result);
+                }
+                commit = true;
+            }
+            finally {
+                endTransaction(commit);
+            }
+        }
+        return result;
+    }
+
+    @GuardedBy("dbLock")
+    @SuppressWarnings("PMD.NPathComplexity")
+    private void writeChunkLocked(
+        @NonNull List<Document> documents,
+        int start,
+        int end,
+        boolean deleting,
+        @NonNull ConcurrencyControl concurrencyControl,
+        @NonNull BulkWriteResult result)
+        throws CouchbaseLiteException {
+        final int n = end - start;
+        final int[] indices = new int[n];
+        final String[] docIDs = new String[n];
+        final C4Document[] c4Docs = new C4Document[n];
+        final FLSliceResult[] bodies = new FLSliceResult[n];
+        final int[] flags = new int[n];
+
+        // Prepare the chunk.  Every body is encoded with the database's shared encoder.
+        int nWrites = 0;
+        C4Document[] newDocs = null;
+        final int[] errors = new int[2 * n];
+        try {
+            for (int i = start; i < end; i++) {
+                final Document document = documents.get(i);
                 try {
-                    saveInTransaction(document, (baseDoc == null) ? null : baseDoc.getC4doc(), deleting);
-                    commit = true;
-                    return;
+                    if (deleting && (!document.exists())) {
+                        throw new CouchbaseLiteException(
+                            "DeleteDocFailedNotSaved",
+                            CBLError.Domain.CBLITE,
+                            CBLError.Code.NOT_FOUND);
+                    }
+
+                    prepareDocument(document);
+
+                    if (!(deleting || document.isEmpty())) { bodies[nWrites] = document.encode(); }
+                }
+                catch (LiteCoreException e) {
+                    result.failed(i, CBLStatus.convertException(e));
+                    continue;
                 }
                 catch (CouchbaseLiteException e) {
-                    if (!CouchbaseLiteException.isConflict(e)) { throw e; }
+                    result.failed(i, e);
+                    continue;
                 }
 
-                // Conflict
+                indices[nWrites] = i;
+                docIDs[nWrites] = document.getId();
+                c4Docs[nWrites] = document.getC4doc();
+                flags[nWrites] = (deleting) ? C4Constants.RevisionFlags.DELETED : 0;
+                nWrites++;
+            }
 
-                // return false if FAIL_ON_CONFLICT
-                if (concurrencyControl.equals(ConcurrencyControl.FAIL_ON_CONFLICT)) {
-                    throw new CouchbaseLiteException("Conflict", CBLError.Domain.CBLITE, CBLError.Code.CONFLICT);
-                }
+            if (nWrites <= 0) { return; }
 
-                commit = saveConflicted(document, deleting);
+            newDocs = C4Document.saveAll(
+                getC4DatabaseLocked(),
+                nWrites,
+                docIDs,
+                c4Docs,
+                bodies,
+                flags,
+                sharedKeys.getFLSharedKeys(),
+                errors);
+        }
+        finally {
+            for (int i = 0; i < nWrites; i++) {
+                final FLSliceResult body = bodies[i];
+                if (body != null) { body.free(); }
             }
-            finally {
-                endTransaction(commit);
+        }
+
+        for (int i = 0; i < nWrites; i++) {
+            final int idx = indices[i];
+            final Document document = documents.get(idx);
+
+            final C4Document newDoc = newDocs[i];
+            if (newDoc != null) {
+                document.replaceC4Document(newDoc);
+                continue;
+            }
+
+            final CouchbaseLiteException err
+                = CBLStatus.toCouchbaseLiteException(errors[2 * i], errors[2 * i + 1], 0);
+            if (!CouchbaseLiteException.isConflict(err)) {
+                result.failed(idx, err);
+                continue;
             }
+
+            if (concurrencyControl.equals(ConcurrencyControl.FAIL_ON_CONFLICT)) {
+                result.conflicted(idx);
+                continue;
+            }
+
+            // Last write wins: conflicts are rare; resolve them one at a time.
+            try { saveConflicted(document, deleting); }
+            catch (CouchbaseLiteException e) { result.failed(idx, e); }
         }
     }
 
+    // Save a single document in the current transaction.
+    // Returns false if there was nothing to save.
+    @GuardedBy("dbLock")
+    private boolean saveLocked(
+        @NonNull Document document,
+        @Nullable Document baseDoc,
+        boolean deleting,
+        @NonNull ConcurrencyControl concurrencyControl)
+        throws CouchbaseLiteException {
+        prepareDocument(document);
+
+        try {
+            saveInTransaction(document, (baseDoc == null) ? null : baseDoc.getC4doc(), deleting);
+            return true;
+        }
+        catch (CouchbaseLiteException e) {
+            if (!CouchbaseLiteException.isConflict(e)) { throw e; }
+        }
+
+        // Conflict
+
+        // return false if FAIL_ON_CONFLICT
+        if (concurrencyControl.equals(ConcurrencyControl.FAIL_ON_CONFLICT)) {
+            throw new CouchbaseLiteException("Conflict", CBLError.Domain.CBLITE, CBLError.Code.CONFLICT);
+        }
+
+        return saveConflicted(document, deleting);
+    }
+
     @GuardedBy("dbLock")
     private boolean saveConflicted(@NonNull Document document, boolean deleting)
         throws CouchbaseLiteException {
@@ -1659,6 +2009,9 @@ abstract class AbstractDatabase {
             c4Db = getC4DatabaseLocked();
             c4Database = null;
 
+            Log.v(DOMAIN, "Query cache for %s: %s", this, queryCache);
+            queryCache.clear();
+
             // don't do any of this stuff in shell mode
             if (name == null) { return; }
 
@@ -1695,7 +2048,9 @@ abstract class AbstractDatabase {
             catch (LiteCoreException e) { throw CBLStatus.convertException(e); }
         }
 
-        shutdownExecutors(postExecutor, queryExecutor, EXECUTOR_CLOSE_MAX_WAIT_SECS);
+        if (!shutdownExecutors(executionLane, postExecutor, queryExecutor, EXECUTOR_CLOSE_MAX_WAIT_SECS)) {
+            Log.w(DOMAIN, "Executors for %s did not stop within %d sec", this, EXECUTOR_CLOSE_MAX_WAIT_SECS);
+        }
     }
 
     @GuardedBy("dbLock")
@@ -1718,12 +2073,23 @@ abstract class AbstractDatabase {
     }
 
     // called from the finalizer
-    private void shutdownExecutors(
+    // Stops all three executors, even if some of them do not stop in time.
+    // The serial executors are stopped, and given time to drain, before the lane.
+    // Returns false if any of them had not stopped when the wait ended.
+    private boolean shutdownExecutors(
+        ExecutionService.ExecutionLane lane,
         ExecutionService.CloseableExecutor pExec,
         ExecutionService.CloseableExecutor qExec,
         int waitTime) {
         // shutdown executor service
-        if (pExec != null) { pExec.stop(waitTime, TimeUnit.SECONDS); }
-        if (qExec != null) { qExec.stop(waitTime, TimeUnit.SECONDS); }
+        boolean stopped = true;
+        if (pExec != null) { stopped = pExec.stop(waitTime, TimeUnit.SECONDS); }
+        if (qExec != null) { stopped = qExec.stop(waitTime, TimeUnit.SECONDS) && stopped; }
+
+        // The serial executors finish their queued tasks in the lane, even after it has been stopped:
+        // a stopped lane accepts nothing new, but it still runs what is already queued on them.
+        if (lane != null) { stopped = lane.stop(waitTime, TimeUnit.SECONDS) && stopped; }
+
+        return stopped;
     }
 }
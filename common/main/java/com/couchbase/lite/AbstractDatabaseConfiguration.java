@@ -22,6 +22,11 @@ import com.couchbase.lite.internal.utils.Preconditions;
 
 
 abstract class AbstractDatabaseConfiguration {
+    static final int DEFAULT_EXECUTION_WEIGHT = 1;
+    static final int DEFAULT_MAX_CONCURRENCY = 2;
+    static final long DEFAULT_GROUP_COMMIT_WINDOW_MS = 1;
+    static final int DEFAULT_QUERY_CACHE_SIZE = 32;
+
     static String getDbDirectory(@Nullable String dir) { return CouchbaseLiteInternal.makeDbPath(dir); }
 
 
@@ -34,6 +39,14 @@ abstract class AbstractDatabaseConfiguration {
     private String rootDirectory;
     private String dbDirectory;
 
+    private int executionWeight = DEFAULT_EXECUTION_WEIGHT;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    private boolean groupCommit;
+    private long groupCommitWindowMs = DEFAULT_GROUP_COMMIT_WINDOW_MS;
+
+    private int queryCacheSize = DEFAULT_QUERY_CACHE_SIZE;
+
     //---------------------------------------------
     // Constructors
     //---------------------------------------------
@@ -42,6 +55,13 @@ abstract class AbstractDatabaseConfiguration {
         CouchbaseLiteInternal.requireInit("Cannot create database configuration");
         this.readOnly = readOnly;
         setRootDirectory((config == null) ? null : config.rootDirectory);
+        if (config != null) {
+            executionWeight = config.executionWeight;
+            maxConcurrency = config.maxConcurrency;
+            groupCommit = config.groupCommit;
+            groupCommitWindowMs = config.groupCommitWindowMs;
+            queryCacheSize = config.queryCacheSize;
+        }
     }
 
     //---------------------------------------------
@@ -59,6 +79,113 @@ abstract class AbstractDatabaseConfiguration {
     @NonNull
     public String getDirectory() { return dbDirectory; }
 
+    /**
+     * Set the database's share of the background thread pool, relative to other open databases.
+     * Each database runs its background work (change notifications, live queries, etc.)
+     * in its own execution lane.  When the pool is busy, lanes take turns: a database
+     * with weight 2 gets twice as many turns as a database with weight 1.
+     *
+     * @param weight the database's execution weight.  Must be &gt; 0.  The default is 1.
+     * @return this.
+     */
+    @NonNull
+    public DatabaseConfiguration setExecutionWeight(int weight) {
+        Preconditions.assertThat(weight, "weight must be > 0", x -> x > 0);
+        if (readOnly) { throw new IllegalStateException("DatabaseConfiguration is readonly mode."); }
+        executionWeight = weight;
+        return getDatabaseConfiguration();
+    }
+
+    /**
+     * @return the database's share of the background thread pool.
+     */
+    public int getExecutionWeight() { return executionWeight; }
+
+    /**
+     * Set the maximum number of background tasks that the database may run at the same time.
+     * A database runs its background tasks on two serial queues, one for change notifications
+     * and one for queries, so it never runs more than two at once: values greater than 2 have
+     * the same effect as 2.  Set it to 1 to run notifications and queries one at a time.
+     *
+     * @param maxConcurrency the maximum number of concurrent tasks.  Must be &gt; 0.  The default is 2.
+     * @return this.
+     */
+    @NonNull
+    public DatabaseConfiguration setMaxConcurrency(int maxConcurrency) {
+        Preconditions.assertThat(maxConcurrency, "max concurrency must be > 0", x -> x > 0);
+        if (readOnly) { throw new IllegalStateException("DatabaseConfiguration is readonly mode."); }
+        this.maxConcurrency = maxConcurrency;
+        return getDatabaseConfiguration();
+    }
+
+    /**
+     * @return the maximum number of background tasks that the database may run at the same time.
+     */
+    public int getMaxConcurrency() { return maxConcurrency; }
+
+    /**
+     * Enable group commit.  In group commit mode, calls to <code>save</code> and <code>delete</code>
+     * that arrive, from different threads, within a short window are saved in a single transaction.
+     * Each call still gets its own result.  Group commit trades a little latency for a large gain
+     * in throughput, when many threads write to the same database.  It has no effect on writes
+     * made from within <code>inBatch</code>.
+     *
+     * @param enabled true to enable group commit.  The default is false.
+     * @return this.
+     */
+    @NonNull
+    public DatabaseConfiguration setGroupCommit(boolean enabled) {
+        if (readOnly) { throw new IllegalStateException("DatabaseConfiguration is readonly mode."); }
+        groupCommit = enabled;
+        return getDatabaseConfiguration();
+    }
+
+    /**
+     * @return true if group commit is enabled.
+     */
+    public boolean isGroupCommit() { return groupCommit; }
+
+    /**
+     * Set the length of time for which a group commit waits for other writes to join it.
+     * A write that finds no other write waiting to be committed does not wait: it is committed immediately.
+     *
+     * @param windowMs the group commit window, in ms.  Must be &gt;= 0.  The default is 1.
+     * @return this.
+     */
+    @NonNull
+    public DatabaseConfiguration setGroupCommitWindowMs(long windowMs) {
+        Preconditions.assertThat(windowMs, "window must be >= 0", x -> x >= 0);
+        if (readOnly) { throw new IllegalStateException("DatabaseConfiguration is readonly mode."); }
+        groupCommitWindowMs = windowMs;
+        return getDatabaseConfiguration();
+    }
+
+    /**
+     * @return the group commit window, in ms.
+     */
+    public long getGroupCommitWindowMs() { return groupCommitWindowMs; }
+
+    /**
+     * Set the number of compiled queries that the database keeps.  Queries with the same
+     * structure share a compiled query, even if they are different Query objects:
+     * only the least recently used is discarded when the cache is full.
+     *
+     * @param size the maximum number of compiled queries.  Must be &gt; 0.  The default is 32.
+     * @return this.
+     */
+    @NonNull
+    public DatabaseConfiguration setQueryCacheSize(int size) {
+        Preconditions.assertThat(size, "size must be > 0", x -> x > 0);
+        if (readOnly) { throw new IllegalStateException("DatabaseConfiguration is readonly mode."); }
+        queryCacheSize = size;
+        return getDatabaseConfiguration();
+    }
+
+    /**
+     * @return the maximum number of compiled queries that the database keeps.
+     */
+    public int getQueryCacheSize() { return queryCacheSize; }
+
     //---------------------------------------------
     // Protected level access
     //---------------------------------------------
@@ -21,6 +21,7 @@ import android.support.annotation.VisibleForTesting;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -50,8 +51,9 @@ abstract class AbstractQuery implements Query {
     //---------------------------------------------
     private final Object lock = new Object();
 
+    // The query's JSON: its compiled query is in the database's query cache.
     @GuardedBy("lock")
-    private C4Query c4query;
+    private String queryJson;
 
     @GuardedBy("lock")
     private LiveQuery liveQuery;
@@ -130,10 +132,7 @@ abstract class AbstractQuery implements Query {
             params = parameters.encode();
             final C4QueryEnumerator c4enum;
             synchronized (getDbLock()) {
-                synchronized (lock) {
-                    if (c4query == null) { c4query = prepQueryLocked(); }
-                    c4enum = c4query.run(options, params);
-                }
+                synchronized (lock) { c4enum = prepQueryLocked().run(options, params); }
             }
             return new ResultSet(this, c4enum, columnNames);
         }
@@ -164,8 +163,7 @@ abstract class AbstractQuery implements Query {
     public String explain() throws CouchbaseLiteException {
         synchronized (getDbLock()) {
             synchronized (lock) {
-                if (c4query == null) { c4query = prepQueryLocked(); }
-                final String exp = c4query.explain();
+                final String exp = prepQueryLocked().explain();
                 if (exp == null) { throw new CouchbaseLiteException("Cound not explain query"); }
                 return exp;
             }
@@ -217,31 +215,6 @@ abstract class AbstractQuery implements Query {
         return getClass().getSimpleName() + "{" + ClassUtils.objId(this) + ",json=" + asJson() + "}";
     }
 
-    //---------------------------------------------
-    // Protected level access
-    //---------------------------------------------
-
-    @SuppressWarnings("NoFinalizer")
-    @Override
-    protected void finalize() throws Throwable {
-        try {
-            final C4Query query = c4query;
-            if (query == null) { return; }
-
-            final Object lock = getDbLockUnchecked();
-            if (lock != null) {
-                synchronized (lock) { query.free(); }
-            }
-            else {
-                Log.w(LogDomain.DATABASE, "Could not get DB lock to free query");
-                query.free();
-            }
-        }
-        finally {
-            super.finalize();
-        }
-    }
-
     //---------------------------------------------
     // Package level access
     //---------------------------------------------
@@ -288,15 +261,21 @@ abstract class AbstractQuery implements Query {
     // Private methods
     //---------------------------------------------
 
+    // Called holding the db lock: the compiled query belongs to the database's cache.
     @GuardedBy("lock")
+    @NonNull
     private C4Query prepQueryLocked() throws CouchbaseLiteException {
-        final String json = encodeAsJson();
-        Log.v(DOMAIN, "Encoded query: %s", json);
-        if (json == null) { throw new CouchbaseLiteException("Failed to generate JSON query."); }
+        if (queryJson == null) {
+            final String json = encodeAsJson();
+            Log.v(DOMAIN, "Encoded query: %s", json);
+            if (json == null) { throw new CouchbaseLiteException("Failed to generate JSON query."); }
+
+            if (columnNames == null) { columnNames = getColumnNames(); }
 
-        if (columnNames == null) { columnNames = getColumnNames(); }
+            queryJson = json;
+        }
 
-        try { return getDatabase().createQuery(json); }
+        try { return getDatabase().getPreparedQuery(queryJson); }
         catch (LiteCoreException e) { throw CBLStatus.convertException(e); }
     }
 
@@ -326,16 +305,17 @@ abstract class AbstractQuery implements Query {
     }
 
     private String encodeAsJson() {
-        try { return JsonUtils.toJson(asJson()).toString(); }
+        try { return JsonUtils.toJsonString(asJson()); }
         catch (JSONException e) {
             Log.w(DOMAIN, "Error when encoding the query as a json string", e);
         }
         return null;
     }
 
+    // The clauses are always in the same order: the JSON is the key for the database's query cache.
     @SuppressWarnings({"unchecked", "PMD.NPathComplexity"})
     private Map<String, Object> asJson() {
-        final Map<String, Object> json = new HashMap<>();
+        final Map<String, Object> json = new LinkedHashMap<>();
 
         // DISTINCT:
         if (select != null && select.isDistinct()) { json.put("DISTINCT", true); }
@@ -377,15 +357,4 @@ abstract class AbstractQuery implements Query {
         if (db != null) { return db.getLock(); }
         throw new IllegalStateException("Cannot seize DB lock");
     }
-
-    // called only from finalizer
-    private Object getDbLockUnchecked() {
-        final DataSource dSrc = from;
-        if (dSrc == null) { return null; }
-
-        final Object src = dSrc.getSource();
-        if (!(src instanceof Database)) { return null; }
-
-        return ((Database) src).getLock();
-    }
 }
@@ -21,6 +21,7 @@ import android.support.annotation.Nullable;
 
 import java.net.URI;
 import java.security.cert.Certificate;
+import java.util.AbstractMap;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -54,6 +56,7 @@ import com.couchbase.lite.internal.core.C4Socket;
 import com.couchbase.lite.internal.core.InternalReplicator;
 import com.couchbase.lite.internal.fleece.FLDict;
 import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLEncoderPool;
 import com.couchbase.lite.internal.replicator.CBLCookieStore;
 import com.couchbase.lite.internal.support.Log;
 import com.couchbase.lite.internal.utils.ClassUtils;
@@ -794,21 +797,11 @@ public abstract class AbstractReplicator extends InternalReplicator {
         int flags,
         CouchbaseLiteException err) {
         Log.i(DOMAIN, "Conflict resolved: %s", err, docId);
-        List<C4ReplicatorStatus> pendingNotifications = null;
-        synchronized (lock) {
-            pendingResolutions.remove(task);
-            // if no more resolutions, deliver any outstanding status notifications
-            if (pendingResolutions.isEmpty()) {
-                pendingNotifications = new ArrayList<>(pendingStatusNotifications);
-                pendingStatusNotifications.clear();
-            }
-        }
+        final List<C4ReplicatorStatus> pendingNotifications = removePendingResolution(task);
 
         notifyDocumentEnded(false, Arrays.asList(new ReplicatedDocument(docId, flags, err, false)));
 
-        if ((pendingNotifications != null) && (!pendingNotifications.isEmpty())) {
-            for (C4ReplicatorStatus status: pendingNotifications) { dispatcher.execute(() -> c4StatusChanged(status)); }
-        }
+        postStatusNotifications(pendingNotifications);
     }
 
     void notifyDocumentEnded(boolean pushing, List<ReplicatedDocument> docs) {
@@ -889,12 +882,50 @@ public abstract class AbstractReplicator extends InternalReplicator {
             public void accept(CouchbaseLiteException err) { onConflictResolved(this, docId, flags, err); }
         };
 
+        // Resolving a document resolves its current conflict: if the executor is full and
+        // a resolution for this document is already waiting, this one is dropped.
+        final Map.Entry<AbstractReplicator, String> key = new AbstractMap.SimpleImmutableEntry<>(this, docId);
+
+        synchronized (lock) { pendingResolutions.add(task); }
+
+        // Don't hold the lock: this may block, waiting for resolutions that need it to complete.
+        try {
+            executor.execute(new ExecutionService.CoalescingTask() {
+                @NonNull
+                @Override
+                public Object getCoalescingKey() { return key; }
+
+                @Override
+                public void onCoalesced() { postStatusNotifications(removePendingResolution(task)); }
+
+                @Override
+                public void run() { db.resolveReplicationConflict(resolver, docId, task); }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            Log.w(DOMAIN, "%s: failed to schedule resolution of conflict in '%s'", e, this, docId);
+            postStatusNotifications(removePendingResolution(task));
+        }
+    }
+
+    // If this was the last pending resolution, return the status notifications that were waiting for it.
+    @Nullable
+    private List<C4ReplicatorStatus> removePendingResolution(@NonNull Fn.Consumer<CouchbaseLiteException> task) {
         synchronized (lock) {
-            executor.execute(() -> db.resolveReplicationConflict(resolver, docId, task));
-            pendingResolutions.add(task);
+            pendingResolutions.remove(task);
+            if (!pendingResolutions.isEmpty()) { return null; }
+
+            final List<C4ReplicatorStatus> pendingNotifications = new ArrayList<>(pendingStatusNotifications);
+            pendingStatusNotifications.clear();
+            return pendingNotifications;
         }
     }
 
+    private void postStatusNotifications(@Nullable List<C4ReplicatorStatus> notifications) {
+        if (notifications == null) { return; }
+        for (C4ReplicatorStatus status: notifications) { dispatcher.execute(() -> c4StatusChanged(status)); }
+    }
+
     private byte[] getFleeceOptions() {
         // Encode the options:
         final Map<String, Object> options = config.effectiveOptions();
@@ -903,13 +934,13 @@ public abstract class AbstractReplicator extends InternalReplicator {
 
         byte[] optionsFleece = null;
         if (!options.isEmpty()) {
-            final FLEncoder enc = new FLEncoder();
+            final FLEncoder enc = FLEncoderPool.acquire();
             try {
                 enc.write(options);
                 optionsFleece = enc.finish();
             }
             catch (LiteCoreException e) { Log.e(DOMAIN, "Failed to encode", e); }
-            finally { enc.free(); }
+            finally { FLEncoderPool.release(enc); }
         }
 
         return optionsFleece;
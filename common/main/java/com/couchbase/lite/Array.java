@@ -155,7 +155,7 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
      */
     @Override
     public int getInt(int index) {
-        synchronized (lock) { return CBLConverter.asInteger(getMValue(internalArray, index), internalArray); }
+        synchronized (lock) { return CBLConverter.asInteger(internalArray, checkIndex(internalArray, index)); }
     }
 
     /**
@@ -168,7 +168,7 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
      */
     @Override
     public long getLong(int index) {
-        synchronized (lock) { return CBLConverter.asLong(getMValue(internalArray, index), internalArray); }
+        synchronized (lock) { return CBLConverter.asLong(internalArray, checkIndex(internalArray, index)); }
     }
 
     /**
@@ -181,7 +181,7 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
      */
     @Override
     public float getFloat(int index) {
-        synchronized (lock) { return CBLConverter.asFloat(getMValue(internalArray, index), internalArray); }
+        synchronized (lock) { return CBLConverter.asFloat(internalArray, checkIndex(internalArray, index)); }
     }
 
     /**
@@ -194,7 +194,7 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
      */
     @Override
     public double getDouble(int index) {
-        synchronized (lock) { return CBLConverter.asDouble(getMValue(internalArray, index), internalArray); }
+        synchronized (lock) { return CBLConverter.asDouble(internalArray, checkIndex(internalArray, index)); }
     }
 
     /**
@@ -205,7 +205,7 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
      */
     @Override
     public boolean getBoolean(int index) {
-        synchronized (lock) { return CBLConverter.asBoolean(getMValue(internalArray, index).asNative(internalArray)); }
+        synchronized (lock) { return CBLConverter.asBoolean(internalArray, checkIndex(internalArray, index)); }
     }
 
     /**
@@ -368,4 +368,9 @@ public class Array implements ArrayInterface, FLEncodable, Iterable<Object> {
         if (value.isEmpty()) { throwRangeException(index); }
         return value;
     }
+
+    private int checkIndex(@NonNull MArray array, int index) {
+        if ((index < 0) || (index >= array.count())) { throwRangeException(index); }
+        return index;
+    }
 }
@@ -521,7 +521,12 @@ public final class Blob implements FLEncodable {
 
             res = blobStore.getContents(key);
 
-            newContent = res.getBuf();
+            // read straight from the native buffer: this is the only copy made
+            newContent = res.withContent(content -> {
+                final byte[] bytes = new byte[content.remaining()];
+                content.get(bytes);
+                return bytes;
+            });
         }
         catch (LiteCoreException e) {
             final String msg = "Failed to read content from database for digest: " + blobDigest;
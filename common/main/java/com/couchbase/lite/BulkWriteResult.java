@@ -0,0 +1,126 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * The outcome of a bulk write: Database.saveAll or Database.deleteAll.
+ * Outcomes are reported per document, in the order in which the documents were passed to the write.
+ */
+public final class BulkWriteResult {
+    /**
+     * The outcome of the write of a single document.
+     */
+    public enum Outcome {
+        /**
+         * The document was written.
+         */
+        SAVED,
+
+        /**
+         * The document was not written because it conflicted with the current revision,
+         * and the write used FAIL_ON_CONFLICT concurrency control.
+         */
+        CONFLICTED,
+
+        /**
+         * The document was not written because of an error.
+         */
+        FAILED
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    // One byte per document: the ordinal of its outcome.
+    @NonNull
+    private final byte[] outcomes;
+
+    // Errors are rare: store them only for the documents that failed.
+    @NonNull
+    private final Map<Integer, CouchbaseLiteException> errors = new HashMap<>();
+
+    private int conflictedCount;
+
+    BulkWriteResult(int size) { outcomes = new byte[size]; }
+
+    /**
+     * The number of documents in the write.
+     *
+     * @return the number of documents.
+     */
+    public int size() { return outcomes.length; }
+
+    /**
+     * The outcome of the write of the document at the given position.
+     *
+     * @param index the position of the document in the collection passed to the write.
+     * @return the outcome.
+     */
+    @NonNull
+    public Outcome getOutcome(int index) { return OUTCOMES[outcomes[index]]; }
+
+    /**
+     * The error that caused the write of the document at the given position to fail.
+     *
+     * @param index the position of the document in the collection passed to the write.
+     * @return the error, or null if the outcome was not FAILED.
+     */
+    @Nullable
+    public CouchbaseLiteException getError(int index) { return errors.get(index); }
+
+    /**
+     * @return the number of documents that were written.
+     */
+    public int getSavedCount() { return outcomes.length - (conflictedCount + errors.size()); }
+
+    /**
+     * @return the number of documents that were not written because of a conflict.
+     */
+    public int getConflictedCount() { return conflictedCount; }
+
+    /**
+     * @return the number of documents that were not written because of an error.
+     */
+    public int getFailedCount() { return errors.size(); }
+
+    /**
+     * @return true if every document was written.
+     */
+    public boolean isAllSaved() { return getSavedCount() == outcomes.length; }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "BulkWriteResult{" + getSavedCount() + ", " + conflictedCount + ", " + errors.size() + "}";
+    }
+
+    // Each document's outcome is set at most once.
+    void conflicted(int index) {
+        outcomes[index] = (byte) Outcome.CONFLICTED.ordinal();
+        conflictedCount++;
+    }
+
+    void failed(int index, @NonNull CouchbaseLiteException err) {
+        outcomes[index] = (byte) Outcome.FAILED.ordinal();
+        errors.put(index, err);
+    }
+}
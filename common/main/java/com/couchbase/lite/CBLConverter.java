@@ -15,10 +15,17 @@
 //
 package com.couchbase.lite;
 
+import android.support.annotation.NonNull;
+
+import com.couchbase.lite.internal.fleece.FLArray;
+import com.couchbase.lite.internal.fleece.FLDict;
 import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.fleece.MArray;
 import com.couchbase.lite.internal.fleece.MCollection;
+import com.couchbase.lite.internal.fleece.MDict;
 import com.couchbase.lite.internal.fleece.MValue;
 import com.couchbase.lite.internal.utils.ClassUtils;
+import com.couchbase.lite.internal.utils.Preconditions;
 
 
 final class CBLConverter {
@@ -74,4 +81,67 @@ final class CBLConverter {
             return num != null ? num.doubleValue() : 0L;
         }
     }
+
+    // Scalar values that have been neither read nor changed are read straight from Fleece:
+    // no MValue and no boxed number is created for them.
+
+    static int asInteger(@NonNull MDict dict, @NonNull String key) { return (int) asLong(dict, key); }
+
+    static long asLong(@NonNull MDict dict, @NonNull String key) {
+        final MValue val = dict.getExisting(key);
+        if (val != null) { return asLong(val, dict); }
+        final FLDict flDict = dict.getBackingDict();
+        return (flDict == null) ? 0L : flDict.getInt(key);
+    }
+
+    static float asFloat(@NonNull MDict dict, @NonNull String key) {
+        final MValue val = dict.getExisting(key);
+        if (val != null) { return asFloat(val, dict); }
+        final FLDict flDict = dict.getBackingDict();
+        return (flDict == null) ? 0.0F : flDict.getFloat(key);
+    }
+
+    static double asDouble(@NonNull MDict dict, @NonNull String key) {
+        final MValue val = dict.getExisting(key);
+        if (val != null) { return asDouble(val, dict); }
+        final FLDict flDict = dict.getBackingDict();
+        return (flDict == null) ? 0.0 : flDict.getDouble(key);
+    }
+
+    static boolean asBoolean(@NonNull MDict dict, @NonNull String key) {
+        final MValue val = dict.getExisting(key);
+        if (val != null) { return asBoolean(val.asNative(dict)); }
+        final FLDict flDict = dict.getBackingDict();
+        return (flDict != null) && flDict.getBool(key);
+    }
+
+    // The caller must check that the index is in range.
+
+    static int asInteger(@NonNull MArray array, int index) { return (int) asLong(array, index); }
+
+    static long asLong(@NonNull MArray array, int index) {
+        final MValue val = array.getExisting(index);
+        return (val != null) ? asLong(val, array) : getBaseArray(array).getInt(index);
+    }
+
+    static float asFloat(@NonNull MArray array, int index) {
+        final MValue val = array.getExisting(index);
+        return (val != null) ? asFloat(val, array) : getBaseArray(array).getFloat(index);
+    }
+
+    static double asDouble(@NonNull MArray array, int index) {
+        final MValue val = array.getExisting(index);
+        return (val != null) ? asDouble(val, array) : getBaseArray(array).getDouble(index);
+    }
+
+    static boolean asBoolean(@NonNull MArray array, int index) {
+        final MValue val = array.getExisting(index);
+        return (val != null) ? asBoolean(val.asNative(array)) : getBaseArray(array).getBool(index);
+    }
+
+    // getExisting returns null only when there is a base array
+    @NonNull
+    private static FLArray getBaseArray(@NonNull MArray array) {
+        return Preconditions.assertNotNull(array.getBaseArray(), "base array");
+    }
 }
@@ -147,7 +147,7 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     @Override
     public int getInt(@NonNull String key) {
         Preconditions.assertNotNull(key, "key");
-        synchronized (lock) { return CBLConverter.asInteger(internalDict.get(key), internalDict); }
+        synchronized (lock) { return CBLConverter.asInteger(internalDict, key); }
     }
 
     /**
@@ -161,7 +161,7 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     @Override
     public long getLong(@NonNull String key) {
         Preconditions.assertNotNull(key, "key");
-        synchronized (lock) { return CBLConverter.asLong(internalDict.get(key), internalDict); }
+        synchronized (lock) { return CBLConverter.asLong(internalDict, key); }
     }
 
     /**
@@ -175,7 +175,7 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     @Override
     public float getFloat(@NonNull String key) {
         Preconditions.assertNotNull(key, "key");
-        synchronized (lock) { return CBLConverter.asFloat(internalDict.get(key), internalDict); }
+        synchronized (lock) { return CBLConverter.asFloat(internalDict, key); }
     }
 
     /**
@@ -189,7 +189,7 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     @Override
     public double getDouble(@NonNull String key) {
         Preconditions.assertNotNull(key, "key");
-        synchronized (lock) { return CBLConverter.asDouble(internalDict.get(key), internalDict); }
+        synchronized (lock) { return CBLConverter.asDouble(internalDict, key); }
     }
 
     /**
@@ -202,7 +202,7 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     @Override
     public boolean getBoolean(@NonNull String key) {
         Preconditions.assertNotNull(key, "key");
-        synchronized (lock) { return CBLConverter.asBoolean(internalDict.get(key).asNative(internalDict)); }
+        synchronized (lock) { return CBLConverter.asBoolean(internalDict, key); }
     }
 
     /**
@@ -285,8 +285,10 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     public Map<String, Object> toMap() {
         final Map<String, Object> result = new HashMap<>();
         synchronized (lock) {
-            for (String key : internalDict) {
-                result.put(key, Fleece.toObject(internalDict.get(key).asNative(internalDict)));
+            final Iterator<Map.Entry<String, MValue>> entries = internalDict.entryIterator();
+            while (entries.hasNext()) {
+                final Map.Entry<String, MValue> entry = entries.next();
+                result.put(entry.getKey(), Fleece.toObject(entry.getValue().asNative(internalDict)));
             }
         }
         return result;
@@ -330,9 +332,31 @@ public class Dictionary implements DictionaryInterface, FLEncodable, Iterable<St
     // Iterable implementation
     //---------------------------------------------
 
+    /**
+     * Gets an iterator over the keys of the dictionary.
+     * Keys are read as the iteration reaches them: iteration does not start by copying all of them.
+     * Keys added while iterating may not be returned.
+     *
+     * @return The key iterator
+     */
     @NonNull
     @Override
-    public Iterator<String> iterator() { return getKeys().iterator(); }
+    public Iterator<String> iterator() {
+        final Iterator<String> keys;
+        synchronized (lock) { keys = internalDict.iterator(); }
+
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                synchronized (lock) { return keys.hasNext(); }
+            }
+
+            @Override
+            public String next() {
+                synchronized (lock) { return keys.next(); }
+            }
+        };
+    }
 
     @Override
     public boolean equals(Object o) {
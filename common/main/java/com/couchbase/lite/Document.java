@@ -22,6 +22,7 @@ import android.support.annotation.Nullable;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -30,8 +31,9 @@ import com.couchbase.lite.internal.CBLStatus;
 import com.couchbase.lite.internal.core.C4Constants;
 import com.couchbase.lite.internal.core.C4Document;
 import com.couchbase.lite.internal.fleece.FLDict;
-import com.couchbase.lite.internal.fleece.FLEncoder;
 import com.couchbase.lite.internal.fleece.FLSliceResult;
+import com.couchbase.lite.internal.fleece.FleeceBuffer;
+import com.couchbase.lite.internal.fleece.FleeceWriter;
 import com.couchbase.lite.internal.fleece.MRoot;
 import com.couchbase.lite.internal.utils.ClassUtils;
 import com.couchbase.lite.internal.utils.Preconditions;
@@ -362,7 +364,20 @@ public class Document implements DictionaryInterface, Iterable<String> {
      */
     @NonNull
     @Override
-    public Map<String, Object> toMap() { return getContent().toMap(); }
+    public Map<String, Object> toMap() {
+        // The content of an unmodifiable document is its body: decode the whole thing at once.
+        final FLDict body;
+        final Database db;
+        synchronized (lock) {
+            body = (mutable) ? null : data;
+            db = database;
+        }
+        if ((body == null) || (db == null)) { return getContent().toMap(); }
+
+        final Map<String, Object> props = body.asDict();
+        for (Map.Entry<String, Object> prop: props.entrySet()) { prop.setValue(toBlobs(db, prop.getValue())); }
+        return props;
+    }
 
     /**
      * Tests whether a property exists or not.
@@ -386,7 +401,7 @@ public class Document implements DictionaryInterface, Iterable<String> {
      */
     @NonNull
     @Override
-    public Iterator<String> iterator() { return getKeys().iterator(); }
+    public Iterator<String> iterator() { return getContent().iterator(); }
 
     //---------------------------------------------
     // Override
@@ -464,6 +479,20 @@ public class Document implements DictionaryInterface, Iterable<String> {
 
     final boolean isNewDocument() { return getRevisionID() == null; }
 
+    /**
+     * Gets the content of the current object as an object of the codec's type.
+     * Unlike toMap, this does not decode properties that the codec does not read.
+     *
+     * @param codec the codec that creates the object from this document's properties
+     * @param <T>   the type of the object
+     * @return the object
+     */
+    @NonNull
+    <T> T toObject(@NonNull DocumentCodec<T> codec) {
+        Preconditions.assertNotNull(codec, "codec");
+        return codec.decode(this);
+    }
+
     /**
      * Return whether the document exists in the database.
      *
@@ -526,9 +555,18 @@ public class Document implements DictionaryInterface, Iterable<String> {
         final Database db = getDatabase();
         if (db == null) { throw new IllegalStateException("encode called with null database"); }
 
-        final FLEncoder encoder = db.getSharedFleeceEncoder();
+        // Encode in Java: the only native call is the one that hands the finished body to LiteCore
+        final FleeceWriter encoder = db.getSharedFleeceWriter();
         try {
+            final FLDict base;
+            synchronized (lock) { base = data; }
+
             encoder.setExtraInfo(this);
+
+            // If this document has a previous version, the new one may be encoded as an amendment to it.
+            // The encoder compacts an amendment when it is finished: the body that is saved contains no garbage.
+            encoder.amend(base);
+
             getContent().encodeTo(encoder);
             return encoder.finish2();
         }
@@ -543,11 +581,45 @@ public class Document implements DictionaryInterface, Iterable<String> {
     // Private access
     //---------------------------------------------
 
+    // Replace the blobs in a decoded value with Blob objects, as the MValueDelegate would.
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static Object toBlobs(@NonNull Database db, @Nullable Object value) {
+        if (value instanceof byte[]) { return new Blob("application/octet-stream", (byte[]) value); }
+
+        if (value instanceof List) {
+            final ListIterator<Object> items = ((List<Object>) value).listIterator();
+            while (items.hasNext()) { items.set(toBlobs(db, items.next())); }
+            return value;
+        }
+
+        if (!(value instanceof Map)) { return value; }
+
+        final Map<String, Object> dict = (Map<String, Object>) value;
+        final Object type = dict.get(Blob.META_PROP_TYPE);
+        if ((type instanceof String) ? Blob.TYPE_BLOB.equals(type) : isOldAttachment(dict)) {
+            return new Blob(db, dict);
+        }
+
+        for (Map.Entry<String, Object> entry: dict.entrySet()) { entry.setValue(toBlobs(db, entry.getValue())); }
+        return dict;
+    }
+
+    // See MValueDelegate.isOldAttachment
+    private static boolean isOldAttachment(@NonNull Map<String, Object> dict) {
+        return (dict.get(Blob.PROP_DIGEST) != null)
+            && (dict.get(Blob.PROP_LENGTH) != null)
+            && (dict.get(Blob.PROP_STUB) != null)
+            && (dict.get(Blob.PROP_REVPOS) != null);
+    }
+
     // Sets c4doc and updates the root dictionary
     private void setC4Document(@Nullable C4Document c4doc, boolean mutable) {
         synchronized (lock) {
             updateC4DocumentLocked(c4doc);
-            data = ((c4doc == null) || c4doc.deleted()) ? null : c4doc.getSelectedBody2();
+            final FLDict body = ((c4doc == null) || c4doc.deleted()) ? null : c4doc.getSelectedBody2();
+            // Decode the body in Java, when possible: reading it will not require native calls
+            data = ((body == null) || (database == null)) ? body : FleeceBuffer.wrap(body, database.getFLSharedKeys());
             updateDictionaryLocked(mutable);
         }
     }
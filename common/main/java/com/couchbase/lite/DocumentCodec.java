@@ -0,0 +1,52 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import android.support.annotation.NonNull;
+
+
+/**
+ * Maps objects of a type to and from the properties of a document or a query result,
+ * without reflection and without building intermediate Maps.
+ * <p>
+ * This is not yet part of the public API: there is no generator for codecs, and an encoded object
+ * is still written through the document's mutable properties.
+ * <p>
+ * A codec reads each property with the typed getters of a DictionaryInterface.  For a Document
+ * or a Result, numeric and boolean getters read directly from the stored data: nothing is boxed.
+ * It writes each property with the typed setters of a MutableDictionaryInterface.
+ * Codecs should be stateless: a single instance may be used from several threads.
+ *
+ * @param <T> the type of the mapped objects.
+ */
+interface DocumentCodec<T> {
+    /**
+     * Create an object from properties.
+     *
+     * @param properties the properties of a document, a dictionary or a query result.
+     * @return the new object.
+     */
+    @NonNull
+    T decode(@NonNull DictionaryInterface properties);
+
+    /**
+     * Write the state of an object as properties.
+     *
+     * @param object     the object.
+     * @param properties the properties to which to write it: usually a MutableDocument.
+     */
+    void encode(@NonNull T object, @NonNull MutableDictionaryInterface properties);
+}
@@ -0,0 +1,197 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import android.support.annotation.GuardedBy;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * Group commit: merge concurrent writes into a single transaction.
+ * <p>
+ * A writer adds its write to the pending list and then waits for it to complete.
+ * If no other writer is committing a group, the writer becomes the leader:
+ * if other writes are already pending, it waits for the group window to close (or for the group
+ * to fill), then takes every pending write and commits them all, in a single transaction.
+ * A writer that finds no other write pending commits immediately.  Writes that arrive
+ * while the leader is committing wait for the next group.  When the leader is done,
+ * one of them becomes the next leader.
+ * <p>
+ * Each write completes with its own result: the committer records failures on individual writes.
+ * A failure of the group as a whole fails every write in the group.
+ */
+final class GroupCommitter {
+    /**
+     * A single write in a group.
+     */
+    static final class PendingWrite {
+        @NonNull
+        final Document document;
+        @Nullable
+        final Document baseDoc;
+        final boolean deleting;
+        @NonNull
+        final ConcurrencyControl concurrencyControl;
+
+        // guarded by the GroupCommitter's monitor
+        private boolean done;
+        @Nullable
+        private Throwable error;
+
+        PendingWrite(
+            @NonNull Document document,
+            @Nullable Document baseDoc,
+            boolean deleting,
+            @NonNull ConcurrencyControl concurrencyControl) {
+            this.document = document;
+            this.baseDoc = baseDoc;
+            this.deleting = deleting;
+            this.concurrencyControl = concurrencyControl;
+        }
+
+        // Called by the committer, while committing the group.
+        void fail(@NonNull Exception err) { error = err; }
+    }
+
+    /**
+     * Commit a group of writes, in a single transaction.
+     * Failures of individual writes should be recorded with <code>PendingWrite.fail</code>.
+     */
+    interface Committer {
+        void commit(@NonNull List<PendingWrite> writes) throws CouchbaseLiteException;
+    }
+
+
+    @NonNull
+    private final Committer committer;
+    private final long windowNanos;
+    private final int maxGroupSize;
+
+    @GuardedBy("this")
+    @NonNull
+    private List<PendingWrite> pendingWrites = new ArrayList<>();
+
+    @GuardedBy("this")
+    private boolean leaderActive;
+
+    GroupCommitter(@NonNull Committer committer, long windowMs, int maxGroupSize) {
+        Preconditions.assertNotNull(committer, "committer");
+        Preconditions.assertThat(windowMs, "window must be >= 0", x -> x >= 0);
+        Preconditions.assertThat(maxGroupSize, "max group size must be > 0", x -> x > 0);
+        this.committer = committer;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    /**
+     * Write a document as part of the next group and wait for the group to commit.
+     * Must not be called by a thread that holds the database lock.
+     *
+     * @param write the write.
+     * @throws CouchbaseLiteException if the write, or the group, failed.
+     */
+    void write(@NonNull PendingWrite write) throws CouchbaseLiteException {
+        synchronized (this) {
+            pendingWrites.add(write);
+            if (pendingWrites.size() >= maxGroupSize) { notifyAll(); }
+        }
+
+        // Wait for this write to complete, leading a group whenever there is no leader.
+        // This write may not be in the group this thread leads, if that group is full.
+        boolean interrupted = false;
+        while (true) {
+            synchronized (this) {
+                if (write.done) { break; }
+
+                if (leaderActive) {
+                    // the write cannot be withdrawn: it may already be part of a group
+                    try { wait(); }
+                    catch (InterruptedException e) { interrupted = true; }
+                    continue;
+                }
+
+                leaderActive = true;
+            }
+
+            commitGroup();
+        }
+
+        if (interrupted) { Thread.currentThread().interrupt(); }
+
+        final Throwable err;
+        synchronized (this) { err = write.error; }
+
+        if (err instanceof CouchbaseLiteException) { throw (CouchbaseLiteException) err; }
+        if (err instanceof RuntimeException) { throw (RuntimeException) err; }
+        if (err instanceof Error) { throw (Error) err; }
+    }
+
+    // Called only by the leader.
+    // Whatever happens, every write in the group must complete and the leader must step down.
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    private void commitGroup() {
+        final List<PendingWrite> group = nextGroup();
+
+        Throwable groupError = null;
+        try { committer.commit(group); }
+        catch (Throwable t) { groupError = t; }
+
+        synchronized (this) {
+            for (PendingWrite write: group) {
+                if (groupError != null) { write.error = groupError; }
+                write.done = true;
+            }
+            leaderActive = false;
+            notifyAll();
+        }
+    }
+
+    // If other writers are waiting, wait for the window to close, or the group to fill.
+    // Then take the pending writes.
+    @NonNull
+    private synchronized List<PendingWrite> nextGroup() {
+        final long deadline = System.nanoTime() + windowNanos;
+        while ((pendingWrites.size() > 1) && (pendingWrites.size() < maxGroupSize)) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) { break; }
+
+            try { TimeUnit.NANOSECONDS.timedWait(this, remaining); }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        final int n = pendingWrites.size();
+        if (n <= maxGroupSize) {
+            final List<PendingWrite> group = pendingWrites;
+            pendingWrites = new ArrayList<>();
+            return group;
+        }
+
+        final List<PendingWrite> head = pendingWrites.subList(0, maxGroupSize);
+        final List<PendingWrite> group = new ArrayList<>(head);
+        head.clear();
+        return group;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.UUID;
 
 import com.couchbase.lite.internal.core.C4Document;
+import com.couchbase.lite.internal.utils.Preconditions;
 
 
 /**
@@ -81,6 +82,24 @@ public final class MutableDocument extends Document implements MutableDictionary
         setData(data);
     }
 
+    /**
+     * Initializes a new Document object with a given ID and, as its content, the properties of an object.
+     * If a null ID value is given, the document will be created with a new random UUID.
+     * The created document will be saved into a database when you call
+     * the Database's save(Document) method with the document object given.
+     *
+     * @param id     the document ID.
+     * @param codec  the codec that writes the object's properties
+     * @param object the object
+     * @param <T>    the type of the object
+     */
+    <T> MutableDocument(@Nullable String id, @NonNull DocumentCodec<T> codec, @NonNull T object) {
+        this(null, id, null);
+        Preconditions.assertNotNull(object, "object");
+        Preconditions.assertNotNull(codec, "codec");
+        codec.encode(object, this);
+    }
+
     protected MutableDocument(@NonNull Document doc) {
         this(doc.getDatabase(), doc.getId(), doc.getC4doc());
         if (doc.isMutable()) { setContent(doc.getContent().toMutable()); }
@@ -24,6 +24,7 @@ import java.util.Map;
 
 import com.couchbase.lite.internal.fleece.AllocSlice;
 import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLEncoderPool;
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
@@ -210,11 +211,11 @@ public final class Parameters {
     Parameters readonlyCopy() { return new Parameters(this, true); }
 
     AllocSlice encode() throws LiteCoreException {
-        final FLEncoder encoder = new FLEncoder();
+        final FLEncoder encoder = FLEncoderPool.acquire();
         try {
             encoder.write(map);
             return encoder.finish2();
         }
-        finally { encoder.free(); }
+        finally { FLEncoderPool.release(encoder); }
     }
 }
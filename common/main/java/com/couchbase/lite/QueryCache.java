@@ -0,0 +1,112 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.couchbase.lite.internal.core.C4Query;
+import com.couchbase.lite.internal.utils.Fn;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A bounded LRU cache of compiled queries, keyed by their JSON.
+ * <p>
+ * Queries with the same JSON share a single compiled query: the cache owns it and frees it
+ * when it is evicted or when the cache is cleared.  A compiled query must not be held
+ * beyond the critical section in which it was obtained: a query enumerator retains its query,
+ * so it is safe to free a query once it has been run.
+ * <p>
+ * This class is not thread safe: use it only while holding the database lock.
+ */
+final class QueryCache {
+    private final int maxSize;
+
+    @NonNull
+    private final LinkedHashMap<String, C4Query> queries;
+
+    @NonNull
+    private final QueryCacheMetrics metrics = new QueryCacheMetrics();
+
+    QueryCache(int maxSize) {
+        Preconditions.assertThat(maxSize, "query cache size must be > 0", x -> x > 0);
+        this.maxSize = maxSize;
+        this.queries = new LinkedHashMap<String, C4Query>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, C4Query> eldest) {
+                if (size() <= QueryCache.this.maxSize) { return false; }
+                eldest.getValue().free();
+                metrics.recordEviction();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the compiled query for the given JSON, compiling it if it is not in the cache.
+     *
+     * @param json    the query's JSON
+     * @param compile compiles a query
+     * @return the compiled query
+     * @throws LiteCoreException if the query cannot be compiled
+     */
+    @NonNull
+    C4Query get(@NonNull String json, @NonNull Fn.FunctionThrows<String, C4Query, LiteCoreException> compile)
+        throws LiteCoreException {
+        C4Query query = queries.get(json);
+        if (query != null) {
+            metrics.recordHit();
+            return query;
+        }
+
+        metrics.recordMiss();
+        query = Preconditions.assertNotNull(compile.apply(json), "query");
+        queries.put(json, query);
+        return query;
+    }
+
+    /**
+     * Free all of the queries in the cache.
+     */
+    void clear() {
+        for (C4Query query: queries.values()) { query.free(); }
+        queries.clear();
+    }
+
+    /**
+     * Free all of the queries in the cache, because they may have been compiled against indexes
+     * that no longer exist, or without indexes that do.
+     */
+    void invalidate() {
+        if (queries.isEmpty()) { return; }
+        clear();
+        metrics.recordInvalidation();
+    }
+
+    int size() { return queries.size(); }
+
+    @NonNull
+    QueryCacheMetrics getMetrics() { return metrics; }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "QueryCache{" + queries.size() + "/" + maxSize + ", " + metrics + "}";
+    }
+}
@@ -0,0 +1,76 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Metrics for a database's cache of compiled queries.
+ * <ul>
+ * <li> hits: the number of times a query was run with a compiled query from the cache
+ * <li> misses: the number of times a query had to be compiled
+ * <li> evictions: the number of compiled queries discarded to make room for others
+ * <li> invalidations: the number of times the cache was emptied because the database's indexes changed
+ * </ul>
+ * A high miss or eviction count suggests that the cache is too small for the application's queries.
+ */
+public final class QueryCacheMetrics {
+    @NonNull
+    private final AtomicLong hits = new AtomicLong();
+    @NonNull
+    private final AtomicLong misses = new AtomicLong();
+    @NonNull
+    private final AtomicLong evictions = new AtomicLong();
+    @NonNull
+    private final AtomicLong invalidations = new AtomicLong();
+
+    QueryCacheMetrics() { }
+
+    public long getHitCount() { return hits.get(); }
+
+    public long getMissCount() { return misses.get(); }
+
+    public long getEvictionCount() { return evictions.get(); }
+
+    public long getInvalidationCount() { return invalidations.get(); }
+
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        invalidations.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "QueryCacheMetrics{hits: " + hits.get()
+            + ", misses: " + misses.get()
+            + ", evictions: " + evictions.get()
+            + ", invalidations: " + invalidations.get() + "}";
+    }
+
+    void recordHit() { hits.incrementAndGet(); }
+
+    void recordMiss() { misses.incrementAndGet(); }
+
+    void recordEviction() { evictions.incrementAndGet(); }
+
+    void recordInvalidation() { invalidations.incrementAndGet(); }
+}
@@ -27,8 +27,6 @@ import java.util.List;
 import java.util.Map;
 
 import com.couchbase.lite.internal.DbContext;
-import com.couchbase.lite.internal.core.C4QueryEnumerator;
-import com.couchbase.lite.internal.fleece.FLArrayIterator;
 import com.couchbase.lite.internal.fleece.FLValue;
 import com.couchbase.lite.internal.fleece.MRoot;
 import com.couchbase.lite.internal.utils.DateUtils;
@@ -45,17 +43,21 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     // member variables
     //---------------------------------------------
     private final ResultSet rs;
-    private final List<FLValue> values;
+    // The handles of the row's values are in a batch of rows fetched by the result set,
+    // starting at firstColumn.
+    private final long[] columns;
+    private final int firstColumn;
     private final long missingColumns;
     private final DbContext context;
 
     //---------------------------------------------
     // constructors
     //---------------------------------------------
-    Result(ResultSet rs, C4QueryEnumerator c4enum, DbContext context) {
+    Result(ResultSet rs, long[] columns, int firstColumn, long missingColumns, DbContext context) {
         this.rs = rs;
-        this.values = extractColumns(c4enum.getColumns());
-        this.missingColumns = c4enum.getMissingColumns();
+        this.columns = columns;
+        this.firstColumn = firstColumn;
+        this.missingColumns = missingColumns;
         this.context = context;
     }
 
@@ -123,8 +125,7 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public int getInt(int index) {
         checkBounds(index);
-        final FLValue flValue = values.get(index);
-        return flValue != null ? (int) flValue.asInt() : 0;
+        return (int) rs.getColumnInt(getHandle(index));
     }
 
     /**
@@ -136,8 +137,7 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public long getLong(int index) {
         checkBounds(index);
-        final FLValue flValue = values.get(index);
-        return flValue != null ? flValue.asInt() : 0L;
+        return rs.getColumnInt(getHandle(index));
     }
 
     /**
@@ -149,8 +149,7 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public float getFloat(int index) {
         checkBounds(index);
-        final FLValue flValue = values.get(index);
-        return flValue != null ? flValue.asFloat() : 0.0F;
+        return rs.getColumnFloat(getHandle(index));
     }
 
     /**
@@ -162,8 +161,7 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public double getDouble(int index) {
         checkBounds(index);
-        final FLValue flValue = values.get(index);
-        return flValue != null ? flValue.asDouble() : 0.0;
+        return rs.getColumnDouble(getHandle(index));
     }
 
     /**
@@ -175,8 +173,7 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public boolean getBoolean(int index) {
         checkBounds(index);
-        final FLValue flValue = values.get(index);
-        return flValue != null && flValue.asBool();
+        return rs.getColumnBool(getHandle(index));
     }
 
     /**
@@ -240,7 +237,10 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public List<Object> toList() {
         final List<Object> array = new ArrayList<>();
-        for (int i = 0; i < count(); i++) { array.add(values.get(i).asObject()); }
+        for (int i = 0; i < count(); i++) {
+            final FLValue value = rs.getColumnValue(getHandle(i));
+            array.add((value == null) ? null : value.asObject());
+        }
         return array;
     }
 
@@ -474,6 +474,24 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     @Override
     public Iterator<String> iterator() { return getKeys().iterator(); }
 
+    //---------------------------------------------
+    // package access
+    //---------------------------------------------
+
+    /**
+     * Gets the values of the result as an object of the codec's type.
+     * The codec reads the values by their column names.
+     *
+     * @param codec the codec that creates the object from the result's values
+     * @param <T>   the type of the object
+     * @return the object
+     */
+    @NonNull
+    <T> T toObject(@NonNull DocumentCodec<T> codec) {
+        Preconditions.assertNotNull(codec, "codec");
+        return codec.decode(this);
+    }
+
     //---------------------------------------------
     // private access
     //---------------------------------------------
@@ -488,18 +506,14 @@ public final class Result implements ArrayInterface, DictionaryInterface, Iterab
     // - (id) fleeceValueToObjectAtIndex: (NSUInteger)index
     // bounds have already been checked
     private Object fleeceValueToObject(int index) {
-        final FLValue value = values.get(index);
+        final FLValue value = rs.getColumnValue(getHandle(index));
         if (value == null) { return null; }
         final MRoot root = new MRoot(context, value, false);
         synchronized (rs.getQuery().getDatabase().getLock()) { return root.asNative(); }
     }
 
-    private List<FLValue> extractColumns(FLArrayIterator columns) {
-        final List<FLValue> values = new ArrayList<>();
-        final int count = rs.getColumnCount();
-        for (int i = 0; i < count; i++) { values.add(columns.getValueAt(i)); }
-        return values;
-    }
+    // bounds have already been checked
+    private long getHandle(int index) { return columns[firstColumn + index]; }
 
     private void checkBounds(int index) {
         final int max = count();
@@ -17,15 +17,21 @@
 package com.couchbase.lite;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import com.couchbase.lite.internal.CBLStatus;
 import com.couchbase.lite.internal.DbContext;
 import com.couchbase.lite.internal.core.C4QueryEnumerator;
+import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.fleece.FleeceBuffer;
+import com.couchbase.lite.internal.fleece.StringInterner;
 import com.couchbase.lite.internal.support.Log;
 import com.couchbase.lite.internal.utils.Preconditions;
 
@@ -35,11 +41,58 @@ import com.couchbase.lite.internal.utils.Preconditions;
  * the {@code Result} objects.
  */
 public class ResultSet implements Iterable<Result> {
+    //---------------------------------------------
+    // Types
+    //---------------------------------------------
+
+    // Stores the value of a column, by handle, at a position in a caller's buffer.
+    private interface ColumnReader {
+        void read(long handle, int pos);
+    }
+
+    // Reads up to length values of a column into a buffer, at offset: one of the readXxxColumn methods.
+    private interface ColumnChunkReader<T> {
+        int read(@NonNull T buffer, int offset, int length) throws CouchbaseLiteException;
+    }
+
+    // Copies a buffer into a new one of the given length: one of the Arrays.copyOf methods.
+    private interface ColumnResizer<T> {
+        @NonNull
+        T resize(@NonNull T buffer, int length);
+    }
+
+    // Reads rows from the enumerator one at a time, as they are needed.
+    private final class ResultIterator implements Iterator<Result> {
+        @Nullable
+        private Result nextResult;
+        private boolean isDone;
+
+        @Override
+        public boolean hasNext() {
+            if ((nextResult == null) && (!isDone)) {
+                nextResult = ResultSet.this.next();
+                isDone = nextResult == null;
+            }
+            return nextResult != null;
+        }
+
+        @Override
+        public Result next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            final Result result = nextResult;
+            nextResult = null;
+            return result;
+        }
+    }
+
     //---------------------------------------------
     // static variables
     //---------------------------------------------
     private static final LogDomain DOMAIN = LogDomain.QUERY;
 
+    // The number of rows fetched from the enumerator with each native call.
+    private static final int BATCH_SIZE = 64;
+
     //---------------------------------------------
     // member variables
     //---------------------------------------------
@@ -50,6 +103,27 @@ public class ResultSet implements Iterable<Result> {
     private final C4QueryEnumerator c4enum;
     private boolean isAllEnumerated;
 
+    // The enumerator's rows are a single Fleece document: decode them in Java, when possible.
+    // The buffer is set while holding the db lock, but Results read it without the lock.
+    @Nullable
+    private volatile FleeceBuffer rowBuffer;
+    // Read and written only while holding the db lock.
+    private boolean isRowBufferChecked;
+
+    // The current batch of rows: the handles of their column values and their missing columns.
+    // Results are views on a batch, so each batch gets new arrays.
+    @Nullable
+    private long[] batchColumns;
+    @Nullable
+    private long[] batchMissingColumns;
+    private int batchStride;
+    private int batchSize;
+    private int batchRow;
+
+    // Strings read by the column readers
+    @Nullable
+    private StringInterner strings;
+
     //---------------------------------------------
     // constructors
     //---------------------------------------------
@@ -85,13 +159,14 @@ public class ResultSet implements Iterable<Result> {
                     Log.w(DOMAIN, "ResultSetAlreadyEnumerated");
                     return null;
                 }
-                else if (!c4enum.next()) {
+                else if ((batchRow >= batchSize) && (!nextBatch())) {
                     Log.i(DOMAIN, "End of query enumeration");
                     isAllEnumerated = true;
                     return null;
                 }
                 else {
-                    return new Result(this, c4enum, context);
+                    final int row = batchRow++;
+                    return new Result(this, batchColumns, row * batchStride, batchMissingColumns[row], context);
                 }
             }
             catch (LiteCoreException e) {
@@ -117,20 +192,147 @@ public class ResultSet implements Iterable<Result> {
         return results;
     }
 
+    //---------------------------------------------
+    // Column readers
+    //
+    // These read the value of a single column from each of the remaining rows,
+    // without creating a Result for each row.  They share the cursor with next():
+    // the rows they read are consumed.
+    //---------------------------------------------
+
+    /**
+     * Read the value of the column at the given index from all of the remaining rows, as longs.
+     * A missing or non-numeric value is read as 0.
+     *
+     * @param index the index of the column, in the query's select.
+     * @return the column's values, one per row.
+     * @throws CouchbaseLiteException on failure to read the rows.
+     */
+    @NonNull
+    public long[] getLongColumn(int index) throws CouchbaseLiteException {
+        return readWholeColumn(
+            new long[BATCH_SIZE],
+            BATCH_SIZE,
+            (buf, off, len) -> readLongColumn(index, buf, off, len),
+            Arrays::copyOf);
+    }
+
+    /**
+     * Read the value of the column at the given index from all of the remaining rows, as doubles.
+     * A missing or non-numeric value is read as 0.0.
+     *
+     * @param index the index of the column, in the query's select.
+     * @return the column's values, one per row.
+     * @throws CouchbaseLiteException on failure to read the rows.
+     */
+    @NonNull
+    public double[] getDoubleColumn(int index) throws CouchbaseLiteException {
+        return readWholeColumn(
+            new double[BATCH_SIZE],
+            BATCH_SIZE,
+            (buf, off, len) -> readDoubleColumn(index, buf, off, len),
+            Arrays::copyOf);
+    }
+
+    /**
+     * Read the value of the column at the given index from all of the remaining rows, as booleans.
+     * A missing value is read as false.
+     *
+     * @param index the index of the column, in the query's select.
+     * @return the column's values, one per row.
+     * @throws CouchbaseLiteException on failure to read the rows.
+     */
+    @NonNull
+    public boolean[] getBooleanColumn(int index) throws CouchbaseLiteException {
+        return readWholeColumn(
+            new boolean[BATCH_SIZE],
+            BATCH_SIZE,
+            (buf, off, len) -> readBooleanColumn(index, buf, off, len),
+            Arrays::copyOf);
+    }
+
+    /**
+     * Read the value of the column at the given index from all of the remaining rows, as Strings.
+     * A missing value, or one that is not a string, is read as null.
+     * Short strings that occur many times are returned as the same String.
+     *
+     * @param index the index of the column, in the query's select.
+     * @return the column's values, one per row.
+     * @throws CouchbaseLiteException on failure to read the rows.
+     */
+    @NonNull
+    public String[] getStringColumn(int index) throws CouchbaseLiteException {
+        return readWholeColumn(
+            new String[BATCH_SIZE],
+            BATCH_SIZE,
+            (buf, off, len) -> readStringColumn(index, buf, off, len),
+            Arrays::copyOf);
+    }
+
+    /**
+     * Read the value of the column at the given index, as longs, from up to length of the remaining rows.
+     * The readXxxColumn methods for the other types work the same way: each reads values as its
+     * getXxxColumn counterpart does.
+     *
+     * @param index  the index of the column, in the query's select.
+     * @param buffer the buffer into which to read the values.
+     * @param offset the position in the buffer of the first value.
+     * @param length the maximum number of values to read.
+     * @return the number of values read: 0 if there are no more rows.
+     * @throws CouchbaseLiteException on failure to read the rows.
+     */
+    public int readLongColumn(int index, @NonNull long[] buffer, int offset, int length)
+        throws CouchbaseLiteException {
+        checkColumnRead(index, buffer.length, offset, length);
+        return readColumn(index, offset, length, (handle, pos) -> buffer[pos] = getColumnInt(handle));
+    }
+
+    /**
+     * Read the value of the column at the given index, as doubles, from up to length of the remaining rows.
+     * See {@link #readLongColumn(int, long[], int, int)}.
+     */
+    public int readDoubleColumn(int index, @NonNull double[] buffer, int offset, int length)
+        throws CouchbaseLiteException {
+        checkColumnRead(index, buffer.length, offset, length);
+        return readColumn(index, offset, length, (handle, pos) -> buffer[pos] = getColumnDouble(handle));
+    }
+
+    /**
+     * Read the value of the column at the given index, as booleans, from up to length of the remaining rows.
+     * See {@link #readLongColumn(int, long[], int, int)}.
+     */
+    public int readBooleanColumn(int index, @NonNull boolean[] buffer, int offset, int length)
+        throws CouchbaseLiteException {
+        checkColumnRead(index, buffer.length, offset, length);
+        return readColumn(index, offset, length, (handle, pos) -> buffer[pos] = getColumnBool(handle));
+    }
+
+    /**
+     * Read the value of the column at the given index, as Strings, from up to length of the remaining rows.
+     * See {@link #readLongColumn(int, long[], int, int)}.
+     */
+    public int readStringColumn(int index, @NonNull String[] buffer, int offset, int length)
+        throws CouchbaseLiteException {
+        checkColumnRead(index, buffer.length, offset, length);
+        return readColumn(index, offset, length, (handle, pos) -> buffer[pos] = getColumnString(handle));
+    }
+
     //---------------------------------------------
     // Iterable implementation
     //---------------------------------------------
 
     /**
      * Return Iterator of Results.
-     * Once called iterator(), next() method return null. Don't call next() and iterator()
+     * The iterator reads rows one at a time, as it reaches them: rows are not held in memory
+     * once they have been returned, unless the caller holds them.
+     * The iterator and next() method share the same cursor. Don't call next() and iterator()
      * together.
      *
      * @return an iterator over the elements in this list in proper sequence
      */
     @NonNull
     @Override
-    public Iterator<Result> iterator() { return allResults().iterator(); }
+    public Iterator<Result> iterator() { return new ResultIterator(); }
 
     //---------------------------------------------
     // Package level access
@@ -161,10 +363,152 @@ public class ResultSet implements Iterable<Result> {
         }
     }
 
+    //---------------------------------------------
+    // Package level access
+    //---------------------------------------------
+
+    // Accessors for the values of a row's columns, by handle.
+    // The primitive accessors decode the values in the row buffer without creating an FLValue.
+
+    @Nullable
+    FLValue getColumnValue(long handle) {
+        if (handle == 0L) { return null; }
+        final FleeceBuffer buffer = rowBuffer;
+        return (buffer == null) ? new FLValue(handle) : buffer.wrap(handle);
+    }
+
+    long getColumnInt(long handle) {
+        if (handle == 0L) { return 0L; }
+        final FleeceBuffer buffer = rowBuffer;
+        return ((buffer != null) && buffer.contains(handle)) ? buffer.getInt(handle) : new FLValue(handle).asInt();
+    }
+
+    float getColumnFloat(long handle) {
+        if (handle == 0L) { return 0.0F; }
+        final FleeceBuffer buffer = rowBuffer;
+        return ((buffer != null) && buffer.contains(handle))
+            ? buffer.getFloat(handle)
+            : new FLValue(handle).asFloat();
+    }
+
+    double getColumnDouble(long handle) {
+        if (handle == 0L) { return 0.0; }
+        final FleeceBuffer buffer = rowBuffer;
+        return ((buffer != null) && buffer.contains(handle))
+            ? buffer.getDouble(handle)
+            : new FLValue(handle).asDouble();
+    }
+
+    // Called while holding the db lock.
+    @Nullable
+    String getColumnString(long handle) {
+        if (handle == 0L) { return null; }
+        final FleeceBuffer buffer = rowBuffer;
+        if ((buffer == null) || (!buffer.contains(handle))) { return new FLValue(handle).asString(); }
+        if (strings == null) { strings = new StringInterner(); }
+        return buffer.getString(handle, strings);
+    }
+
+    boolean getColumnBool(long handle) {
+        if (handle == 0L) { return false; }
+        final FleeceBuffer buffer = rowBuffer;
+        return ((buffer != null) && buffer.contains(handle)) ? buffer.getBool(handle) : new FLValue(handle).asBool();
+    }
+
     //---------------------------------------------
     // Private level access
     //---------------------------------------------
 
+    // Read a column, in chunks, into a buffer that grows as needed.
+    // The capacity is the length of the initial buffer.
+    @NonNull
+    private <T> T readWholeColumn(
+        @NonNull T column,
+        int capacity,
+        @NonNull ColumnChunkReader<T> reader,
+        @NonNull ColumnResizer<T> resizer)
+        throws CouchbaseLiteException {
+        int n = 0;
+        int read;
+        while ((read = reader.read(column, n, capacity - n)) > 0) {
+            n += read;
+            if (n >= capacity) {
+                capacity *= 2;
+                column = resizer.resize(column, capacity);
+            }
+        }
+        return (n == capacity) ? column : resizer.resize(column, n);
+    }
+
+    private int readColumn(int index, int offset, int length, @NonNull ColumnReader reader)
+        throws CouchbaseLiteException {
+        Preconditions.assertNotNull(query, "query");
+
+        synchronized (getDbLock()) {
+            if ((c4enum == null) || isAllEnumerated) { return 0; }
+
+            int n = 0;
+            try {
+                while (n < length) {
+                    if ((batchRow >= batchSize) && (!nextBatch())) {
+                        isAllEnumerated = true;
+                        break;
+                    }
+                    reader.read(batchColumns[(batchRow++ * batchStride) + index], offset + n++);
+                }
+            }
+            catch (LiteCoreException e) {
+                throw CBLStatus.convertException(e);
+            }
+
+            return n;
+        }
+    }
+
+    private void checkColumnRead(int index, int bufferLength, int offset, int length) {
+        final int nColumns = getColumnCount();
+        if ((index < 0) || (index >= nColumns)) {
+            throw new ArrayIndexOutOfBoundsException("index " + index + " must be between 0 and " + nColumns);
+        }
+        if ((offset < 0) || (length < 0) || (offset + length > bufferLength)) {
+            throw new ArrayIndexOutOfBoundsException(
+                "offset " + offset + " and length " + length + " must be within the buffer: " + bufferLength);
+        }
+    }
+
+    // Called while holding the db lock.
+    private boolean nextBatch() throws LiteCoreException {
+        final int nColumns = Math.max(getColumnCount(), 1);
+        final long[] columns = new long[BATCH_SIZE * nColumns];
+        final long[] missingColumns = new long[BATCH_SIZE];
+
+        final int n = c4enum.nextBatch(columns, missingColumns);
+        if (n <= 0) { return false; }
+
+        batchColumns = columns;
+        batchMissingColumns = missingColumns;
+        batchStride = nColumns;
+        batchSize = n;
+        batchRow = 0;
+
+        if (!isRowBufferChecked) { checkRowBuffer(columns, n * nColumns); }
+
+        return true;
+    }
+
+    // The enumerator's rows are a single Fleece document: find it from any of the column values.
+    private void checkRowBuffer(@NonNull long[] columns, int n) {
+        for (int i = 0; i < n; i++) {
+            final long handle = columns[i];
+            if (handle == 0L) { continue; }
+
+            final Database db = query.getDatabase();
+            rowBuffer = FleeceBuffer.forValue(new FLValue(handle), (db == null) ? null : db.getFLSharedKeys());
+            isRowBufferChecked = true;
+            return;
+        }
+    }
+
     private Object getDbLock() {
         final AbstractQuery q = query;
         if (q != null) {
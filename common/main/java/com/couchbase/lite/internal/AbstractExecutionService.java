@@ -20,15 +20,22 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.WeakHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.couchbase.lite.LogDomain;
 import com.couchbase.lite.internal.support.Log;
@@ -46,9 +53,20 @@ public abstract class AbstractExecutionService implements ExecutionService {
     private static final LogDomain DOMAIN = LogDomain.DATABASE;
     private static final int DUMP_INTERVAL_MS = 2000; // 2 seconds
 
+    // the longest time a caller blocks waiting for space in a full concurrent executor
+    @VisibleForTesting
+    public static final long MAX_BLOCK_WAIT_MS = 5000; // 5 seconds
+
     @VisibleForTesting
     public static final int MIN_CAPACITY = 64;
 
+    // the default bound on the concurrent executor's pending queue
+    public static final int MAX_PENDING_TASKS = 1024;
+
+    // the maximum number of tasks a serial executor runs before yielding its thread
+    @VisibleForTesting
+    public static final int MAX_BATCH_SIZE = 16;
+
 
     private static final Object DUMP_LOCK = new Object();
 
@@ -70,7 +88,11 @@ public abstract class AbstractExecutionService implements ExecutionService {
         @NonNull
         private final Runnable task;
 
-        private final long createdAt = System.currentTimeMillis();
+        @Nullable
+        private final ExecutorMetrics metrics;
+
+        // all times are from System.nanoTime()
+        private final long createdAt = System.nanoTime();
         private long startedAt;
         private long finishedAt;
         private long completedAt;
@@ -78,10 +100,15 @@ public abstract class AbstractExecutionService implements ExecutionService {
         @Nullable
         private volatile Runnable onComplete;
 
-        InstrumentedTask(@NonNull Runnable task) { this(task, null); }
+        // link to the next task, when this task is queued on a TaskQueue
+        @Nullable
+        volatile InstrumentedTask next;
+
+        InstrumentedTask(@NonNull Runnable task, @Nullable ExecutorMetrics metrics) { this(task, metrics, null); }
 
-        InstrumentedTask(@NonNull Runnable task, @Nullable Runnable onComplete) {
+        InstrumentedTask(@NonNull Runnable task, @Nullable ExecutorMetrics metrics, @Nullable Runnable onComplete) {
             this.task = task;
+            this.metrics = metrics;
             this.onComplete = onComplete;
         }
 
@@ -90,11 +117,14 @@ public abstract class AbstractExecutionService implements ExecutionService {
         @SuppressWarnings("PMD.AvoidCatchingThrowable")
         public void run() {
             try {
-                startedAt = System.currentTimeMillis();
+                startedAt = System.nanoTime();
                 task.run();
-                finishedAt = System.currentTimeMillis();
+                finishedAt = System.nanoTime();
+                if (metrics != null) { metrics.recordTask(createdAt, startedAt, finishedAt); }
             }
             catch (Throwable t) {
+                finishedAt = System.nanoTime();
+                if (metrics != null) { metrics.recordFailure(createdAt, startedAt, finishedAt); }
                 Log.w(
                     LogDomain.DATABASE,
                     "Uncaught exception on thread " + Thread.currentThread().getName() + " in " + this,
@@ -105,7 +135,7 @@ public abstract class AbstractExecutionService implements ExecutionService {
                 final Runnable completionTask = onComplete;
                 if (completionTask != null) { completionTask.run(); }
             }
-            completedAt = System.currentTimeMillis();
+            completedAt = System.nanoTime();
         }
 
         @NonNull
@@ -120,7 +150,12 @@ public abstract class AbstractExecutionService implements ExecutionService {
      * (probably some application-wide executor: the Async Task's on Android).
      * <br>
      * If the underlying executor is low on resources, this executor reverts
-     * to serial execution, using an unbounded pending queue.
+     * to serial execution, using a pending queue.  The pending queue is bounded
+     * (<code>setPendingTaskLimit</code>) and the executor's <code>OverflowPolicy</code>
+     * determines what happens to a new task when the queue is full: the caller can be
+     * blocked until there is space, the task can be rejected with an <code>ExecutorFullException</code>,
+     * or, if it is a <code>CoalescingTask</code> and an equivalent task is already waiting,
+     * the task can be dropped.
      * <br>
      * If the executor is stopped while there are unscheduled pending tasks
      * (in the pendingTask queue), all of those tasks are simply discarded.
@@ -141,7 +176,7 @@ public abstract class AbstractExecutionService implements ExecutionService {
      * to restart the queue.
      * </nl>
      */
-    private static class ConcurrentExecutor implements CloseableExecutor {
+    private static class ConcurrentExecutor implements CloseableExecutor, NonBlockingExecutor {
         @NonNull
         private final ThreadPoolExecutor executor;
 
@@ -160,9 +195,20 @@ public abstract class AbstractExecutionService implements ExecutionService {
         @GuardedBy("this")
         private boolean needsRestart;
 
-        ConcurrentExecutor(@NonNull ThreadPoolExecutor executor) {
+        @GuardedBy("this")
+        private int maxPendingTasks = MAX_PENDING_TASKS;
+
+        @GuardedBy("this")
+        @NonNull
+        private OverflowPolicy overflowPolicy = OverflowPolicy.COALESCE;
+
+        @NonNull
+        private final ExecutorMetrics metrics;
+
+        ConcurrentExecutor(@NonNull ThreadPoolExecutor executor, @NonNull ExecutorMetrics metrics) {
             Preconditions.assertNotNull(executor, "executor");
             this.executor = executor;
+            this.metrics = metrics;
         }
 
         /**
@@ -171,17 +217,32 @@ public abstract class AbstractExecutionService implements ExecutionService {
          * particularly once it fails back to using the pending task queue.
          * If there is insufficient room to schedule the task, safely, on the underlying
          * executor, the task is added to the pendingTask queue and executed when space
-         * is available.
+         * is available.  If the pendingTask queue is full, the overflow policy applies.
          * This method may throw a <code>RejectedExecutionException</code> if the underlying
          * executor's resources are completely exhausted even though <code>spaceAvailable</code>
          * returns true.
          *
          * @param task a task for concurrent execution.
          * @throws ExecutorClosedException    if the executor has been stopped
+         * @throws ExecutorFullException      if the pending queue is full and the policy does not block
          * @throws RejectedExecutionException if the underlying executor rejects the task
          */
         @Override
-        public void execute(@NonNull Runnable task) {
+        public void execute(@NonNull Runnable task) { execute(task, true); }
+
+        /**
+         * Schedule a task for concurrent execution, as <code>execute</code> does, except that
+         * if the pending queue is full, this method throws an ExecutorFullException, whatever the policy.
+         *
+         * @param task a task for concurrent execution.
+         * @throws ExecutorClosedException    if the executor has been stopped
+         * @throws ExecutorFullException      if the pending queue is full
+         * @throws RejectedExecutionException if the underlying executor rejects the task
+         */
+        @Override
+        public void executeWithoutBlocking(@NonNull Runnable task) { execute(task, false); }
+
+        private void execute(@NonNull Runnable task, boolean canBlock) {
             Preconditions.assertNotNull(task, "task");
 
             final int pendingTaskCount;
@@ -191,15 +252,26 @@ public abstract class AbstractExecutionService implements ExecutionService {
                 if (spaceAvailable()) {
                     if (needsRestart) { restartQueue(); }
 
-                    executeTask(new InstrumentedTask(task, this::finishTask));
+                    executeTask(new InstrumentedTask(task, metrics, this::finishTask));
 
                     return;
                 }
 
-                pendingTasks.add(new InstrumentedTask(task));
+                // the task is equivalent to one that is already waiting
+                if (!admitPendingTask(task, canBlock)) { pendingTaskCount = -1; }
+                else {
+                    pendingTasks.add(new InstrumentedTask(task, metrics));
+                    metrics.recordOverflow();
 
-                pendingTaskCount = pendingTasks.size();
-                if (needsRestart || (pendingTaskCount == 1)) { restartQueue(); }
+                    pendingTaskCount = pendingTasks.size();
+                    if (needsRestart || (pendingTaskCount == 1)) { restartQueue(); }
+                }
+            }
+
+            // tell the producer, outside the lock, that its task has been dropped
+            if (pendingTaskCount < 0) {
+                ((CoalescingTask) task).onCoalesced();
+                return;
             }
 
             Log.w(DOMAIN, "Parallel executor overflow: " + pendingTaskCount);
@@ -224,6 +296,8 @@ public abstract class AbstractExecutionService implements ExecutionService {
                 if (stopLatch == null) {
                     pendingTasks.clear();
                     stopLatch = new CountDownLatch(1);
+                    // release any blocked callers
+                    notifyAll();
                 }
                 if (running <= 0) { return true; }
                 latch = stopLatch;
@@ -235,6 +309,20 @@ public abstract class AbstractExecutionService implements ExecutionService {
             return false;
         }
 
+        /**
+         * Bound the pendingTask queue.
+         *
+         * @param maxTasks the maximum number of tasks in the queue
+         * @param policy   what to do with a new task, when the queue is full
+         */
+        synchronized void setPendingTaskLimit(int maxTasks, @NonNull OverflowPolicy policy) {
+            Preconditions.assertThat(maxTasks, "max tasks must be > 0", x -> x > 0);
+            Preconditions.assertNotNull(policy, "overflow policy");
+            maxPendingTasks = maxTasks;
+            overflowPolicy = policy;
+            notifyAll();
+        }
+
         void finishTask() {
             final CountDownLatch latch;
             synchronized (this) {
@@ -254,6 +342,9 @@ public abstract class AbstractExecutionService implements ExecutionService {
                 // completing task is head of queue: remove it
                 pendingTasks.remove();
 
+                // there may be callers waiting for space in the queue
+                if (overflowPolicy != OverflowPolicy.REJECT) { notifyAll(); }
+
                 // run as many tasks as possible
                 try {
                     while (true) {
@@ -276,6 +367,57 @@ public abstract class AbstractExecutionService implements ExecutionService {
             }
         }
 
+        // Apply the overflow policy, if the pending queue is full.
+        // Return false if the task should be dropped.
+        @GuardedBy("this")
+        private boolean admitPendingTask(@NonNull Runnable task, boolean canBlock) {
+            long deadline = 0;
+            while (pendingTasks.size() >= maxPendingTasks) {
+                if ((overflowPolicy == OverflowPolicy.COALESCE) && hasEquivalentPendingTask(task)) { return false; }
+
+                // a caller that cannot block is rejected instead
+                if ((overflowPolicy == OverflowPolicy.REJECT) || (!canBlock)) {
+                    metrics.recordRejection();
+                    throw new ExecutorFullException("Executor is full: " + pendingTasks.size());
+                }
+
+                // Must not be called from a task running on this executor.
+                // The caller may be a LiteCore thread: don't block it forever.
+                final long now = System.currentTimeMillis();
+                if (deadline <= 0) { deadline = now + MAX_BLOCK_WAIT_MS; }
+                else if (now >= deadline) {
+                    metrics.recordRejection();
+                    throw new ExecutorFullException("Timed out waiting for space in executor");
+                }
+                try { wait(deadline - now); }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExecutorFullException("Interrupted waiting for space in executor", e);
+                }
+                if (stopLatch != null) { throw new ExecutorClosedException("Executor has been stopped"); }
+            }
+            return true;
+        }
+
+        // Whether a task with the same coalescing key as the passed task is waiting to run.
+        // Unless the queue is stalled, its head has already been handed to the underlying executor.
+        @GuardedBy("this")
+        private boolean hasEquivalentPendingTask(@NonNull Runnable task) {
+            if (!(task instanceof CoalescingTask)) { return false; }
+            final Object key = ((CoalescingTask) task).getCoalescingKey();
+
+            boolean waiting = needsRestart;
+            for (InstrumentedTask pendingTask: pendingTasks) {
+                if (waiting
+                    && (pendingTask.task instanceof CoalescingTask)
+                    && key.equals(((CoalescingTask) pendingTask.task).getCoalescingKey())) {
+                    return true;
+                }
+                waiting = true;
+            }
+            return false;
+        }
+
         // assert: queue is not empty.
         private void restartQueue() {
             final InstrumentedTask task = pendingTasks.peek();
@@ -299,6 +441,7 @@ public abstract class AbstractExecutionService implements ExecutionService {
                 running++;
             }
             catch (RejectedExecutionException e) {
+                metrics.recordRejection();
                 dumpExecutorState(newTask, e);
                 throw e;
             }
@@ -327,32 +470,96 @@ public abstract class AbstractExecutionService implements ExecutionService {
     }
 
     /**
-     * Serial execution, patterned after AsyncTask's executor.
-     * Tasks are queued on an unbounded queue and executed one at a time
-     * on an underlying executor: the head of the queue is the currently running task.
-     * Since this executor can have at most two tasks scheduled on the underlying
-     * executor, ensuring space on that executor makes it unlikely that
-     * a serial executor will refuse a task for execution.
+     * A lock-free, intrusive, multi-producer/single-consumer queue of InstrumentedTasks.
+     * Patterned after Dmitry Vyukov's MPSC node-based queue: producers
+     * swap themselves in as the tail, the single consumer follows <code>next</code> links
+     * from the head.  Since tasks are their own queue nodes, enqueuing allocates nothing.
+     * <br>
+     * Between a producer's swap and its link, the queue is momentarily disconnected:
+     * <code>poll</code> may return null even though a task has been enqueued.
+     * Clients must keep count of enqueued tasks in order to tell the difference.
      */
-    private static class SerialExecutor implements CloseableExecutor {
+    private static final class TaskQueue {
         @NonNull
-        private final ThreadPoolExecutor executor;
+        private final AtomicReference<InstrumentedTask> tail;
 
-        @GuardedBy("this")
+        // only the consumer ever touches the head
         @NonNull
-        private final Queue<InstrumentedTask> pendingTasks = new LinkedList<>();
+        private InstrumentedTask head;
+
+        TaskQueue() {
+            head = new InstrumentedTask(() -> { }, null);
+            tail = new AtomicReference<>(head);
+        }
+
+        // Safe from any thread.
+        void add(@NonNull InstrumentedTask task) {
+            tail.getAndSet(task).next = task;
+        }
+
+        // Consumer only.
+        @Nullable
+        InstrumentedTask poll() {
+            final InstrumentedTask next = head.next;
+            if (next == null) { return null; }
+            head = next;
+            return next;
+        }
+
+        // Best effort: diagnostics only.
+        @NonNull
+        List<InstrumentedTask> snapshot() {
+            final List<InstrumentedTask> tasks = new ArrayList<>();
+            InstrumentedTask task = head.next;
+            while (task != null) {
+                tasks.add(task);
+                task = task.next;
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Serial execution.
+     * Tasks are queued on an unbounded, lock-free queue and executed in order,
+     * in batches, by a single drain task running on an underlying executor.
+     * The drain task is scheduled when the first task is added to an empty queue.
+     * It runs up to <code>MAX_BATCH_SIZE</code> tasks and then, if there are more,
+     * reschedules itself, so that a busy serial executor doesn't monopolize a thread
+     * in the underlying executor.  The drain task takes no lock: <code>execute</code> takes
+     * this executor's lock, briefly, so that a task cannot be queued once <code>stop</code>
+     * has been called.  Since this executor has at most one task scheduled on
+     * the underlying executor, it is unlikely that it will ever be refused execution.
+     * <br>
+     * If the underlying executor does refuse the drain task, the queue is stalled and
+     * <code>needsRestart</code> is set true.  Subsequent calls to <code>execute</code>
+     * will make a best-effort attempt to restart the queue.
+     */
+    private static class SerialExecutor implements CloseableExecutor, Runnable {
+        @NonNull
+        private final Executor executor;
+
+        @NonNull
+        private final TaskQueue pendingTasks = new TaskQueue();
+
+        // the number of tasks that have been enqueued but have not completed
+        @NonNull
+        private final AtomicInteger pendingTaskCount = new AtomicInteger();
+
+        @NonNull
+        private final AtomicBoolean needsRestart = new AtomicBoolean();
 
         // a non-null stop latch is the flag that this executor has been stopped
-        @GuardedBy("this")
         @Nullable
-        private CountDownLatch stopLatch;
+        private volatile CountDownLatch stopLatch;
 
-        @GuardedBy("this")
-        private boolean needsRestart;
+        @NonNull
+        private final ExecutorMetrics metrics;
 
-        SerialExecutor(@NonNull ThreadPoolExecutor executor) {
+        SerialExecutor(@NonNull Executor executor, @NonNull ExecutorMetrics metrics) {
             Preconditions.assertNotNull(executor, "executor");
             this.executor = executor;
+            this.metrics = metrics;
         }
 
         /**
@@ -366,13 +573,17 @@ public abstract class AbstractExecutionService implements ExecutionService {
         public void execute(@NonNull Runnable task) {
             Preconditions.assertNotNull(task, "task");
 
+            final InstrumentedTask newTask = new InstrumentedTask(task, metrics);
+
+            // A task must not be queued after stop has seen an empty queue: it would never be waited for.
+            final boolean wasEmpty;
             synchronized (this) {
                 if (stopLatch != null) { throw new ExecutorClosedException("Executor has been stopped"); }
-
-                pendingTasks.add(new InstrumentedTask(task, this::scheduleNext));
-
-                if (needsRestart || (pendingTasks.size() == 1)) { executeTask(null); }
+                pendingTasks.add(newTask);
+                wasEmpty = pendingTaskCount.getAndIncrement() == 0;
             }
+
+            if (wasEmpty || needsRestart.compareAndSet(true, false)) { scheduleDrain(null); }
         }
 
         /**
@@ -389,40 +600,72 @@ public abstract class AbstractExecutionService implements ExecutionService {
             Preconditions.assertThat(timeout, "timeout must be >= 0", x -> x >= 0);
             Preconditions.assertNotNull(unit, "time unit");
 
-            final CountDownLatch latch;
+            CountDownLatch latch;
             synchronized (this) {
-                if (stopLatch == null) { stopLatch = new CountDownLatch(1); }
-                if (pendingTasks.size() <= 0) { return true; }
                 latch = stopLatch;
+                if (latch == null) {
+                    latch = new CountDownLatch(1);
+                    stopLatch = latch;
+                }
             }
 
+            if (pendingTaskCount.get() <= 0) { return true; }
+
             try { return latch.await(timeout, unit); }
             catch (InterruptedException ignore) { }
 
             return false;
         }
 
-        // Called on completion of the task at the head of the pending queue.
-        private void scheduleNext() {
-            final CountDownLatch latch;
-            synchronized (this) {
-                executeTask(pendingTasks.remove());
-                latch = (pendingTasks.size() > 0) ? null : stopLatch;
+        /**
+         * The drain task: run a batch of tasks from the head of the queue.
+         * Only one drain task is ever scheduled at a time: it is the only consumer.
+         */
+        @Override
+        public void run() {
+            InstrumentedTask task = null;
+            boolean more = true;
+            try {
+                for (int n = 0; more && (n < MAX_BATCH_SIZE); n++) {
+                    task = nextTask();
+                    try { task.run(); }
+                    finally { more = finishTask(); }
+                }
+            }
+            finally {
+                if (more) { scheduleDrain(task); }
             }
+        }
+
+        @NonNull
+        @Override
+        public String toString() { return "SerialExecutor{" + pendingTaskCount.get() + "}"; }
 
+        // The pending count says there is a task in the queue: it may just not be linked yet.
+        @NonNull
+        private InstrumentedTask nextTask() {
+            while (true) {
+                final InstrumentedTask task = pendingTasks.poll();
+                if (task != null) { return task; }
+                Thread.yield();
+            }
+        }
+
+        // Return true if there are more tasks to run
+        private boolean finishTask() {
+            if (pendingTaskCount.decrementAndGet() > 0) { return true; }
+
+            final CountDownLatch latch = stopLatch;
             if (latch != null) { latch.countDown(); }
+
+            return false;
         }
 
-        @GuardedBy("this")
-        private void executeTask(@Nullable InstrumentedTask prevTask) {
-            final InstrumentedTask nextTask = pendingTasks.peek();
-            if (nextTask == null) { return; }
-            try {
-                executor.execute(nextTask);
-                needsRestart = false;
-            }
+        private void scheduleDrain(@Nullable InstrumentedTask prevTask) {
+            try { executor.execute(this); }
             catch (RejectedExecutionException e) {
-                needsRestart = true;
+                metrics.recordRejection();
+                needsRestart.set(true);
                 dumpExecutorState(e, prevTask);
             }
         }
@@ -430,20 +673,16 @@ public abstract class AbstractExecutionService implements ExecutionService {
         private void dumpExecutorState(@NonNull RejectedExecutionException ex, @Nullable InstrumentedTask prev) {
             if (throttled()) { return; }
 
-            dumpServiceState(executor, "size: " + pendingTasks.size(), ex);
+            dumpServiceState(executor, "size: " + pendingTaskCount.get(), ex);
 
             Log.w(DOMAIN, "==== Serial Executor status: " + this);
-            if (needsRestart) { Log.w(DOMAIN, "= stalled"); }
+            if (needsRestart.get()) { Log.w(DOMAIN, "= stalled"); }
 
             if (prev != null) { Log.w(DOMAIN, "== Previous task: " + prev, prev.origin); }
 
-            if (pendingTasks.isEmpty()) { Log.w(DOMAIN, "== Queue is empty"); }
+            final List<InstrumentedTask> waiting = pendingTasks.snapshot();
+            if (waiting.isEmpty()) { Log.w(DOMAIN, "== Queue is empty"); }
             else {
-                final ArrayList<InstrumentedTask> waiting = new ArrayList<>(pendingTasks);
-
-                final InstrumentedTask current = waiting.remove(0);
-                Log.w(DOMAIN, "== Current task: " + current, current.origin);
-
                 Log.w(DOMAIN, "== Pending tasks: " + waiting.size());
                 int n = 0;
                 for (InstrumentedTask t: waiting) { Log.w(DOMAIN, "@" + (++n) + ": " + t, t.origin); }
@@ -451,6 +690,149 @@ public abstract class AbstractExecutionService implements ExecutionService {
         }
     }
 
+
+    /**
+     * An execution lane.
+     * Lanes share the base executor through a weighted round-robin scheduler (deficit round robin,
+     * with a cost of one per task).  A lane that has tasks to run, and fewer than its maximum concurrency
+     * running, is on the ready queue.  Each time it reaches the head of that queue, it may submit
+     * up to <code>weight</code> tasks to the base executor before going to the back of the queue.
+     * All lanes together never have more tasks on the base executor than it has threads: a busy lane,
+     * therefore, cannot fill the base executor's queue and starve the others.
+     * <br>
+     * If the base executor refuses a task, the task stays at the head of its lane.  The next
+     * call to <code>execute</code> on any lane, or the completion of any lane task, retries it.
+     */
+    private final class Lane implements ExecutionLane {
+        @NonNull
+        private final String name;
+        private final int weight;
+        private final int maxConcurrency;
+        @NonNull
+        private final ExecutorMetrics metrics;
+        @NonNull
+        private final AtomicInteger serialExecutorId = new AtomicInteger();
+
+        @GuardedBy("laneLock")
+        @NonNull
+        private final Queue<InstrumentedTask> pendingTasks = new ArrayDeque<>();
+
+        @GuardedBy("laneLock")
+        private int running;
+
+        // the number of tasks this lane may submit before yielding to the next ready lane
+        @GuardedBy("laneLock")
+        private int credit;
+
+        @GuardedBy("laneLock")
+        private boolean ready;
+
+        // a non-null stop latch is the flag that this lane has been stopped
+        @GuardedBy("laneLock")
+        @Nullable
+        private CountDownLatch stopLatch;
+
+        Lane(@NonNull String name, int weight, int maxConcurrency, @NonNull ExecutorMetrics metrics) {
+            this.name = name;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.metrics = metrics;
+        }
+
+        /**
+         * Schedule a task for execution in this lane.
+         *
+         * @param task a task for execution.
+         * @throws ExecutorClosedException if the lane has been stopped
+         */
+        @Override
+        public void execute(@NonNull Runnable task) { submit(task, false); }
+
+        /**
+         * Stop the lane.
+         * If this call returns false, the lane has *not* yet stopped.
+         * It will continue to run tasks from its queue until all have completed.
+         * The lane's serial executors should be stopped first: a stopped lane still runs
+         * the tasks that were already queued on them, but accepts no new serial executors.
+         *
+         * @param timeout time to wait for shutdown
+         * @param unit    time unit for shutdown wait
+         * @return true if all queued and running tasks completed before the shutdown
+         */
+        @Override
+        public boolean stop(long timeout, @NonNull TimeUnit unit) {
+            Preconditions.assertThat(timeout, "timeout must be >= 0", x -> x >= 0);
+            Preconditions.assertNotNull(unit, "time unit");
+
+            final CountDownLatch latch;
+            synchronized (laneLock) {
+                if (stopLatch == null) { stopLatch = new CountDownLatch(1); }
+                if ((running <= 0) && pendingTasks.isEmpty()) { return true; }
+                latch = stopLatch;
+            }
+
+            try { return latch.await(timeout, unit); }
+            catch (InterruptedException ignore) { }
+
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public CloseableExecutor getSerialExecutor() {
+            synchronized (laneLock) {
+                if (stopLatch != null) { throw new ExecutorClosedException("Lane has been stopped: " + name); }
+            }
+            // A serial executor submits only its own drain task: allow it, even after the lane
+            // has been stopped, so that the tasks already queued on the serial executor still run.
+            return createSerialExecutor(
+                task -> submit(task, true),
+                name + " serial #" + serialExecutorId.incrementAndGet());
+        }
+
+        @NonNull
+        @Override
+        public String toString() { return "Lane{" + name + ", " + weight + ", " + maxConcurrency + "}"; }
+
+        void finishTask() {
+            final CountDownLatch latch;
+            synchronized (laneLock) {
+                running--;
+                runningLaneTasks--;
+
+                makeReady();
+                dispatchLaneTasks();
+
+                if ((running > 0) || (!pendingTasks.isEmpty())) { return; }
+                latch = stopLatch;
+            }
+
+            if (latch != null) { latch.countDown(); }
+        }
+
+        private void submit(@NonNull Runnable task, boolean isSerialDrain) {
+            Preconditions.assertNotNull(task, "task");
+
+            synchronized (laneLock) {
+                if ((stopLatch != null) && (!isSerialDrain)) {
+                    throw new ExecutorClosedException("Lane has been stopped: " + name);
+                }
+
+                pendingTasks.add(new InstrumentedTask(task, metrics, this::finishTask));
+                makeReady();
+                dispatchLaneTasks();
+            }
+        }
+
+        @GuardedBy("laneLock")
+        private void makeReady() {
+            if (ready || (running >= maxConcurrency) || pendingTasks.isEmpty()) { return; }
+            ready = true;
+            credit = weight;
+            readyLanes.add(this);
+        }
+    }
+
     //---------------------------------------------
     // Class methods
     //---------------------------------------------
@@ -494,12 +876,39 @@ public abstract class AbstractExecutionService implements ExecutionService {
     @NonNull
     private final ConcurrentExecutor concurrentExecutor;
 
+    @NonNull
+    private final ExecutorMetrics concurrentMetrics = new ExecutorMetrics("concurrent");
+    @NonNull
+    private final ExecutorMetrics mainMetrics = new ExecutorMetrics("main");
+
+    // Serial executors and lanes come and go: don't keep their metrics around after they are gone.
+    @GuardedBy("executorMetrics")
+    @NonNull
+    private final Map<CloseableExecutor, ExecutorMetrics> executorMetrics = new WeakHashMap<>();
+    @NonNull
+    private final AtomicInteger serialExecutorId = new AtomicInteger();
+
+    // Lane scheduling: all lanes share this lock
+    @NonNull
+    private final Object laneLock = new Object();
+
+    // the maximum number of lane tasks on the base executor, at any time
+    private final int maxLaneTasks;
+
+    @GuardedBy("laneLock")
+    @NonNull
+    private final Deque<Lane> readyLanes = new ArrayDeque<>();
+
+    @GuardedBy("laneLock")
+    private int runningLaneTasks;
+
     //---------------------------------------------
     // Constructor
     //---------------------------------------------
     protected AbstractExecutionService(@NonNull ThreadPoolExecutor baseExecutor) {
         this.baseExecutor = baseExecutor;
-        concurrentExecutor = new ConcurrentExecutor(baseExecutor);
+        concurrentExecutor = new ConcurrentExecutor(baseExecutor, concurrentMetrics);
+        maxLaneTasks = Math.max(1, baseExecutor.getMaximumPoolSize());
     }
 
     //---------------------------------------------
@@ -507,12 +916,65 @@ public abstract class AbstractExecutionService implements ExecutionService {
     //---------------------------------------------
     @NonNull
     @Override
-    public CloseableExecutor getSerialExecutor() { return new SerialExecutor(baseExecutor); }
+    public CloseableExecutor getSerialExecutor() {
+        return createSerialExecutor(baseExecutor, "serial #" + serialExecutorId.incrementAndGet());
+    }
 
     @NonNull
     @Override
     public CloseableExecutor getConcurrentExecutor() { return concurrentExecutor; }
 
+    @Override
+    public void setConcurrentExecutorLimit(int maxPendingTasks, @NonNull OverflowPolicy policy) {
+        concurrentExecutor.setPendingTaskLimit(maxPendingTasks, policy);
+    }
+
+    @NonNull
+    @Override
+    public ExecutionLane createLane(@NonNull String name, int weight, int maxConcurrency) {
+        Preconditions.assertNotNull(name, "name");
+        Preconditions.assertThat(weight, "weight must be > 0", x -> x > 0);
+        Preconditions.assertThat(maxConcurrency, "max concurrency must be > 0", x -> x > 0);
+
+        final ExecutorMetrics metrics = new ExecutorMetrics("lane " + name);
+        final Lane lane = new Lane(name, weight, maxConcurrency, metrics);
+        synchronized (executorMetrics) { executorMetrics.put(lane, metrics); }
+        return lane;
+    }
+
+    @NonNull
+    @Override
+    public List<ExecutorMetrics> getMetrics() {
+        final List<ExecutorMetrics> metrics = new ArrayList<>();
+        metrics.add(concurrentMetrics);
+        metrics.add(mainMetrics);
+        synchronized (executorMetrics) { metrics.addAll(executorMetrics.values()); }
+        return metrics;
+    }
+
+    //---------------------------------------------
+    // Protected methods
+    //---------------------------------------------
+
+    /**
+     * Wrap the platform's main executor so that its tasks are included in the metrics.
+     * Subclasses should call this with the executor that they return from <code>getMainExecutor</code>.
+     *
+     * @param mainExecutor the platform main executor
+     * @return an executor that runs tasks on the main executor and records their latencies
+     */
+    @NonNull
+    protected final Executor instrumentMainExecutor(@NonNull Executor mainExecutor) {
+        Preconditions.assertNotNull(mainExecutor, "main executor");
+        return task -> {
+            try { mainExecutor.execute(new InstrumentedTask(task, mainMetrics)); }
+            catch (RejectedExecutionException e) {
+                mainMetrics.recordRejection();
+                throw e;
+            }
+        };
+    }
+
 
     //---------------------------------------------
     // Package-private methods
@@ -520,5 +982,48 @@ public abstract class AbstractExecutionService implements ExecutionService {
 
     @VisibleForTesting
     void dumpExecutorState() { concurrentExecutor.dumpExecutorState(null, new RejectedExecutionException()); }
-}
 
+    //---------------------------------------------
+    // Private methods
+    //---------------------------------------------
+
+    @NonNull
+    private SerialExecutor createSerialExecutor(@NonNull Executor executor, @NonNull String name) {
+        final ExecutorMetrics metrics = new ExecutorMetrics(name);
+        final SerialExecutor serialExecutor = new SerialExecutor(executor, metrics);
+        synchronized (executorMetrics) { executorMetrics.put(serialExecutor, metrics); }
+        return serialExecutor;
+    }
+
+    // Submit tasks from ready lanes, in turn, until the base executor has as many lane tasks as it has threads.
+    @GuardedBy("laneLock")
+    private void dispatchLaneTasks() {
+        while (runningLaneTasks < maxLaneTasks) {
+            final Lane lane = readyLanes.peek();
+            if (lane == null) { return; }
+
+            // a lane is only ready if it has pending tasks
+            final InstrumentedTask task = lane.pendingTasks.peek();
+            try { baseExecutor.execute(task); }
+            catch (RejectedExecutionException e) {
+                lane.metrics.recordRejection();
+                if (!throttled()) { dumpServiceState(baseExecutor, "lane: " + lane, e); }
+                return;
+            }
+
+            lane.pendingTasks.remove();
+            lane.running++;
+            runningLaneTasks++;
+
+            if (lane.pendingTasks.isEmpty() || (lane.running >= lane.maxConcurrency)) {
+                readyLanes.remove();
+                lane.ready = false;
+            }
+            else if (--lane.credit <= 0) {
+                readyLanes.remove();
+                lane.credit = lane.weight;
+                readyLanes.add(lane);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.couchbase.lite.internal;
 
 import android.support.annotation.NonNull;
 
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -30,12 +31,27 @@ public interface ExecutionService {
      */
     interface CloseableExecutor extends Executor {
         class ExecutorClosedException extends RejectedExecutionException {
+            private static final long serialVersionUID = -4851740463151440627L;
+
             public ExecutorClosedException() {}
             public ExecutorClosedException(String msg) { super(msg); }
             public ExecutorClosedException(String msg, Throwable err) { super(msg, err); }
             public ExecutorClosedException(Throwable err) { super(err); }
         }
 
+        /**
+         * Thrown by a bounded executor that is full.
+         * This is a signal to the caller that it should back off and retry, later.
+         */
+        class ExecutorFullException extends RejectedExecutionException {
+            private static final long serialVersionUID = 2395066238745406893L;
+
+            public ExecutorFullException() {}
+            public ExecutorFullException(String msg) { super(msg); }
+            public ExecutorFullException(String msg, Throwable err) { super(msg, err); }
+            public ExecutorFullException(Throwable err) { super(err); }
+        }
+
         /**
          * The executor will accept no more tasks.
          * It will complete executing all currently enqueued tasks, if possible.
@@ -48,6 +64,61 @@ public interface ExecutionService {
         boolean stop(long timeout, @NonNull TimeUnit unit);
     }
 
+    /**
+     * An executor that may block its callers (a bounded executor with the BLOCK policy, for instance)
+     * but that can also accept a task without blocking.  Callers that must never block,
+     * the timer thread, for instance, use <code>executeWithoutBlocking</code>.
+     */
+    interface NonBlockingExecutor extends Executor {
+        /**
+         * Schedule a task for execution, without blocking the caller.
+         *
+         * @param task the task to be executed.
+         * @throws CloseableExecutor.ExecutorFullException if the executor is full
+         */
+        void executeWithoutBlocking(@NonNull Runnable task);
+    }
+
+    /**
+     * A task that a full, coalescing executor may drop, if an equivalent task is already waiting to run.
+     */
+    interface CoalescingTask extends Runnable {
+        /**
+         * Tasks with equal keys are equivalent: running any one of them has the effect of running them all.
+         *
+         * @return the key that identifies equivalent tasks.
+         */
+        @NonNull
+        Object getCoalescingKey();
+
+        /**
+         * Called, on the thread that submitted this task, when the executor drops it
+         * because an equivalent task is already waiting.  This task will never be run.
+         */
+        void onCoalesced();
+    }
+
+    /**
+     * What a bounded executor does with a new task, when it is full.
+     */
+    enum OverflowPolicy {
+        /**
+         * The caller blocks until there is room for the task.
+         */
+        BLOCK,
+
+        /**
+         * The executor throws an ExecutorFullException: the caller should retry later.
+         */
+        REJECT,
+
+        /**
+         * If the new task is a CoalescingTask and a task with an equal coalescing key is already waiting,
+         * the new task is dropped.  Otherwise, the caller blocks, as with BLOCK.
+         */
+        COALESCE
+    }
+
     /**
      * A Cancellable represents a delayed task that is cancellable.
      */
@@ -58,6 +129,26 @@ public interface ExecutionService {
         void cancel();
     }
 
+    /**
+     * An execution lane is an isolated share of the service's thread pool.
+     * Each lane has its own queue: lanes are scheduled, fairly, in proportion to their weights.
+     * A lane never has more than its maximum concurrency of tasks running at once.
+     * Tasks in a lane are not executed in any particular order: use one of the
+     * lane's serial executors for in-order execution.
+     * <br>
+     * Stopping a lane prevents it from accepting new tasks.  Tasks already in its queue are still run,
+     * as are tasks already queued on its serial executors: stop those first, so that they accept no more.
+     */
+    interface ExecutionLane extends CloseableExecutor {
+        /**
+         * Get a new serial executor whose tasks run in this lane.
+         *
+         * @return a serial executor.
+         */
+        @NonNull
+        CloseableExecutor getSerialExecutor();
+    }
+
     /**
      * Get the main executor.  It is guaranteed to be a single thread.
      * The thread on which most of the application runs.
@@ -86,6 +177,41 @@ public interface ExecutionService {
     @NonNull
     CloseableExecutor getConcurrentExecutor();
 
+    /**
+     * Bound the number of tasks that the concurrent executor will queue, while waiting
+     * for space in the underlying executor.  By default, the queue holds at most
+     * <code>AbstractExecutionService.MAX_PENDING_TASKS</code> tasks and the policy is COALESCE.
+     * A caller that blocks waits at most a few seconds for space, and then
+     * gets an ExecutorFullException.  A task running on the concurrent executor
+     * must not, itself, schedule tasks on the concurrent executor.
+     *
+     * @param maxPendingTasks the maximum number of pending tasks
+     * @param policy          what to do with a new task, when the queue is full
+     */
+    void setConcurrentExecutorLimit(int maxPendingTasks, @NonNull OverflowPolicy policy);
+
+    /**
+     * Create a new execution lane.  Lanes isolate clients (databases, for instance)
+     * from one another: a client that submits many tasks to its own lane cannot starve
+     * a client submitting tasks to another.
+     *
+     * @param name           a name for the lane, used in metrics and logs.
+     * @param weight         the lane's share of the thread pool, relative to other lanes.
+     * @param maxConcurrency the maximum number of the lane's tasks that may run at the same time.
+     * @return a new execution lane.
+     */
+    @NonNull
+    ExecutionLane createLane(@NonNull String name, int weight, int maxConcurrency);
+
+    /**
+     * Get latency and saturation metrics for this service's executors:
+     * the concurrent executor, the main executor and each live serial executor and lane.
+     *
+     * @return the executor metrics.
+     */
+    @NonNull
+    List<ExecutorMetrics> getMetrics();
+
     /**
      * Run the passed task on the passed executor, after a delay
      *
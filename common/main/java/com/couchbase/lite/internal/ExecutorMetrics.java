@@ -0,0 +1,100 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.couchbase.lite.internal.utils.LatencyHistogram;
+
+
+/**
+ * Latency and saturation metrics for a single executor.
+ * <ul>
+ * <li> queue wait: time from the submission of a task until it starts running
+ * <li> run time: time from the start of a task until it completes, or fails
+ * <li> failures: the number of tasks that threw an exception
+ * <li> overflows: the number of tasks that could not be scheduled on the underlying executor
+ * immediately and had to wait in the executor's own pending queue
+ * <li> rejections: the number of tasks that the executor refused or failed to schedule
+ * </ul>
+ * A steadily increasing queue wait or overflow count is an early sign of executor saturation.
+ */
+public final class ExecutorMetrics {
+    @NonNull
+    private final String name;
+    @NonNull
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    @NonNull
+    private final LatencyHistogram runTime = new LatencyHistogram();
+    @NonNull
+    private final AtomicLong failures = new AtomicLong();
+    @NonNull
+    private final AtomicLong overflows = new AtomicLong();
+    @NonNull
+    private final AtomicLong rejections = new AtomicLong();
+
+    ExecutorMetrics(@NonNull String name) { this.name = name; }
+
+    @NonNull
+    public String getName() { return name; }
+
+    @NonNull
+    public LatencyHistogram getQueueWait() { return queueWait; }
+
+    @NonNull
+    public LatencyHistogram getRunTime() { return runTime; }
+
+    public long getFailureCount() { return failures.get(); }
+
+    public long getOverflowCount() { return overflows.get(); }
+
+    public long getRejectionCount() { return rejections.get(); }
+
+    public void reset() {
+        queueWait.reset();
+        runTime.reset();
+        failures.set(0);
+        overflows.set(0);
+        rejections.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ExecutorMetrics{" + name
+            + ", wait: " + queueWait
+            + ", run: " + runTime
+            + ", failures: " + failures.get()
+            + ", overflows: " + overflows.get()
+            + ", rejections: " + rejections.get() + "}";
+    }
+
+    void recordTask(long createdAt, long startedAt, long finishedAt) {
+        queueWait.recordNanos(startedAt - createdAt);
+        runTime.recordNanos(finishedAt - startedAt);
+    }
+
+    void recordFailure(long createdAt, long startedAt, long failedAt) {
+        recordTask(createdAt, startedAt, failedAt);
+        failures.incrementAndGet();
+    }
+
+    void recordOverflow() { overflows.incrementAndGet(); }
+
+    void recordRejection() { rejections.incrementAndGet(); }
+}
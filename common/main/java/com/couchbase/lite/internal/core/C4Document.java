@@ -15,6 +15,7 @@
 //
 package com.couchbase.lite.internal.core;
 
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
@@ -30,6 +31,81 @@ public class C4Document extends C4NativePeer {
         return dictContainsBlobs(dict.getHandle(), sk.getHandle());
     }
 
+    /**
+     * Get a batch of documents, with a single call to LiteCore.
+     * The i-th element of the returned array is the document whose id is <code>docIDs[i]</code>.
+     * It is null if the document does not exist, could not be read, or is deleted and
+     * <code>includeDeleted</code> is false.
+     *
+     * @param db             the database.
+     * @param docIDs         the ids of the documents.
+     * @param includeDeleted if false, do not return deleted documents.
+     * @return the documents.  Elements may be null.
+     */
+    @NonNull
+    public static C4Document[] getAll(@NonNull C4Database db, @NonNull String[] docIDs, boolean includeDeleted) {
+        final int n = docIDs.length;
+        final long[] docHandles = new long[n];
+        getAll(db.getPeer(), docIDs, includeDeleted, docHandles);
+
+        final C4Document[] docs = new C4Document[n];
+        for (int i = 0; i < n; i++) {
+            final long doc = docHandles[i];
+            if (doc != 0) { docs[i] = new C4Document(doc); }
+        }
+        return docs;
+    }
+
+    /**
+     * Create or update a batch of documents, with a single call to LiteCore.
+     * Only the first <code>count</code> elements of each array are used.
+     * If <code>docs[i]</code> is not null, it is updated.  Otherwise a new document with
+     * the id <code>docIDs[i]</code> is created.  The HAS_ATTACHMENTS flag is computed here,
+     * for each document whose body contains blobs.
+     * An error saving one document does not prevent the others from being saved:
+     * if the i-th document is not saved, the i-th element of the returned array is null
+     * and <code>errors[2 * i]</code> and <code>errors[2 * i + 1]</code> are the error domain and code.
+     *
+     * @param db     the database.  Must be in a transaction.
+     * @param count  the number of documents.
+     * @param docIDs the ids of the documents.
+     * @param docs   the current revisions of the documents.  Elements may be null.
+     * @param bodies the new bodies of the documents.  Elements may be null.
+     * @param flags  the revision flags for the new revisions.
+     * @param sk     the database's shared keys.
+     * @param errors output: the error domains and codes.  Must have at least 2 * count elements.
+     * @return the new revisions.  Elements may be null.
+     */
+    @NonNull
+    public static C4Document[] saveAll(
+        @NonNull C4Database db,
+        int count,
+        @NonNull String[] docIDs,
+        @NonNull C4Document[] docs,
+        @NonNull FLSliceResult[] bodies,
+        @NonNull int[] flags,
+        @NonNull FLSharedKeys sk,
+        @NonNull int[] errors) {
+        final long[] docHandles = new long[count];
+        final long[] bodyHandles = new long[count];
+        for (int i = 0; i < count; i++) {
+            final C4Document doc = docs[i];
+            docHandles[i] = (doc == null) ? 0L : doc.getPeer();
+            final FLSliceResult body = bodies[i];
+            bodyHandles[i] = (body == null) ? 0L : body.getHandle();
+        }
+
+        final long[] newDocHandles = new long[count];
+        saveAll(db.getPeer(), count, docIDs, docHandles, bodyHandles, flags, sk.getHandle(), newDocHandles, errors);
+
+        final C4Document[] newDocs = new C4Document[count];
+        for (int i = 0; i < count; i++) {
+            final long newDoc = newDocHandles[i];
+            if (newDoc != 0) { newDocs[i] = new C4Document(newDoc); }
+        }
+        return newDocs;
+    }
+
     //-------------------------------------------------------------------------
     // Constructor
     //-------------------------------------------------------------------------
@@ -88,6 +164,12 @@ public class C4Document extends C4NativePeer {
         resolveConflict(getPeer(), winningRevID, losingRevID, mergeBody, mergedFlags);
     }
 
+    public void resolveConflict(String winningRevID, String losingRevID, FLSliceResult mergeBody, int mergedFlags)
+        throws LiteCoreException {
+        final long bodyHandle = (mergeBody != null) ? mergeBody.getHandle() : 0;
+        resolveConflict2(getPeer(), winningRevID, losingRevID, bodyHandle, mergedFlags);
+    }
+
     // - Creating and Updating Documents
 
     public C4Document update(FLSliceResult body, int flags) throws LiteCoreException {
@@ -266,6 +348,8 @@ public class C4Document extends C4NativePeer {
 
     private static native long getBySequence(long db, long sequence) throws LiteCoreException;
 
+    private static native void getAll(long db, String[] docIDs, boolean includeDeleted, long[] outDocs);
+
     private static native void save(long doc, int maxRevTreeDepth) throws LiteCoreException;
 
     private static native void free(long doc);
@@ -306,12 +390,32 @@ public class C4Document extends C4NativePeer {
         int mergedFlags)
         throws LiteCoreException;
 
+    private static native void resolveConflict2(
+        long doc,
+        String winningRevID,
+        String losingRevID,
+        long mergeBody,
+        int mergedFlags)
+        throws LiteCoreException;
+
     // - Creating and Updating Documents
 
     private static native long update(long doc, byte[] body, int flags) throws LiteCoreException;
 
     private static native long update2(long doc, long body, int flags) throws LiteCoreException;
 
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private static native void saveAll(
+        long db,
+        int count,
+        String[] docIDs,
+        long[] docs,     // C4Document*
+        long[] bodies,   // FLSliceResult*
+        int[] flags,
+        long sk,
+        long[] outDocs,  // C4Document*
+        int[] outErrors);
+
     // - Fleece-related
 
     // doc -> pointer to C4Document
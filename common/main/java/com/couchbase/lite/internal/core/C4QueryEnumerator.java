@@ -15,6 +15,8 @@
 //
 package com.couchbase.lite.internal.core;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
 
 import com.couchbase.lite.LiteCoreException;
@@ -30,6 +32,10 @@ import com.couchbase.lite.internal.fleece.FLArrayIterator;
  */
 public class C4QueryEnumerator extends C4NativePeer {
 
+    // An error that stopped a batch after some rows had been read: the next call to nextBatch throws it.
+    @Nullable
+    private LiteCoreException pendingError;
+
     //-------------------------------------------------------------------------
     // Constructor
     //-------------------------------------------------------------------------
@@ -42,6 +48,37 @@ public class C4QueryEnumerator extends C4NativePeer {
 
     public boolean next() throws LiteCoreException { return next(getPeer()); }
 
+    /**
+     * Advance through as many rows as there are entries in missingColumns, with a single native call.
+     * For each row, the handles of its column values are stored, in order, in columns: the values of
+     * row n start at columns[n * nColumns].  A handle is 0 if the row has fewer columns.  The row's bitmap
+     * of missing columns is stored in missingColumns[n].
+     * The values are part of the enumerator's results: they are valid for as long as it is.
+     * If an error stops a batch after some rows have been read, those rows are returned
+     * and the error is thrown by the next call.
+     *
+     * @param columns        receives the handles of the column values: must have room for nColumns per row
+     * @param missingColumns receives the missing columns bitmaps: one per row
+     * @return the number of rows read: 0 at the end of the results
+     * @throws LiteCoreException on failure
+     */
+    public int nextBatch(@NonNull long[] columns, @NonNull long[] missingColumns) throws LiteCoreException {
+        final LiteCoreException err = pendingError;
+        if (err != null) {
+            pendingError = null;
+            throw err;
+        }
+
+        // domain, code and internal info of an error that stopped the batch
+        final int[] error = new int[3];
+        final int n = nextBatch(getPeer(), columns, missingColumns, error);
+        if (error[1] != 0) {
+            pendingError = new LiteCoreException(error[0], error[1], C4Base.getMessage(error[0], error[1], error[2]));
+        }
+
+        return n;
+    }
+
     public long getRowCount() throws LiteCoreException { return getRowCount(getPeer()); }
 
     public C4QueryEnumerator refresh() throws LiteCoreException {
@@ -103,6 +140,9 @@ public class C4QueryEnumerator extends C4NativePeer {
 
     private static native boolean next(long handle) throws LiteCoreException;
 
+    private static native int nextBatch(long handle, long[] columns, long[] missingColumns, int[] error)
+        throws LiteCoreException;
+
     private static native long getRowCount(long handle) throws LiteCoreException;
 
     private static native boolean seek(long handle, long rowIndex) throws LiteCoreException;
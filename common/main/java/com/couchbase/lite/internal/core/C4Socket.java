@@ -24,6 +24,7 @@ import java.util.Map;
 
 import com.couchbase.lite.LogDomain;
 import com.couchbase.lite.internal.SocketFactory;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
 import com.couchbase.lite.internal.support.Log;
 
 
@@ -239,11 +240,11 @@ public abstract class C4Socket extends C4NativePeer {
         closeRequested(handle, status, message);
     }
 
-    protected final void gotHTTPResponse(int httpStatus, byte[] responseHeadersFleece) {
+    protected final void gotHTTPResponse(int httpStatus, @Nullable FLSliceResult responseHeadersFleece) {
         final long handle = getPeerUnchecked();
         Log.d(LOG_DOMAIN, "C4Socket.gotHTTPResponse  @%d: %d", handle, httpStatus);
         if (handle == 0) { return; }
-        gotHTTPResponse(handle, httpStatus, responseHeadersFleece);
+        gotHTTPResponse(handle, httpStatus, (responseHeadersFleece == null) ? 0L : responseHeadersFleece.getHandle());
     }
 
     //-------------------------------------------------------------------------
@@ -266,7 +267,10 @@ public abstract class C4Socket extends C4NativePeer {
 
     private static native void closeRequested(long handle, int status, String message);
 
-    private static native void gotHTTPResponse(long handle, int httpStatus, byte[] responseHeadersFleece);
+    private static native void gotHTTPResponse(
+        long handle,
+        int httpStatus,
+        /*FLSliceResult*/ long responseHeadersFleece);
 
     private static native long fromNative(
         Object nativeHandle,
@@ -15,6 +15,9 @@
 //
 package com.couchbase.lite.internal.fleece;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +28,11 @@ import com.couchbase.lite.internal.utils.Preconditions;
 public class FLArray {
     private final long handle; // pointer to FLArray
 
+    // If non-null, this array is decoded in Java, from the buffer
+    @Nullable
+    private final FleeceBuffer buffer;
+    private final int offset;
+
     //-------------------------------------------------------------------------
     // constructor
     //-------------------------------------------------------------------------
@@ -32,6 +40,14 @@ public class FLArray {
     public FLArray(long handle) {
         Preconditions.assertNotZero(handle, "handle");
         this.handle = handle;
+        this.buffer = null;
+        this.offset = 0;
+    }
+
+    FLArray(@NonNull FleeceBuffer buffer, int offset) {
+        this.handle = buffer.getHandle(offset);
+        this.buffer = buffer;
+        this.offset = offset;
     }
 
     //-------------------------------------------------------------------------
@@ -43,7 +59,7 @@ public class FLArray {
      *
      * @return the number of items in an array; 0 if handle is null.
      */
-    public long count() { return count(handle); }
+    public long count() { return (buffer != null) ? buffer.count(offset) : count(handle); }
 
     /**
      * Returns an value at an array index, or null if the index is out of range.
@@ -51,23 +67,44 @@ public class FLArray {
      * @param index index for value
      * @return the FLValue at index
      */
-    public FLValue get(long index) { return new FLValue(get(handle, index)); }
+    public FLValue get(long index) {
+        return (buffer == null) ? new FLValue(get(handle, index)) : new FLValue(buffer, getItem(index));
+    }
+
+    // Primitive accessors: for an array backed by a FleeceBuffer, these create no FLValue.
+
+    public long getInt(long index) {
+        return (buffer == null) ? get(index).asInt() : buffer.asInt(getItem(index));
+    }
+
+    public float getFloat(long index) {
+        return (buffer == null) ? get(index).asFloat() : buffer.asFloat(getItem(index));
+    }
+
+    public double getDouble(long index) {
+        return (buffer == null) ? get(index).asDouble() : buffer.asDouble(getItem(index));
+    }
+
+    public boolean getBool(long index) {
+        return (buffer == null) ? get(index).asBool() : buffer.asBool(getItem(index));
+    }
 
     public List<Object> asArray() { return asTypedArray(); }
 
+    /**
+     * Decode this array, and everything it contains, to Java objects, with a single native call
+     * or, for an array backed by a FleeceBuffer, without any native calls.
+     *
+     * @param <T> the type of the array elements
+     * @return the decoded array
+     */
     @SuppressWarnings("unchecked")
+    @NonNull
     public <T> List<T> asTypedArray() {
-        final List<T> results = new ArrayList<>();
-        final FLArrayIterator itr = new FLArrayIterator();
-
-        itr.begin(this);
-        FLValue value;
-        while ((value = itr.getValue()) != null) {
-            results.add((T) value.asObject());
-            if (!itr.next()) { break; }
-        }
+        if (buffer != null) { return (List<T>) (List<?>) buffer.toJavaList(offset); }
 
-        return results;
+        final List<T> results = (List<T>) FLValue.asJavaObject(handle);
+        return (results != null) ? results : new ArrayList<>();
     }
 
     //-------------------------------------------------------------------------
@@ -76,6 +113,24 @@ public class FLArray {
 
     <T> T withContent(Fn.Function<Long, T> fn) { return fn.apply(handle); }
 
+    // Non-null if this array is decoded in Java
+    @Nullable
+    FleeceBuffer getBuffer() { return buffer; }
+
+    // The offset of this array in its buffer
+    int getOffset() { return offset; }
+
+    //-------------------------------------------------------------------------
+    // private methods
+    //-------------------------------------------------------------------------
+
+    // The offset, in the buffer, of the item at the index
+    private int getItem(long index) {
+        final int value = Preconditions.assertNotNull(buffer, "buffer").arrayGet(offset, (int) index);
+        Preconditions.assertThat(value, "index out of range: " + index, v -> v >= 0);
+        return value;
+    }
+
     //-------------------------------------------------------------------------
     // native methods
     //-------------------------------------------------------------------------
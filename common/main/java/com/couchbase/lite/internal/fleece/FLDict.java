@@ -15,6 +15,9 @@
 //
 package com.couchbase.lite.internal.fleece;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,6 +29,11 @@ import com.couchbase.lite.internal.utils.Preconditions;
 public class FLDict {
     private final long handle; // hold pointer to FLDict
 
+    // If non-null, and its document can be decoded in Java, this dictionary is decoded from the buffer
+    @Nullable
+    private final FleeceBuffer buffer;
+    private final int offset;
+
     //-------------------------------------------------------------------------
     // Constructor
     //-------------------------------------------------------------------------
@@ -33,37 +41,130 @@ public class FLDict {
     public FLDict(long handle) {
         Preconditions.assertNotZero(handle, "handle");
         this.handle = handle;
+        this.buffer = null;
+        this.offset = 0;
+    }
+
+    FLDict(@NonNull FleeceBuffer buffer, int offset) {
+        this.handle = buffer.getHandle(offset);
+        this.buffer = buffer;
+        this.offset = offset;
     }
 
     //-------------------------------------------------------------------------
     // public methods
     //-------------------------------------------------------------------------
 
-    public FLValue toFLValue() { return new FLValue(handle); }
+    public FLValue toFLValue() {
+        final FleeceBuffer buffer = getBuffer();
+        return (buffer != null) ? new FLValue(buffer, offset) : new FLValue(handle);
+    }
 
-    public long count() { return count(handle); }
+    public long count() {
+        final FleeceBuffer buffer = getBuffer();
+        return (buffer != null) ? buffer.count(offset) : count(handle);
+    }
 
     public FLValue get(String key) {
         if (key == null) { return null; }
 
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer != null) {
+            final int value = buffer.dictGet(offset, key);
+            return (value < 0) ? null : new FLValue(buffer, value);
+        }
+
         final long hValue = get(handle, key.getBytes(StandardCharsets.UTF_8));
 
         return hValue != 0L ? new FLValue(hValue) : null;
     }
 
+    // Primitive accessors: for a dictionary backed by a FleeceBuffer, these create no FLValue.
+    // A missing value is 0 (or false).
+
+    public long getInt(@NonNull String key) {
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer == null) {
+            final FLValue value = get(key);
+            return (value == null) ? 0L : value.asInt();
+        }
+        final int value = buffer.dictGet(offset, key);
+        return (value < 0) ? 0L : buffer.asInt(value);
+    }
+
+    public float getFloat(@NonNull String key) {
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer == null) {
+            final FLValue value = get(key);
+            return (value == null) ? 0.0F : value.asFloat();
+        }
+        final int value = buffer.dictGet(offset, key);
+        return (value < 0) ? 0.0F : buffer.asFloat(value);
+    }
+
+    public double getDouble(@NonNull String key) {
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer == null) {
+            final FLValue value = get(key);
+            return (value == null) ? 0.0 : value.asDouble();
+        }
+        final int value = buffer.dictGet(offset, key);
+        return (value < 0) ? 0.0 : buffer.asDouble(value);
+    }
+
+    public boolean getBool(@NonNull String key) {
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer == null) {
+            final FLValue value = get(key);
+            return (value != null) && value.asBool();
+        }
+        final int value = buffer.dictGet(offset, key);
+        return (value >= 0) && buffer.asBool(value);
+    }
+
+    /**
+     * Decode this dictionary, and everything it contains, to Java objects, with a single native call
+     * or, for a dictionary backed by a FleeceBuffer, without any native calls.
+     *
+     * @return the decoded dictionary
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
     public Map<String, Object> asDict() {
-        final Map<String, Object> results = new HashMap<>();
-        final FLDictIterator itr = new FLDictIterator();
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer != null) { return buffer.toJavaMap(offset); }
+
+        final Map<String, Object> results = (Map<String, Object>) FLValue.asJavaObject(handle);
+        return (results != null) ? results : new HashMap<>();
+    }
 
-        itr.begin(this);
-        String key;
-        while ((key = itr.getKeyString()) != null) {
-            final FLValue val = itr.getValue();
-            results.put(key, (val == null) ? null : val.asObject());
-            itr.next();
+    /**
+     * Visit each of the entries in this dictionary, in order.
+     *
+     * @param visitor called with the key and value of each entry
+     */
+    public void forEach(@NonNull Fn.BiConsumer<String, FLValue> visitor) {
+        final FleeceBuffer buffer = getBuffer();
+        if (buffer != null) {
+            final int n = buffer.count(offset);
+            for (int i = 0; i < n; i++) {
+                visitor.accept(buffer.dictKeyAt(offset, i), new FLValue(buffer, buffer.dictValueAt(offset, i)));
+            }
+            return;
         }
 
-        return results;
+        final FLDictIterator itr = new FLDictIterator();
+        try {
+            itr.begin(this);
+            String key;
+            while ((key = itr.getKeyString()) != null) {
+                visitor.accept(key, itr.getValue());
+                itr.next();
+            }
+        }
+        finally {
+            itr.free();
+        }
     }
 
     //-------------------------------------------------------------------------
@@ -72,6 +173,13 @@ public class FLDict {
 
     <T> T withContent(Fn.Function<Long, T> fn) { return fn.apply(handle); }
 
+    // Non-null if this dictionary is decoded in Java
+    @Nullable
+    FleeceBuffer getBuffer() { return ((buffer == null) || !buffer.isDecodable()) ? null : buffer; }
+
+    // The offset of this dictionary in its buffer
+    int getOffset() { return offset; }
+
     //-------------------------------------------------------------------------
     // native methods
     //-------------------------------------------------------------------------
@@ -53,6 +53,9 @@ public class FLEncoder extends C4NativePeer {
         this.isMemoryManaged = managed;
     }
 
+    // For subclasses that are implemented in Java and have no native peer
+    FLEncoder(boolean managed) { this.isMemoryManaged = managed; }
+
     public void free() {
         if (isMemoryManaged) { throw new IllegalStateException("Attempt to free a managed FLEncoder"); }
 
@@ -0,0 +1,127 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.fleece;
+
+import android.support.annotation.GuardedBy;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.CouchbaseLiteInternal;
+import com.couchbase.lite.internal.support.Log;
+
+
+/**
+ * A bounded pool of native encoders, for code that cannot use a database's shared encoder.
+ * An encoder acquired from the pool must be released back to it, not freed:
+ * <pre>
+ *     final FLEncoder enc = FLEncoderPool.acquire();
+ *     try { ... }
+ *     finally { FLEncoderPool.release(enc); }
+ * </pre>
+ * Released encoders are reset and kept for reuse, up to a limit.
+ * An encoder that is garbage collected without having been released is logged, and freed.
+ */
+public final class FLEncoderPool {
+    private FLEncoderPool() {}
+
+    private static final int MAX_IDLE_ENCODERS = 8;
+
+    private static final class PooledEncoder extends FLEncoder {
+        private final AtomicBoolean inUse = new AtomicBoolean();
+        // Where the encoder was acquired: recorded only when debugging
+        @Nullable
+        private volatile Exception acquiredAt;
+
+        void acquired() {
+            inUse.set(true);
+            acquiredAt = (CouchbaseLiteInternal.isDebugging()) ? new Exception() : null;
+        }
+
+        boolean released() {
+            acquiredAt = null;
+            return inUse.getAndSet(false);
+        }
+
+        @Override
+        public void free() { throw new IllegalStateException("Attempt to free a pooled FLEncoder"); }
+
+        void freeEncoder() { super.free(); }
+
+        @SuppressWarnings("NoFinalizer")
+        @Override
+        protected void finalize() throws Throwable {
+            try {
+                if (inUse.get()) { Log.w(LogDomain.DATABASE, "Pooled FLEncoder was not released", acquiredAt); }
+                freeEncoder();
+            }
+            finally {
+                super.finalize();
+            }
+        }
+    }
+
+    @GuardedBy("IDLE_ENCODERS")
+    @NonNull
+    private static final Deque<PooledEncoder> IDLE_ENCODERS = new ArrayDeque<>();
+
+    /**
+     * Get an encoder from the pool, creating a new one if the pool is empty.
+     *
+     * @return an encoder
+     */
+    @NonNull
+    public static FLEncoder acquire() {
+        PooledEncoder enc;
+        synchronized (IDLE_ENCODERS) { enc = IDLE_ENCODERS.pollFirst(); }
+        if (enc == null) { enc = new PooledEncoder(); }
+
+        enc.acquired();
+        return enc;
+    }
+
+    /**
+     * Return an encoder to the pool.  The encoder must not be used after it has been released.
+     *
+     * @param encoder an encoder obtained from acquire
+     */
+    public static void release(@Nullable FLEncoder encoder) {
+        if (encoder == null) { return; }
+
+        if (!(encoder instanceof PooledEncoder)) {
+            throw new IllegalArgumentException("Attempt to release an FLEncoder that is not pooled");
+        }
+
+        final PooledEncoder enc = (PooledEncoder) encoder;
+        if (!enc.released()) { throw new IllegalStateException("Attempt to release a pooled FLEncoder twice"); }
+
+        enc.reset();
+        enc.setExtraInfo(null);
+
+        synchronized (IDLE_ENCODERS) {
+            if (IDLE_ENCODERS.size() < MAX_IDLE_ENCODERS) {
+                IDLE_ENCODERS.addFirst(enc);
+                return;
+            }
+        }
+
+        enc.freeEncoder();
+    }
+}
@@ -15,9 +15,60 @@
 //
 package com.couchbase.lite.internal.fleece;
 
+import android.support.annotation.GuardedBy;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
 public class FLSharedKeys {
+    // An immutable entry in the table of keys' UTF-8 forms
+    private static final class KeyBytes {
+        @NonNull
+        final String key;
+        @NonNull
+        final byte[] bytes;
+
+        KeyBytes(@NonNull String key, @NonNull byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final int INITIAL_CACHE_SIZE = 64;
+
+    // Fleece only shares short keys that contain only alphanumerics, '_' and '-'.
+    private static final int MAX_KEY_LENGTH = 16;
+
+    // Size of the table of keys' UTF-8 forms: must be a power of 2
+    private static final int KEY_BYTES_TABLE_SIZE = 1024;
+
     private final long handle; // hold pointer to FLSharedKeys
 
+    // Shared keys are never renumbered: once a key has been decoded, it can be cached
+    // until a transaction is aborted.  An abort discards the keys added during the transaction.
+    // The caches are read without locking: Strings are immutable, so a reader that sees a key sees all of it,
+    // and a reader that misses takes the lock.  Only changes to the caches are made holding the lock.
+    @NonNull
+    private volatile String[] decodedKeys = new String[INITIAL_CACHE_SIZE];
+    @NonNull
+    private final Map<String, Integer> encodedKeys = new ConcurrentHashMap<>();
+
+    // Keys that are not shared, interned: reading the same key from many dictionaries
+    // returns the same String.  The interner is thread safe.
+    @NonNull
+    private final StringInterner internedKeys = new StringInterner();
+
+    // The UTF-8 forms of keys used to look up values: a fixed size table in which
+    // a key that collides with another simply replaces it, so that recently used keys are always cached.
+    @NonNull
+    private final KeyBytes[] keyBytes = new KeyBytes[KEY_BYTES_TABLE_SIZE];
+
     //-------------------------------------------------------------------------
     // public methods
     //-------------------------------------------------------------------------
@@ -32,4 +83,137 @@ public class FLSharedKeys {
     public long getHandle() {
         return handle;
     }
+
+    /**
+     * Get the string for a shared key.
+     *
+     * @param key a shared key
+     * @return the key's string, or null if the key is not known.
+     */
+    @Nullable
+    String decode(int key) {
+        if (key < 0) { return null; }
+
+        final String[] keys = decodedKeys;
+        if ((key < keys.length) && (keys[key] != null)) { return keys[key]; }
+
+        synchronized (this) {
+            final String str = decode(handle, key);
+            if (str != null) { cacheKey(str, key); }
+            return str;
+        }
+    }
+
+    /**
+     * Get the shared key for a string, if it has already been decoded.
+     * A miss does not mean that the string is not a shared key.
+     *
+     * @param str a string
+     * @return the shared key for the string, or -1 if it is not in the cache.
+     */
+    int getCachedKey(@NonNull String str) {
+        final Integer key = encodedKeys.get(str);
+        return (key == null) ? -1 : key;
+    }
+
+    /**
+     * Get the shared key for a string, adding it to the shared keys, if necessary and possible.
+     * Must be called in a transaction.
+     *
+     * @param str a string
+     * @return the shared key for the string, or -1 if it is not a shared key.
+     */
+    int encode(@NonNull String str) {
+        final Integer cached = encodedKeys.get(str);
+        if (cached != null) { return cached; }
+
+        if (!isEligible(str)) { return -1; }
+
+        synchronized (this) {
+            final int key = encode(handle, str);
+            if (key < 0) { return -1; }
+
+            cacheKey(str, key);
+            return key;
+        }
+    }
+
+    /**
+     * Get the string for a key that is not a shared key, without creating a new String, if possible.
+     *
+     * @param data  the buffer that contains the key
+     * @param start the offset of the key's UTF-8 bytes
+     * @param len   the number of bytes in the key
+     * @return the key
+     */
+    @NonNull
+    String internKey(@NonNull ByteBuffer data, int start, int len) {
+        return internedKeys.intern(data, start, len);
+    }
+
+    /**
+     * Get the UTF-8 form of a key.  The returned array must not be modified.
+     *
+     * @param key a key
+     * @return the key's UTF-8 bytes
+     */
+    @NonNull
+    byte[] getKeyBytes(@NonNull String key) {
+        final int idx = key.hashCode() & (keyBytes.length - 1);
+
+        final KeyBytes entry = keyBytes[idx];
+        if ((entry != null) && (entry.key.equals(key))) { return entry.bytes; }
+
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        keyBytes[idx] = new KeyBytes(key, bytes);
+        return bytes;
+    }
+
+    /**
+     * Forget all cached keys.  Call this when a transaction is aborted.
+     */
+    public synchronized void invalidate() {
+        decodedKeys = new String[INITIAL_CACHE_SIZE];
+        encodedKeys.clear();
+    }
+
+    //-------------------------------------------------------------------------
+    // private methods
+    //-------------------------------------------------------------------------
+
+    @GuardedBy("this")
+    private void cacheKey(@NonNull String str, int key) {
+        String[] keys = decodedKeys;
+        if (key >= keys.length) { keys = Arrays.copyOf(keys, Math.max(key + 1, keys.length * 2)); }
+        keys[key] = str;
+        // publish the array after the key has been stored in it
+        decodedKeys = keys;
+        encodedKeys.put(str, key);
+    }
+
+    private static boolean isEligible(@NonNull String str) {
+        final int n = str.length();
+        if (n > MAX_KEY_LENGTH) { return false; }
+        for (int i = 0; i < n; i++) {
+            final char c = str.charAt(i);
+            if (!(((c >= 'a') && (c <= 'z'))
+                || ((c >= 'A') && (c <= 'Z'))
+                || ((c >= '0') && (c <= '9'))
+                || (c == '_')
+                || (c == '-'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //-------------------------------------------------------------------------
+    // native methods
+    //-------------------------------------------------------------------------
+
+    @Nullable
+    private static native String decode(long sharedKeys, int key);
+
+    // Returns the key, adding it if necessary, or -1 if the string cannot be a shared key
+    private static native int encode(long sharedKeys, String str);
 }
@@ -15,7 +15,13 @@
 //
 package com.couchbase.lite.internal.fleece;
 
+import android.support.annotation.GuardedBy;
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+
 import com.couchbase.lite.internal.core.C4NativePeer;
+import com.couchbase.lite.internal.utils.Fn;
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
@@ -31,6 +37,13 @@ public class FLSliceResult extends C4NativePeer implements AllocSlice {
 
     private final boolean isMemoryManaged;
 
+    // The number of calls to withContent that are in progress:
+    // a call to free, while any are, is deferred until the last of them completes.
+    @GuardedBy("this")
+    private int contentUsers;
+    @GuardedBy("this")
+    private boolean freePending;
+
     //-------------------------------------------------------------------------
     // Constructors
     //-------------------------------------------------------------------------
@@ -65,10 +78,50 @@ public class FLSliceResult extends C4NativePeer implements AllocSlice {
 
     public long getSize() { return getSize(getPeer()); }
 
+    /**
+     * Read the content of this slice without copying it.
+     * The function is passed a read-only, direct ByteBuffer over the native memory.
+     * That buffer is valid only until the function returns: it must not be retained.
+     * The buffer's lifetime is tied to this slice's native peer: if this slice is freed while the function
+     * is running, the memory is not released until the function returns.
+     * Once free has been called, further calls to this method throw IllegalStateException.
+     *
+     * @param fn  a function that reads the content
+     * @param <T> the type of the function's result
+     * @return the function's result
+     */
+    public <T> T withContent(@NonNull Fn.Function<ByteBuffer, T> fn) {
+        final long hdl;
+        synchronized (this) {
+            if (freePending) { throw new IllegalStateException("Attempt to read a freed FLSliceResult"); }
+            hdl = getPeer();
+            contentUsers++;
+        }
+
+        try { return fn.apply(getContent(hdl).asReadOnlyBuffer()); }
+        finally {
+            final long freeHdl;
+            synchronized (this) {
+                freeHdl = ((--contentUsers <= 0) && freePending) ? getPeerAndClear() : 0L;
+            }
+            if (freeHdl != 0L) { free(freeHdl); }
+        }
+    }
+
     public void free() {
         if (isMemoryManaged) { throw new IllegalStateException("Attempt to free a managed FLSliceResult"); }
 
-        final long hdl = getPeerAndClear();
+        // The handle must be cleared under the same lock that withContent uses to claim it:
+        // otherwise a reader could claim the handle between the check and the release.
+        final long hdl;
+        synchronized (this) {
+            if (contentUsers > 0) {
+                freePending = true;
+                return;
+            }
+            hdl = getPeerAndClear();
+        }
+
         if (hdl == 0L) { return; }
 
         free(hdl);
@@ -99,5 +152,8 @@ public class FLSliceResult extends C4NativePeer implements AllocSlice {
 
     private static native byte[] getBuf(long slice);
 
+    @NonNull
+    private static native ByteBuffer getContent(long slice);
+
     private static native long getSize(long slice);
 }
@@ -63,6 +63,11 @@ public class FLValue {
 
     private final long handle; // pointer to FLValue
 
+    // If non-null, this value is decoded in Java, from the buffer
+    @Nullable
+    private final FleeceBuffer buffer;
+    private final int offset;
+
     //-------------------------------------------------------------------------
     // Constructor
     //-------------------------------------------------------------------------
@@ -70,6 +75,14 @@ public class FLValue {
     public FLValue(long handle) {
         Preconditions.assertNotZero(handle, "handle");
         this.handle = handle;
+        this.buffer = null;
+        this.offset = 0;
+    }
+
+    FLValue(@NonNull FleeceBuffer buffer, int offset) {
+        this.handle = buffer.getHandle(offset);
+        this.buffer = buffer;
+        this.offset = offset;
     }
 
     //-------------------------------------------------------------------------
@@ -81,7 +94,7 @@ public class FLValue {
      *
      * @return int (FLValueType)
      */
-    public int getType() { return getType(handle); }
+    public int getType() { return (buffer != null) ? buffer.getType(offset) : getType(handle); }
 
     /**
      * Is this value a number?
@@ -95,7 +108,7 @@ public class FLValue {
      *
      * @return true if value is a number
      */
-    public boolean isInteger() { return isInteger(handle); }
+    public boolean isInteger() { return (buffer != null) ? buffer.isInteger(offset) : isInteger(handle); }
 
     /**
      * Returns true if the value is non-nullptr and represents an _unsigned_ integer that can only
@@ -103,14 +116,14 @@ public class FLValue {
      *
      * @return boolean
      */
-    public boolean isUnsigned() { return isUnsigned(handle); }
+    public boolean isUnsigned() { return (buffer != null) ? buffer.isUnsigned(offset) : isUnsigned(handle); }
 
     /**
      * Is this a 64-bit floating-point value?
      *
      * @return true if value is a double
      */
-    public boolean isDouble() { return isDouble(handle); }
+    public boolean isDouble() { return (buffer != null) ? buffer.isDouble(offset) : isDouble(handle); }
 
     /**
      * Returns the string representation.
@@ -138,14 +151,14 @@ public class FLValue {
      *
      * @return byte[]
      */
-    public byte[] asData() { return asData(handle); }
+    public byte[] asData() { return (buffer != null) ? buffer.asData(offset) : asData(handle); }
 
     /**
      * Returns a value coerced to boolean.
      *
      * @return boolean
      */
-    public boolean asBool() { return asBool(handle); }
+    public boolean asBool() { return (buffer != null) ? buffer.asBool(offset) : asBool(handle); }
 
     /**
      * Returns a value coerced to an integer.
@@ -153,28 +166,28 @@ public class FLValue {
      *
      * @return long
      */
-    public long asInt() { return asInt(handle); }
+    public long asInt() { return (buffer != null) ? buffer.asInt(offset) : asInt(handle); }
 
     /**
      * Returns a value coerced to an unsigned integer.
      *
      * @return long
      */
-    public long asUnsigned() { return asUnsigned(handle); }
+    public long asUnsigned() { return (buffer != null) ? buffer.asInt(offset) : asUnsigned(handle); }
 
     /**
      * Returns a value coerced to a 32-bit floating point number.
      *
      * @return float
      */
-    public float asFloat() { return asFloat(handle); }
+    public float asFloat() { return (buffer != null) ? buffer.asFloat(offset) : asFloat(handle); }
 
     /**
      * Returns a value coerced to a 64-bit floating point number.
      *
      * @return double
      */
-    public double asDouble() { return asDouble(handle); }
+    public double asDouble() { return (buffer != null) ? buffer.asDouble(offset) : asDouble(handle); }
 
     /**
      * Returns the exact contents of a string value, or null for all other types.
@@ -182,7 +195,7 @@ public class FLValue {
      *
      * @return String
      */
-    public String asString() { return asString(handle); }
+    public String asString() { return (buffer != null) ? buffer.asString(offset) : asString(handle); }
 
     public List<Object> asArray() { return asFLArray().asArray(); }
 
@@ -193,7 +206,11 @@ public class FLValue {
      *
      * @return String
      */
-    public FLDict asFLDict() { return new FLDict(asDict(handle)); }
+    public FLDict asFLDict() {
+        if (buffer == null) { return new FLDict(asDict(handle)); }
+        Preconditions.assertThat(this, "value is not a dictionary", v -> v.getType() == FLConstants.ValueType.DICT);
+        return new FLDict(buffer, offset);
+    }
 
     /**
      * If a FLValue represents an array, returns it cast to FLDict, else nullptr.
@@ -204,30 +221,13 @@ public class FLValue {
 
     /**
      * Return an object of the appropriate type.
+     * Arrays and dictionaries are decoded, in their entirety, with a single native call
+     * or, for a value backed by a FleeceBuffer, without any native calls at all.
      *
      * @return Object
      */
-    public Object asObject() {
-        switch (getType(handle)) {
-            case FLConstants.ValueType.BOOLEAN:
-                return Boolean.valueOf(asBool());
-            case FLConstants.ValueType.NUMBER:
-                if (isInteger()) { return (isUnsigned()) ? Long.valueOf(asUnsigned()) : Long.valueOf(asInt()); }
-                if (isDouble()) { return Double.valueOf(asDouble()); }
-                return Float.valueOf(asFloat());
-            case FLConstants.ValueType.STRING:
-                return asString();
-            case FLConstants.ValueType.DATA:
-                return asData();
-            case FLConstants.ValueType.ARRAY:
-                return asArray();
-            case FLConstants.ValueType.DICT:
-                return asDict();
-            case FLConstants.ValueType.NULL:
-            default:
-                return null;
-        }
-    }
+    @Nullable
+    public Object asObject() { return (buffer != null) ? buffer.toJava(offset) : asJavaObject(handle); }
 
     //-------------------------------------------------------------------------
     // package level access
@@ -235,7 +235,18 @@ public class FLValue {
 
     <T> T withContent(Fn.Function<Long, T> fn) { return fn.apply(handle); }
 
-    FLArray asFLArray() { return new FLArray(asArray(handle)); }
+    // Non-null if this value is decoded in Java
+    @Nullable
+    FleeceBuffer getBuffer() { return buffer; }
+
+    // The offset of this value in its buffer
+    int getOffset() { return offset; }
+
+    FLArray asFLArray() {
+        if (buffer == null) { return new FLArray(asArray(handle)); }
+        Preconditions.assertThat(this, "value is not an array", v -> v.getType() == FLConstants.ValueType.ARRAY);
+        return new FLArray(buffer, offset);
+    }
 
     //-------------------------------------------------------------------------
     // native methods
@@ -286,6 +297,11 @@ public class FLValue {
 
     private static native long asDict(long value);
 
+    // Decode the value, and everything it contains, to Java objects: Boolean, Long, Float, Double,
+    // String, byte[], List and Map.
+    @Nullable
+    static native Object asJavaObject(long value);
+
     @SuppressWarnings({"MethodName", "PMD.MethodNamingConventions"})
     @Nullable
     private static native String JSON5ToJSON(String json5) throws LiteCoreException;
@@ -0,0 +1,773 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.fleece;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A read-only Fleece document, decoded in Java.
+ * <p>
+ * The document's data is a direct ByteBuffer that maps, without copying, the native memory
+ * that holds the encoded document.  FLValues, FLDicts and FLArrays created from a FleeceBuffer
+ * read their contents from the buffer: they do not make native calls.  They still have a valid
+ * handle, the address of the value in native memory, so they can be passed to native code.
+ * <p>
+ * Like a native FLValue, a FleeceBuffer is valid only as long as the native object
+ * that owns its memory (a C4Document, an FLSliceResult, a query enumerator...)
+ * <p>
+ * Values are identified by their offset in the buffer.  See Fleece's docs/Fleece Format.md
+ * for a description of the encoding.  Documents that contain external pointers or inherited
+ * dictionaries (delta-encoded documents) are not supported.  Each buffer checks for them, by walking
+ * the document once, the first time it is needed: values in such documents are left to the native code.
+ */
+public final class FleeceBuffer {
+    private static final int TAG_SHORT_INT = 0;
+    private static final int TAG_INT = 1;
+    private static final int TAG_FLOAT = 2;
+    private static final int TAG_SPECIAL = 3;
+    private static final int TAG_STRING = 4;
+    private static final int TAG_DATA = 5;
+    private static final int TAG_ARRAY = 6;
+    private static final int TAG_DICT = 7;
+
+    private static final int SPECIAL_NULL = 0x00;
+    private static final int SPECIAL_FALSE = 0x04;
+    private static final int SPECIAL_TRUE = 0x08;
+
+    private static final int NARROW = 2;
+    private static final int WIDE = 4;
+
+    private static final int LONG_COLLECTION_COUNT = 0x07FF;
+
+    private static final int MAGIC_PARENT_KEY = -2048;
+
+    private static final int NOT_FOUND = -1;
+
+    private static final int UNCHECKED = 0;
+    private static final int DECODABLE = 1;
+    private static final int NOT_DECODABLE = 2;
+
+    // Documents smaller than this are cheap to re-encode: there's no point in amending them.
+    private static final int MIN_AMEND_SIZE = 8 * 1024;
+
+    /**
+     * Get a Java-backed version of a native dictionary, if possible.
+     *
+     * @param dict       a native dictionary
+     * @param sharedKeys the shared keys used to encode the dictionary's document
+     * @return a dictionary backed by a FleeceBuffer, or the passed dictionary if it is not part
+     * of a document that this class can map.  The document is not checked until the dictionary is
+     * first read: if it cannot be decoded in Java, the dictionary is read by the native code.
+     */
+    @NonNull
+    public static FLDict wrap(@NonNull FLDict dict, @Nullable FLSharedKeys sharedKeys) {
+        final long handle = dict.withContent(hdl -> hdl);
+        final FleeceBuffer buffer = forHandle(handle, sharedKeys);
+        return (buffer == null) ? dict : new FLDict(buffer, (int) (handle - buffer.address));
+    }
+
+    /**
+     * Get a buffer for the Fleece document that contains a native value.
+     *
+     * @param value      a native FLValue
+     * @param sharedKeys the shared keys used to encode the document
+     * @return a buffer for the document or null if the value is not part of a document,
+     * the document uses different shared keys, or it cannot be decoded in Java.
+     */
+    @Nullable
+    public static FleeceBuffer forValue(@NonNull FLValue value, @Nullable FLSharedKeys sharedKeys) {
+        final FleeceBuffer buffer = forHandle(value.withContent(hdl -> hdl), sharedKeys);
+        return ((buffer == null) || !buffer.isDecodable()) ? null : buffer;
+    }
+
+    /**
+     * Get a buffer for the Fleece document in an FLSliceResult (e.g., the output of an FLEncoder).
+     *
+     * @param slice      a slice containing a Fleece document
+     * @param sharedKeys the shared keys used to encode the document
+     * @return a buffer for the document or null if it cannot be decoded in Java.
+     */
+    @Nullable
+    public static FleeceBuffer forSlice(@NonNull FLSliceResult slice, @Nullable FLSharedKeys sharedKeys) {
+        final long[] info = new long[1];
+        final ByteBuffer data = Preconditions.assertNotNull(getSliceData(slice.getHandle(), info), "slice data");
+        final FleeceBuffer buffer = new FleeceBuffer(data, info[0], sharedKeys);
+        return (!buffer.isDecodable()) ? null : buffer;
+    }
+
+
+    /**
+     * Get a buffer for a document that is being encoded: the first size bytes of the output buffer.
+     * Its values can only be accessed by offset.
+     *
+     * @param out  an encoder's output buffer
+     * @param size the number of bytes in the document
+     * @return a buffer for the document
+     */
+    @NonNull
+    static FleeceBuffer forOutput(@NonNull ByteBuffer out, int size) {
+        final ByteBuffer data = out.duplicate();
+        data.clear();
+        data.limit(size);
+        return new FleeceBuffer(data.slice(), 0L, null);
+    }
+
+
+    @NonNull
+    private final ByteBuffer data;
+    private final long address;
+    @Nullable
+    private final FLSharedKeys sharedKeys;
+
+    // Whether this document can be decoded in Java: checked once, when first needed.
+    // Racing threads may both check it: they will get the same answer.
+    private volatile int decodability = UNCHECKED;
+
+    private FleeceBuffer(@NonNull ByteBuffer data, long address, @Nullable FLSharedKeys sharedKeys) {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        this.address = address;
+        this.sharedKeys = sharedKeys;
+    }
+
+    /**
+     * Get a Java-backed version of a native value, if it is part of this buffer.
+     *
+     * @param value a native value
+     * @return a value backed by this buffer or, if the value is not in this buffer, the passed value.
+     */
+    @NonNull
+    public FLValue wrap(@NonNull FLValue value) {
+        final long offset = value.withContent(hdl -> hdl) - address;
+        return ((offset < 0) || (offset >= data.capacity())) ? value : new FLValue(this, (int) offset);
+    }
+
+    /**
+     * Get a Java-backed version of the native value with the given handle, if it is part of this buffer.
+     *
+     * @param handle a native value: must not be 0
+     * @return a value backed by this buffer or, if the value is not in this buffer, a native value.
+     */
+    @NonNull
+    public FLValue wrap(long handle) {
+        return contains(handle) ? new FLValue(this, toOffset(handle)) : new FLValue(handle);
+    }
+
+    // Accessors for the values in this buffer, by handle: these create no FLValue.
+    // The handle must be one for which contains() is true.
+
+    public boolean contains(long handle) {
+        final long offset = handle - address;
+        return (offset >= 0) && (offset < data.capacity());
+    }
+
+    public long getInt(long handle) { return asInt(toOffset(handle)); }
+
+    public float getFloat(long handle) { return asFloat(toOffset(handle)); }
+
+    public double getDouble(long handle) { return asDouble(toOffset(handle)); }
+
+    public boolean getBool(long handle) { return asBool(toOffset(handle)); }
+
+    @Nullable
+    public String getString(long handle, @NonNull StringInterner strings) {
+        final int value = toOffset(handle);
+        return (tag(value) != TAG_STRING) ? null : strings.intern(data, bytesStart(value), bytesLength(value));
+    }
+
+    /**
+     * Get the root of the document.  Only valid for a buffer that contains a complete Fleece
+     * document, e.g. one created with forSlice.
+     *
+     * @return the root value.
+     */
+    @NonNull
+    public FLValue getRoot() { return new FLValue(this, findRoot()); }
+
+    //-------------------------------------------------------------------------
+    // package level access
+    //-------------------------------------------------------------------------
+
+    long getHandle(int value) { return address + value; }
+
+    boolean isDecodable() {
+        int state = decodability;
+        if (state == UNCHECKED) {
+            state = checkDecodable() ? DECODABLE : NOT_DECODABLE;
+            decodability = state;
+        }
+        return state == DECODABLE;
+    }
+
+    int toOffset(long handle) {
+        if (!contains(handle)) { throw new IllegalArgumentException("value is not in this buffer"); }
+        return (int) (handle - address);
+    }
+
+    int getType(int value) {
+        switch (tag(value)) {
+            case TAG_SHORT_INT:
+            case TAG_INT:
+            case TAG_FLOAT:
+                return FLConstants.ValueType.NUMBER;
+            case TAG_SPECIAL:
+                switch (u8(value) & 0x0C) {
+                    case SPECIAL_NULL:
+                        return FLConstants.ValueType.NULL;
+                    case SPECIAL_FALSE:
+                    case SPECIAL_TRUE:
+                        return FLConstants.ValueType.BOOLEAN;
+                    default:
+                        return FLConstants.ValueType.UNDEFINED;
+                }
+            case TAG_STRING:
+                return FLConstants.ValueType.STRING;
+            case TAG_DATA:
+                return FLConstants.ValueType.DATA;
+            case TAG_ARRAY:
+                return FLConstants.ValueType.ARRAY;
+            case TAG_DICT:
+                return FLConstants.ValueType.DICT;
+            default:
+                throw new IllegalStateException("Unexpected pointer at " + value);
+        }
+    }
+
+    boolean isInteger(int value) {
+        final int tag = tag(value);
+        return (tag == TAG_SHORT_INT) || (tag == TAG_INT);
+    }
+
+    boolean isUnsigned(int value) { return (tag(value) == TAG_INT) && ((u8(value) & 0x08) != 0); }
+
+    boolean isDouble(int value) { return (tag(value) == TAG_FLOAT) && ((u8(value) & 0x08) != 0); }
+
+    boolean asBool(int value) {
+        switch (tag(value)) {
+            case TAG_SPECIAL:
+                return (u8(value) & 0x0C) == SPECIAL_TRUE;
+            case TAG_SHORT_INT:
+            case TAG_INT:
+            case TAG_FLOAT:
+                return asInt(value) != 0;
+            default:
+                return true;
+        }
+    }
+
+    long asInt(int value) {
+        switch (tag(value)) {
+            case TAG_SHORT_INT:
+                // 12 bit, sign extended
+                return (((u8(value) & 0x0F) << 8) | u8(value + 1)) << 20 >> 20;
+            case TAG_INT:
+                return readInt(value);
+            case TAG_FLOAT:
+                return (long) asDouble(value);
+            case TAG_SPECIAL:
+                return ((u8(value) & 0x0C) == SPECIAL_TRUE) ? 1 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    double asDouble(int value) {
+        switch (tag(value)) {
+            case TAG_FLOAT:
+                return isDouble(value) ? data.getDouble(value + 2) : data.getFloat(value + 2);
+            case TAG_INT:
+                if (isUnsigned(value)) {
+                    final long n = readInt(value);
+                    // unsigned 64 bit
+                    return (n >= 0) ? n : ((double) (n >>> 1)) * 2.0 + (n & 1);
+                }
+                return asInt(value);
+            default:
+                return asInt(value);
+        }
+    }
+
+    float asFloat(int value) { return (float) asDouble(value); }
+
+    @Nullable
+    String asString(int value) { return (tag(value) != TAG_STRING) ? null : readString(value); }
+
+    @Nullable
+    byte[] asData(int value) { return (tag(value) != TAG_DATA) ? null : readBytes(value); }
+
+    int size() { return data.capacity(); }
+
+    boolean isSameDocument(@NonNull FleeceBuffer other) {
+        return (address == other.address) && (data.capacity() == other.data.capacity());
+    }
+
+    // Copy the entire document to the start of the buffer.
+    void copyTo(@NonNull ByteBuffer dst) {
+        final ByteBuffer src = data.duplicate();
+        src.clear();
+        final ByteBuffer target = dst.duplicate();
+        target.clear();
+        target.put(src);
+    }
+
+    // The size of the value itself: for a collection, its header and slots, but not the values they point to.
+    long encodedSize(int value) {
+        switch (tag(value)) {
+            case TAG_SHORT_INT:
+            case TAG_SPECIAL:
+                return NARROW;
+            case TAG_INT:
+                return evenSize(2 + (u8(value) & 0x07));
+            case TAG_FLOAT:
+                return isDouble(value) ? 10 : 6;
+            case TAG_STRING:
+            case TAG_DATA:
+                return evenSize((bytesStart(value) - value) + bytesLength(value));
+            case TAG_ARRAY:
+            case TAG_DICT:
+                final int nSlots = (tag(value) == TAG_DICT) ? 2 * count(value) : count(value);
+                return (firstItem(value) - value) + ((long) nSlots * width(value));
+            default:
+                throw new IllegalStateException("Unexpected pointer at " + value);
+        }
+    }
+
+    // A document can be amended if it is large and uses the same shared keys as the amendment.
+    boolean canBeAmended(@Nullable FLSharedKeys keys) {
+        final int size = data.capacity();
+        return (size >= MIN_AMEND_SIZE) && ((size & 1) == 0) && ((sharedKeys == null) || (sharedKeys == keys));
+    }
+
+    // Copy the value, and everything it contains, to the start of dst, leaving out everything else.
+    // Values keep their order, so the pointers between them, which always point backwards, only get shorter.
+    // Returns the size of the copy.
+    int compactTo(int root, @NonNull ByteBuffer dst) {
+        final BitSet reachable = new BitSet(data.capacity() / 2);
+        markReachable(root, reachable);
+
+        // Where each of the values goes
+        final int n = reachable.cardinality();
+        final int[] from = new int[n];
+        final int[] sizes = new int[n];
+        final int[] to = new int[n];
+        int size = 0;
+        int i = 0;
+        for (int index = reachable.nextSetBit(0); index >= 0; index = reachable.nextSetBit(index + 1)) {
+            from[i] = index << 1;
+            sizes[i] = (int) encodedSize(from[i]);
+            to[i] = size;
+            size += sizes[i];
+            i++;
+        }
+
+        // Copy runs of adjacent values in bulk
+        final ByteBuffer src = data.duplicate();
+        final ByteBuffer target = dst.duplicate();
+        i = 0;
+        while (i < n) {
+            int end = from[i] + sizes[i];
+            int j = i + 1;
+            while ((j < n) && (from[j] == end)) { end += sizes[j++]; }
+            src.clear();
+            src.position(from[i]).limit(end);
+            target.clear();
+            target.position(to[i]);
+            target.put(src);
+            i = j;
+        }
+
+        // Fix the pointers in the collections
+        for (i = 0; i < n; i++) {
+            final int tag = tag(from[i]);
+            if ((tag != TAG_ARRAY) && (tag != TAG_DICT)) { continue; }
+
+            final int width = width(from[i]);
+            final int first = firstItem(from[i]);
+            final int nSlots = (tag == TAG_DICT) ? 2 * count(from[i]) : count(from[i]);
+            for (int k = 0; k < nSlots; k++) {
+                final int slot = first + (k * width);
+                if ((u8(slot) & 0x80) == 0) { continue; }
+                final int newSlot = to[i] + (slot - from[i]);
+                putPointer(dst, newSlot, width, newSlot - to[Arrays.binarySearch(from, deref(slot, width))]);
+            }
+        }
+
+        return size;
+    }
+
+    // Number of items in an array, or of entries in a dictionary
+    int count(int collection) {
+        final int tag = tag(collection);
+        if ((tag != TAG_ARRAY) && (tag != TAG_DICT)) { return 0; }
+        final int count = ((u8(collection) & 0x07) << 8) | u8(collection + 1);
+        return (count != LONG_COLLECTION_COUNT) ? count : LONG_COLLECTION_COUNT + (int) readVarInt(collection + 2);
+    }
+
+    // The value at the index in the array, or NOT_FOUND.
+    int arrayGet(int array, int index) {
+        if ((tag(array) != TAG_ARRAY) || (index < 0) || (index >= count(array))) { return NOT_FOUND; }
+        final int width = width(array);
+        return deref(firstItem(array) + (index * width), width);
+    }
+
+    // The value for the key in the dictionary, or NOT_FOUND.
+    int dictGet(int dict, @NonNull String key) {
+        if (tag(dict) != TAG_DICT) { return NOT_FOUND; }
+        final int n = count(dict);
+        if (n <= 0) { return NOT_FOUND; }
+
+        final int width = width(dict);
+        final int first = firstItem(dict);
+        final int nIntKeys = countIntKeys(first, n, width);
+
+        if ((nIntKeys > 0) && (sharedKeys != null)) {
+            final int sharedKey = sharedKeys.getCachedKey(key);
+            if (sharedKey >= 0) { return findIntKey(first, nIntKeys, width, sharedKey); }
+
+            // the key may simply not be in the cache yet.
+            for (int i = 0; i < nIntKeys; i++) {
+                final int slot = first + (2 * i * width);
+                if (key.equals(sharedKeys.decode((int) asInt(slot)))) { return deref(slot + width, width); }
+            }
+        }
+
+        return findStringKey(first + (2 * nIntKeys * width), n - nIntKeys, width, key);
+    }
+
+    // The key of the i-th entry in the dictionary.
+    @NonNull
+    String dictKeyAt(int dict, int index) {
+        final int width = width(dict);
+        final int slot = firstItem(dict) + (2 * index * width);
+        if (tag(slot) == TAG_SHORT_INT) { return decodeSharedKey((int) asInt(slot)); }
+        final int key = deref(slot, width);
+        return (sharedKeys == null) ? readString(key) : sharedKeys.internKey(data, bytesStart(key), bytesLength(key));
+    }
+
+    // The value of the i-th entry in the dictionary.
+    int dictValueAt(int dict, int index) {
+        final int width = width(dict);
+        return deref(firstItem(dict) + (2 * index * width) + width, width);
+    }
+
+    // Decode a value, and everything it contains, to Java objects.
+    // The result is the same as that of FLValue.asJavaObject.
+    @Nullable
+    Object toJava(int value) {
+        switch (getType(value)) {
+            case FLConstants.ValueType.BOOLEAN:
+                return asBool(value);
+            case FLConstants.ValueType.NUMBER:
+                if (isInteger(value)) { return asInt(value); }
+                if (isDouble(value)) { return asDouble(value); }
+                return asFloat(value);
+            case FLConstants.ValueType.STRING:
+                return readString(value);
+            case FLConstants.ValueType.DATA:
+                return readBytes(value);
+            case FLConstants.ValueType.ARRAY:
+                return toJavaList(value);
+            case FLConstants.ValueType.DICT:
+                return toJavaMap(value);
+            default:
+                return null;
+        }
+    }
+
+    @NonNull
+    List<Object> toJavaList(int array) {
+        final int n = count(array);
+        final List<Object> list = new ArrayList<>(n);
+        if (n <= 0) { return list; }
+
+        final int width = width(array);
+        final int first = firstItem(array);
+        for (int i = 0; i < n; i++) { list.add(toJava(deref(first + (i * width), width))); }
+        return list;
+    }
+
+    @NonNull
+    Map<String, Object> toJavaMap(int dict) {
+        final int n = count(dict);
+        final Map<String, Object> map = new HashMap<>(((n / 3) * 4) + 4);
+        for (int i = 0; i < n; i++) { map.put(dictKeyAt(dict, i), toJava(dictValueAt(dict, i))); }
+        return map;
+    }
+
+    //-------------------------------------------------------------------------
+    // private methods
+    //-------------------------------------------------------------------------
+
+    // Mark the value, and everything it contains.  Values are indexed by offset / 2.
+    private void markReachable(int value, @NonNull BitSet reachable) {
+        final int index = value >> 1;
+        if (reachable.get(index)) { return; }
+        reachable.set(index);
+
+        final int tag = tag(value);
+        if ((tag != TAG_ARRAY) && (tag != TAG_DICT)) { return; }
+
+        final int width = width(value);
+        final int first = firstItem(value);
+        final int nSlots = (tag == TAG_DICT) ? 2 * count(value) : count(value);
+        for (int i = 0; i < nSlots; i++) {
+            final int slot = first + (i * width);
+            if ((u8(slot) & 0x80) != 0) { markReachable(deref(slot, width), reachable); }
+        }
+    }
+
+    // Write a pointer to the value that is the given number of bytes before the slot.
+    private static void putPointer(@NonNull ByteBuffer dst, int slot, int width, int distance) {
+        final int offset = distance >> 1;
+        if (width == NARROW) {
+            dst.put(slot, (byte) (0x80 | (offset >> 8)));
+            dst.put(slot + 1, (byte) offset);
+            return;
+        }
+
+        dst.put(slot, (byte) (0x80 | (offset >> 24)));
+        dst.put(slot + 1, (byte) (offset >> 16));
+        dst.put(slot + 2, (byte) (offset >> 8));
+        dst.put(slot + 3, (byte) offset);
+    }
+
+    // Whether the value, and everything it contains, can be decoded by this class:
+    // i.e., whether it contains no external pointers and no inherited dictionaries.
+    private boolean isDecodable(int value, @NonNull BitSet visited) {
+        final int index = value >> 1;
+        if (visited.get(index)) { return true; }
+        visited.set(index);
+
+        final int tag = tag(value);
+        if ((tag != TAG_ARRAY) && (tag != TAG_DICT)) { return true; }
+
+        final int n = count(value);
+        if (n <= 0) { return true; }
+
+        final int width = width(value);
+        final int first = firstItem(value);
+        if ((tag == TAG_DICT) && (tag(first) == TAG_SHORT_INT) && (asInt(first) == MAGIC_PARENT_KEY)) { return false; }
+
+        final int nSlots = (tag == TAG_DICT) ? 2 * n : n;
+        for (int i = 0; i < nSlots; i++) {
+            final int slot = first + (i * width);
+            if (((u8(slot) & 0x80) != 0) && !isDecodable(deref(slot, width), visited)) { return false; }
+        }
+
+        return true;
+    }
+
+    private static long evenSize(int size) { return size + (size & 1); }
+
+    @Nullable
+    private static FleeceBuffer forHandle(long value, @Nullable FLSharedKeys sharedKeys) {
+        if (value == 0L) { return null; }
+
+        final long[] info = new long[2];
+        final ByteBuffer data = getDocData(value, info);
+        if (data == null) { return null; }
+
+        final long docSharedKeys = info[1];
+        if (docSharedKeys == 0L) { return new FleeceBuffer(data, info[0], null); }
+
+        return ((sharedKeys == null) || (sharedKeys.getHandle() != docSharedKeys))
+            ? null
+            : new FleeceBuffer(data, info[0], sharedKeys);
+    }
+
+    private boolean checkDecodable() {
+        try { return isDecodable(findRoot(), new BitSet(size() / 2)); }
+        // deref throws on an external pointer
+        catch (IllegalStateException e) { return false; }
+    }
+
+    private int u8(int pos) { return data.get(pos) & 0xFF; }
+
+    private int tag(int value) { return u8(value) >> 4; }
+
+    private int width(int collection) { return ((u8(collection) & 0x08) != 0) ? WIDE : NARROW; }
+
+    private int firstItem(int collection) {
+        final int count = ((u8(collection) & 0x07) << 8) | u8(collection + 1);
+        if (count != LONG_COLLECTION_COUNT) { return collection + 2; }
+        final int varIntSize = varIntSize(collection + 2);
+        return collection + 2 + varIntSize + (varIntSize & 1);
+    }
+
+    // If the value in the slot is a pointer, follow it.
+    private int deref(int slot, int width) {
+        int value = slot;
+        int w = width;
+        while ((u8(value) & 0x80) != 0) {
+            if ((u8(value) & 0x40) != 0) { throw new IllegalStateException("External pointers are not supported"); }
+
+            final long offset = (w == NARROW)
+                ? (((u8(value) & 0x3F) << 8) | u8(value + 1))
+                : (((long) (u8(value) & 0x3F) << 24) | (u8(value + 1) << 16) | (u8(value + 2) << 8) | u8(value + 3));
+            value -= (int) (offset << 1);
+            // pointers to pointers are always wide
+            w = WIDE;
+        }
+        return value;
+    }
+
+    // The root is at the end of the data.  It is usually a pointer to the real root.
+    private int findRoot() {
+        final int root = data.capacity() - NARROW;
+        if (root < 0) { throw new IllegalStateException("Buffer does not contain Fleece data"); }
+        return deref(root, NARROW);
+    }
+
+    private long readInt(int value) {
+        final int b0 = u8(value);
+        final int size = (b0 & 0x07) + 1;
+        long n = 0;
+        for (int i = size - 1; i >= 0; i--) { n = (n << 8) | u8(value + 1 + i); }
+        // sign extend, if signed
+        if (((b0 & 0x08) == 0) && (size < 8)) {
+            final int shift = 64 - (8 * size);
+            n = (n << shift) >> shift;
+        }
+        return n;
+    }
+
+    private long readVarInt(int pos) {
+        long n = 0;
+        int shift = 0;
+        int p = pos;
+        int b;
+        do {
+            b = u8(p++);
+            n |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return n;
+    }
+
+    private int varIntSize(int pos) {
+        int p = pos;
+        while ((u8(p) & 0x80) != 0) { p++; }
+        return p - pos + 1;
+    }
+
+    // A string or data value: bytes start after the header and, possibly, a varint length
+    private int bytesStart(int value) {
+        return ((u8(value) & 0x0F) != 0x0F) ? value + 1 : value + 1 + varIntSize(value + 1);
+    }
+
+    private int bytesLength(int value) {
+        final int len = u8(value) & 0x0F;
+        return (len != 0x0F) ? len : (int) readVarInt(value + 1);
+    }
+
+    @NonNull
+    private byte[] readBytes(int value) {
+        final byte[] bytes = new byte[bytesLength(value)];
+        final ByteBuffer src = data.duplicate();
+        src.position(bytesStart(value));
+        src.get(bytes);
+        return bytes;
+    }
+
+    @NonNull
+    private String readString(int value) { return new String(readBytes(value), StandardCharsets.UTF_8); }
+
+    // Integer (shared) keys sort before string keys.
+    private int countIntKeys(int first, int n, int width) {
+        int nInts = 0;
+        while ((nInts < n) && (tag(first + (2 * nInts * width)) == TAG_SHORT_INT)) { nInts++; }
+        if ((nInts > 0) && (asInt(first) == MAGIC_PARENT_KEY)) {
+            throw new IllegalStateException("Inherited dictionaries are not supported");
+        }
+        return nInts;
+    }
+
+    private int findIntKey(int first, int n, int width, int key) {
+        int lo = 0;
+        int hi = n - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int slot = first + (2 * mid * width);
+            final long k = asInt(slot);
+            if (k < key) { lo = mid + 1; }
+            else if (k > key) { hi = mid - 1; }
+            else { return deref(slot + width, width); }
+        }
+        return NOT_FOUND;
+    }
+
+    private int findStringKey(int first, int n, int width, @NonNull String key) {
+        final byte[] keyBytes = (sharedKeys == null)
+            ? key.getBytes(StandardCharsets.UTF_8)
+            : sharedKeys.getKeyBytes(key);
+        int lo = 0;
+        int hi = n - 1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            final int slot = first + (2 * mid * width);
+            final int cmp = compareBytes(deref(slot, width), keyBytes);
+            if (cmp < 0) { lo = mid + 1; }
+            else if (cmp > 0) { hi = mid - 1; }
+            else { return deref(slot + width, width); }
+        }
+        return NOT_FOUND;
+    }
+
+    // Compare the string at the value to the key, as memcmp would.
+    private int compareBytes(int value, @NonNull byte[] key) {
+        final int start = bytesStart(value);
+        final int len = bytesLength(value);
+        final int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            final int cmp = u8(start + i) - (key[i] & 0xFF);
+            if (cmp != 0) { return cmp; }
+        }
+        return len - key.length;
+    }
+
+    @NonNull
+    private String decodeSharedKey(int key) {
+        if (sharedKeys == null) { throw new IllegalStateException("Shared key " + key + " without shared keys"); }
+        return Preconditions.assertNotNull(sharedKeys.decode(key), "shared key " + key);
+    }
+
+    //-------------------------------------------------------------------------
+    // native methods
+    //-------------------------------------------------------------------------
+
+    // Map the data of the Fleece document that contains the value.
+    // info[0] is the address of the data, info[1] the document's shared keys.
+    @Nullable
+    private static native ByteBuffer getDocData(long value, long[] info);
+
+    // Map the data in a slice.  info[0] is the address of the data.
+    @Nullable
+    private static native ByteBuffer getSliceData(long slice, long[] info);
+}
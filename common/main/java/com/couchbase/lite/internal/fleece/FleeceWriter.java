@@ -0,0 +1,804 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.fleece;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.couchbase.lite.LiteCoreException;
+
+
+/**
+ * A Fleece encoder, written in Java.
+ * <p>
+ * A FleeceWriter encodes into a direct ByteBuffer that it reuses from one document to the next.
+ * Encoding makes no native calls except to add a new key to the shared keys and, in finish2,
+ * to copy the encoded document into an FLSliceResult that can be passed to LiteCore.
+ * <p>
+ * Shared keys can only be added within a transaction: a FleeceWriter that has shared keys
+ * must only be used inside one.
+ * <p>
+ * A FleeceWriter has no native peer: it must not be passed to native code.
+ * It is not thread safe.
+ */
+// A FleeceWriter is an AtomicLong, through C4NativePeer, but it is never serialized.
+@SuppressWarnings({"serial", "PMD.GodClass", "PMD.TooManyMethods"})
+public final class FleeceWriter extends FLEncoder {
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+    // Don't hang on to buffers that grew to encode an unusually large document
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int TAG_INT = 0x10;
+    private static final int TAG_FLOAT = 0x20;
+    private static final int TAG_STRING = 0x40;
+    private static final int TAG_DATA = 0x50;
+    private static final int TAG_ARRAY = 0x60;
+    private static final int TAG_DICT = 0x70;
+
+    private static final int SPECIAL_NULL = 0x30;
+    private static final int SPECIAL_FALSE = 0x34;
+    private static final int SPECIAL_TRUE = 0x38;
+
+    private static final int NARROW = 2;
+    private static final int WIDE = 4;
+    private static final int MAX_NARROW_OFFSET = 0x3FFF;
+
+    private static final int LONG_COLLECTION_COUNT = 0x07FF;
+
+    // Fleece only shares strings this short or shorter
+    private static final int MAX_SHARED_STRING_SIZE = 100;
+
+    private static final int POINTER = 0;
+
+    // A collection that is being encoded.  Its slots are recorded as either
+    // an inline value (up to 4 bytes) or a pointer to a value that has already been written.
+    private static final class Frame {
+        boolean isDict;
+        boolean isWide;
+        int nItems;
+
+        // size of the inline value, or POINTER
+        int[] itemSizes = new int[16];
+        // the inline value's bytes, little-endian, or the pointer's target
+        int[] itemData = new int[16];
+
+        // for dicts, per entry: the shared key or -1, and the string key
+        int[] intKeys = new int[8];
+        byte[][] strKeys = new byte[8][];
+
+        void reset(boolean dict) {
+            isDict = dict;
+            isWide = false;
+            nItems = 0;
+        }
+
+        void add(int size, int data) {
+            if (nItems >= itemSizes.length) {
+                itemSizes = Arrays.copyOf(itemSizes, nItems * 2);
+                itemData = Arrays.copyOf(itemData, nItems * 2);
+            }
+            itemSizes[nItems] = size;
+            itemData[nItems] = data;
+            nItems++;
+            if (size > NARROW) { isWide = true; }
+        }
+
+        void addKey(int intKey, @Nullable byte[] strKey) {
+            final int entry = nItems / 2;
+            if (entry >= intKeys.length) {
+                intKeys = Arrays.copyOf(intKeys, entry * 2);
+                strKeys = Arrays.copyOf(strKeys, entry * 2);
+            }
+            intKeys[entry] = intKey;
+            strKeys[entry] = strKey;
+        }
+    }
+
+
+    @Nullable
+    private final FLSharedKeys sharedKeys;
+
+    @NonNull
+    private ByteBuffer out;
+    private int pos;
+    // An amended document is compacted into this buffer, which then becomes the output buffer.
+    @NonNull
+    private ByteBuffer spare;
+
+    // Frame 0 is the root: it holds the single top-level value.
+    @NonNull
+    private final List<Frame> frames = new ArrayList<>();
+    private int depth;
+
+    // Strings that have already been written, and their offsets
+    @NonNull
+    private final Map<String, Integer> writtenStrings = new HashMap<>();
+
+    // Non-null while amending: the document at the start of the output
+    @Nullable
+    private FleeceBuffer amendBase;
+
+    private long amendCount;
+
+    //-------------------------------------------------------------------------
+    // Constructor
+    //-------------------------------------------------------------------------
+
+    /**
+     * Create a new encoder.
+     *
+     * @param sharedKeys the shared keys to use, or null to write all keys as strings
+     */
+    public FleeceWriter(@Nullable FLSharedKeys sharedKeys) {
+        super(true);
+        this.sharedKeys = sharedKeys;
+        this.out = allocate(INITIAL_BUFFER_SIZE);
+        this.spare = allocate(INITIAL_BUFFER_SIZE);
+        reset();
+    }
+
+    //-------------------------------------------------------------------------
+    // public methods
+    //-------------------------------------------------------------------------
+
+    @Override
+    public void free() { }
+
+    /**
+     * Start encoding a new version of an existing document, by amending it.
+     * <p>
+     * The new document is the base document followed by the new data: values copied from the base
+     * (unchanged dictionaries and arrays, for instance) are not encoded again; the new data simply
+     * points back to them.  This is much faster, when only a small part of a large document changes.
+     * <p>
+     * The base must be valid until the document is finished.  Whether the document is amended is decided
+     * here, before any of its content is written: small documents, and documents that use different shared
+     * keys, are encoded from scratch, as usual.  When the document is finished, the values in the base that
+     * the new version no longer uses (removed or replaced values and the previous root) are dropped and the
+     * rest is compacted: the finished document contains no garbage.
+     *
+     * @param base the root of the previous version of the document, if there is one
+     * @return true if the document will be encoded as an amendment of the base.
+     */
+    public boolean amend(@Nullable FLDict base) {
+        if ((depth != 0) || (frames.get(0).nItems != 0) || (pos != 0)) {
+            throw new IllegalStateException("Can only amend a new document");
+        }
+
+        if (base == null) { return false; }
+
+        final FleeceBuffer buffer = base.getBuffer();
+        if ((buffer == null) || !buffer.canBeAmended(sharedKeys)) { return false; }
+
+        final int size = buffer.size();
+        ensureCapacity(size);
+        buffer.copyTo(out);
+        pos = size;
+        amendBase = buffer;
+
+        return true;
+    }
+
+    /**
+     * The number of documents that this writer has encoded as amendments.
+     *
+     * @return the number of amended documents.
+     */
+    @VisibleForTesting
+    public long getAmendCount() { return amendCount; }
+
+    @Override
+    public boolean writeNull() {
+        addInline(2, SPECIAL_NULL);
+        return true;
+    }
+
+    public boolean writeBool(boolean value) {
+        addInline(2, value ? SPECIAL_TRUE : SPECIAL_FALSE);
+        return true;
+    }
+
+    public boolean writeInt(long value) {
+        if ((value >= -2048) && (value <= 2047)) {
+            // short int: 12 bits, big-endian in the low bits of the first byte and the second byte
+            addInline(2, (int) (((value >> 8) & 0x0F) | ((value & 0xFF) << 8)));
+            return true;
+        }
+
+        int size = 1;
+        while ((size < 8) && ((value >> ((8 * size) - 1)) != 0) && ((value >> ((8 * size) - 1)) != -1)) { size++; }
+        writeIntBytes(value, size, false);
+        return true;
+    }
+
+    public boolean writeFloat(float value) {
+        if (Float.isNaN(value)) { throw new IllegalArgumentException("Cannot encode NaN"); }
+        if (isIntegral(value)) { return writeInt((long) value); }
+
+        final int start = beginValue(6);
+        out.put(start, (byte) TAG_FLOAT);
+        out.put(start + 1, (byte) 0);
+        out.putFloat(start + 2, value);
+        endValue(start, 6);
+        return true;
+    }
+
+    public boolean writeDouble(double value) {
+        if (Double.isNaN(value)) { throw new IllegalArgumentException("Cannot encode NaN"); }
+        if (isIntegral(value)) { return writeInt((long) value); }
+        if (((double) (float) value) == value) { return writeFloat((float) value); }
+
+        final int start = beginValue(10);
+        out.put(start, (byte) (TAG_FLOAT | 0x08));
+        out.put(start + 1, (byte) 0);
+        out.putDouble(start + 2, value);
+        endValue(start, 10);
+        return true;
+    }
+
+    @Override
+    public boolean writeString(String value) {
+        if (value == null) { return writeNull(); }
+        return writeString(value, null);
+    }
+
+    @Override
+    public boolean writeData(byte[] value) {
+        if (value == null) { return writeNull(); }
+        writeBytes(TAG_DATA, value);
+        return true;
+    }
+
+    @Override
+    public boolean beginDict(long reserve) {
+        pushFrame(true);
+        return true;
+    }
+
+    @Override
+    public boolean endDict() {
+        final Frame frame = frames.get(depth);
+        if ((!frame.isDict) || ((frame.nItems % 2) != 0)) { throw new IllegalStateException("Not in a dictionary"); }
+        sortEntries(frame);
+        endCollection(frame, TAG_DICT, frame.nItems / 2);
+        return true;
+    }
+
+    @Override
+    public boolean beginArray(long reserve) {
+        pushFrame(false);
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        final Frame frame = frames.get(depth);
+        if (frame.isDict || (depth <= 0)) { throw new IllegalStateException("Not in an array"); }
+        endCollection(frame, TAG_ARRAY, frame.nItems);
+        return true;
+    }
+
+    @Override
+    public boolean writeKey(String key) {
+        final Frame frame = frames.get(depth);
+        if ((!frame.isDict) || ((frame.nItems % 2) != 0)) { throw new IllegalStateException("Not expecting a key"); }
+        if (key == null) { throw new IllegalArgumentException("Key must not be null"); }
+
+        final int sharedKey = (sharedKeys == null) ? -1 : sharedKeys.encode(key);
+        if (sharedKey >= 0) {
+            frame.addKey(sharedKey, null);
+            writeInt(sharedKey);
+            return true;
+        }
+
+        final byte[] keyBytes = (sharedKeys == null)
+            ? key.getBytes(StandardCharsets.UTF_8)
+            : sharedKeys.getKeyBytes(key);
+        frame.addKey(-1, keyBytes);
+        return writeString(key, keyBytes);
+    }
+
+    @SuppressWarnings({"unchecked", "PMD.NPathComplexity"})
+    @Override
+    public boolean writeValue(Object value) {
+        if (value == null) { return writeNull(); }
+
+        if (value instanceof Boolean) { return writeBool((Boolean) value); }
+
+        if (value instanceof Number) { return writeNumber((Number) value); }
+
+        if (value instanceof String) { return writeString((String) value); }
+
+        if (value instanceof byte[]) { return writeData((byte[]) value); }
+
+        if (value instanceof List) { return write((List<?>) value); }
+
+        if (value instanceof Map) { return write((Map<String, Object>) value); }
+
+        if (value instanceof FLValue) { return copy((FLValue) value); }
+
+        if (value instanceof FLDict) { return copy((FLDict) value); }
+
+        if (value instanceof FLArray) { return copy((FLArray) value); }
+
+        if (value instanceof FLEncodable) {
+            ((FLEncodable) value).encodeTo(this);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public byte[] finish() throws LiteCoreException {
+        final int size = finishDocument();
+        final byte[] data = new byte[size];
+        final ByteBuffer src = out.duplicate();
+        src.clear();
+        src.get(data, 0, size);
+        return data;
+    }
+
+    /**
+     * Finish encoding and copy the document into native memory.  This is the only native call.
+     *
+     * @return the encoded document.  The caller must free it.
+     * @throws LiteCoreException on failure
+     */
+    @Override
+    public FLSliceResult finish2() throws LiteCoreException {
+        return new FLSliceResult(toSliceResult(out, finishDocument()));
+    }
+
+    @Override
+    public FLSliceResult managedFinish2() throws LiteCoreException {
+        return new FLSliceResult(toSliceResult(out, finishDocument()), true);
+    }
+
+    @Override
+    public void reset() {
+        if (out.capacity() > MAX_RETAINED_BUFFER_SIZE) { out = allocate(INITIAL_BUFFER_SIZE); }
+        if (spare.capacity() > MAX_RETAINED_BUFFER_SIZE) { spare = allocate(INITIAL_BUFFER_SIZE); }
+        pos = 0;
+        writtenStrings.clear();
+        amendBase = null;
+        depth = 0;
+        if (frames.isEmpty()) { frames.add(new Frame()); }
+        frames.get(0).reset(false);
+    }
+
+    //-------------------------------------------------------------------------
+    // Private methods
+    //-------------------------------------------------------------------------
+
+    @NonNull
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Fleece writes floating point numbers that have integer values as integers
+    private static boolean isIntegral(double value) {
+        return (value >= -9.223372036854775808E18) && (value < 9.223372036854775808E18) && (value == Math.floor(value));
+    }
+
+    //// Copying existing Fleece values
+
+    private boolean copy(@NonNull FLValue value) {
+        if (value.getBuffer() == null) {
+            // Try to decode the value in Java.  Failing that, decode it natively, in a single call.
+            final FleeceBuffer buffer = FleeceBuffer.forValue(value, sharedKeys);
+            if (buffer == null) { return writeValue(value.asObject()); }
+            return copyBuffered(buffer.wrap(value));
+        }
+        return copyBuffered(value);
+    }
+
+    private boolean copy(@NonNull FLDict dict) {
+        if (dict.getBuffer() == null) {
+            final FLDict wrapped = FleeceBuffer.wrap(dict, sharedKeys);
+            if (wrapped.getBuffer() == null) { return write(dict.asDict()); }
+            return copyBuffered(wrapped);
+        }
+        return copyBuffered(dict);
+    }
+
+    private boolean copy(@NonNull FLArray array) {
+        if (array.getBuffer() == null) { return write(array.asArray()); }
+        return copyBuffered(array);
+    }
+
+    private boolean copyBuffered(@NonNull FLValue value) {
+        final int type = value.getType();
+
+        // When amending, a value from the base document can just be pointed at. Scalars are cheap to copy.
+        if ((type == FLConstants.ValueType.ARRAY)
+            || (type == FLConstants.ValueType.DICT)
+            || (type == FLConstants.ValueType.STRING)
+            || (type == FLConstants.ValueType.DATA)) {
+            if (pointToBase(value.getBuffer(), value.getOffset())) { return true; }
+        }
+
+        switch (type) {
+            case FLConstants.ValueType.BOOLEAN:
+                return writeBool(value.asBool());
+            case FLConstants.ValueType.NUMBER:
+                if (value.isInteger()) {
+                    final long n = value.asInt();
+                    if (value.isUnsigned() && (n < 0)) {
+                        writeIntBytes(n, 8, true);
+                        return true;
+                    }
+                    return writeInt(n);
+                }
+                return (value.isDouble()) ? writeDouble(value.asDouble()) : writeFloat(value.asFloat());
+            case FLConstants.ValueType.STRING:
+                return writeString(value.asString());
+            case FLConstants.ValueType.DATA:
+                return writeData(value.asData());
+            case FLConstants.ValueType.ARRAY:
+                return copyBuffered(value.asFLArray());
+            case FLConstants.ValueType.DICT:
+                return copyBuffered(value.asFLDict());
+            default:
+                return writeNull();
+        }
+    }
+
+    private boolean copyBuffered(@NonNull FLDict dict) {
+        if (pointToBase(dict.getBuffer(), dict.getOffset())) { return true; }
+
+        beginDict(dict.count());
+        dict.forEach((key, value) -> {
+            writeKey(key);
+            copyBuffered(value);
+        });
+        return endDict();
+    }
+
+    private boolean copyBuffered(@NonNull FLArray array) {
+        if (pointToBase(array.getBuffer(), array.getOffset())) { return true; }
+
+        final long n = array.count();
+        beginArray(n);
+        for (long i = 0; i < n; i++) { copyBuffered(array.get(i)); }
+        return endArray();
+    }
+
+    // Values small enough to be inline may be in a slot, in the base: those are just copied.
+    private boolean pointToBase(@Nullable FleeceBuffer buffer, int offset) {
+        if ((amendBase == null) || (buffer == null) || !amendBase.isSameDocument(buffer)) { return false; }
+        if (amendBase.encodedSize(offset) <= WIDE) { return false; }
+        addPointer(offset);
+        return true;
+    }
+
+    //// Values
+
+    // Numbers that cannot be encoded exactly (BigDecimal, for instance) are not silently converted.
+    private boolean writeNumber(@NonNull Number value) {
+        if ((value instanceof Integer)
+            || (value instanceof Long)
+            || (value instanceof Short)
+            || (value instanceof Byte)
+            || (value instanceof AtomicInteger)
+            || (value instanceof AtomicLong)) {
+            return writeInt(value.longValue());
+        }
+        if (value instanceof Double) { return writeDouble((Double) value); }
+        if (value instanceof Float) { return writeFloat((Float) value); }
+        throw new IllegalArgumentException("Cannot encode a number of type " + value.getClass().getName());
+    }
+
+    private boolean writeString(@NonNull String value, @Nullable byte[] utf8) {
+        final Integer prev = writtenStrings.get(value);
+        if (prev != null) {
+            addPointer(prev);
+            return true;
+        }
+
+        final byte[] bytes = (utf8 != null) ? utf8 : value.getBytes(StandardCharsets.UTF_8);
+        final int offset = writeBytes(TAG_STRING, bytes);
+        if ((offset >= 0) && (bytes.length <= MAX_SHARED_STRING_SIZE)) { writtenStrings.put(value, offset); }
+        return true;
+    }
+
+    private void writeIntBytes(long value, int size, boolean unsigned) {
+        final int valueSize = size + 1;
+        if (valueSize <= WIDE) {
+            int packed = TAG_INT | (unsigned ? 0x08 : 0) | (size - 1);
+            for (int i = 0; i < size; i++) { packed |= (int) ((value >> (8 * i)) & 0xFF) << (8 * (i + 1)); }
+            addInline(valueSize, packed);
+            return;
+        }
+
+        final int start = beginValue(valueSize);
+        out.put(start, (byte) (TAG_INT | (unsigned ? 0x08 : 0) | (size - 1)));
+        for (int i = 0; i < size; i++) { out.put(start + 1 + i, (byte) (value >> (8 * i))); }
+        endValue(start, valueSize);
+    }
+
+    // Returns the offset of the value, or -1 if the value was inlined.
+    // As in Fleece, only strings and data shorter than a narrow slot are inlined: a single byte, at most.
+    private int writeBytes(int tag, @NonNull byte[] bytes) {
+        final int len = bytes.length;
+        if (len < NARROW) {
+            addInline(len + 1, tag | len | ((len > 0) ? (bytes[0] & 0xFF) << 8 : 0));
+            return -1;
+        }
+
+        final int lenSize = (len < 0x0F) ? 0 : varIntSize(len);
+        final int valueSize = 1 + lenSize + len;
+        final int start = beginValue(valueSize);
+        int p = start;
+        if (len < 0x0F) { out.put(p++, (byte) (tag | len)); }
+        else {
+            out.put(p++, (byte) (tag | 0x0F));
+            p = putVarInt(p, len);
+        }
+        final ByteBuffer dst = out.duplicate();
+        dst.clear();
+        dst.position(p);
+        dst.put(bytes);
+        endValue(start, valueSize);
+        return start;
+    }
+
+    // Reserve space for a value, at an even offset.
+    private int beginValue(int size) {
+        ensureCapacity(size + 1);
+        return pos;
+    }
+
+    private void endValue(int start, int size) {
+        pos = start + size;
+        if ((pos & 1) != 0) { out.put(pos++, (byte) 0); }
+        addPointer(start);
+    }
+
+    private void addInline(int size, int packed) { frames.get(depth).add(size, packed); }
+
+    private void addPointer(int offset) { frames.get(depth).add(POINTER, offset); }
+
+    //// Collections
+
+    private void pushFrame(boolean isDict) {
+        final Frame parent = frames.get(depth);
+        if (parent.isDict && ((parent.nItems % 2) == 0)) { throw new IllegalStateException("Expecting a key"); }
+
+        depth++;
+        if (depth >= frames.size()) { frames.add(new Frame()); }
+        frames.get(depth).reset(isDict);
+    }
+
+    private void endCollection(@NonNull Frame frame, int tag, int count) {
+        final int nSlots = frame.nItems;
+        final int headerSize = (count < LONG_COLLECTION_COUNT) ? 2 : 2 + varIntSize(count - LONG_COLLECTION_COUNT);
+        final int firstSlot = pos + headerSize + (headerSize & 1);
+
+        // Use narrow slots if all values and pointers fit
+        boolean wide = frame.isWide;
+        for (int i = 0; (!wide) && (i < nSlots); i++) {
+            if ((frame.itemSizes[i] == POINTER)
+                && (((firstSlot + (i * NARROW)) - frame.itemData[i]) >> 1) > MAX_NARROW_OFFSET) {
+                wide = true;
+            }
+        }
+        final int width = wide ? WIDE : NARROW;
+
+        ensureCapacity((firstSlot - pos) + (nSlots * width));
+        final int start = pos;
+        out.put(start, (byte) (tag | (wide ? 0x08 : 0) | ((Math.min(count, LONG_COLLECTION_COUNT) >> 8) & 0x07)));
+        out.put(start + 1, (byte) Math.min(count, LONG_COLLECTION_COUNT));
+        if (count >= LONG_COLLECTION_COUNT) {
+            final int p = putVarInt(start + 2, count - LONG_COLLECTION_COUNT);
+            if (p < firstSlot) { out.put(p, (byte) 0); }
+        }
+
+        int slot = firstSlot;
+        for (int i = 0; i < nSlots; i++) {
+            putSlot(slot, width, frame.itemSizes[i], frame.itemData[i]);
+            slot += width;
+        }
+        pos = slot;
+
+        depth--;
+        addPointer(start);
+    }
+
+    private void putSlot(int slot, int width, int size, int data) {
+        if (size == POINTER) {
+            final int offset = (slot - data) >> 1;
+            if (width == NARROW) {
+                out.put(slot, (byte) (0x80 | (offset >> 8)));
+                out.put(slot + 1, (byte) offset);
+            }
+            else {
+                out.put(slot, (byte) (0x80 | (offset >> 24)));
+                out.put(slot + 1, (byte) (offset >> 16));
+                out.put(slot + 2, (byte) (offset >> 8));
+                out.put(slot + 3, (byte) offset);
+            }
+            return;
+        }
+
+        for (int i = 0; i < width; i++) { out.put(slot + i, (byte) ((i < size) ? (data >> (8 * i)) : 0)); }
+    }
+
+    // Fleece dictionaries are sorted: shared keys first, in numeric order, then strings, in byte order.
+    // Dictionaries are usually small: insertion sort is fine.
+    private void sortEntries(@NonNull Frame frame) {
+        final int n = frame.nItems / 2;
+        for (int i = 1; i < n; i++) {
+            for (int j = i; (j > 0) && (compareKeys(frame, j - 1, j) > 0); j--) { swapEntries(frame, j - 1, j); }
+        }
+    }
+
+    private int compareKeys(@NonNull Frame frame, int e1, int e2) {
+        final int k1 = frame.intKeys[e1];
+        final int k2 = frame.intKeys[e2];
+        if ((k1 >= 0) || (k2 >= 0)) {
+            if (k2 < 0) { return -1; }
+            if (k1 < 0) { return 1; }
+            return Integer.compare(k1, k2);
+        }
+
+        final byte[] s1 = frame.strKeys[e1];
+        final byte[] s2 = frame.strKeys[e2];
+        final int n = Math.min(s1.length, s2.length);
+        for (int i = 0; i < n; i++) {
+            final int cmp = (s1[i] & 0xFF) - (s2[i] & 0xFF);
+            if (cmp != 0) { return cmp; }
+        }
+        return s1.length - s2.length;
+    }
+
+    private void swapEntries(@NonNull Frame frame, int e1, int e2) {
+        final int intKey = frame.intKeys[e1];
+        frame.intKeys[e1] = frame.intKeys[e2];
+        frame.intKeys[e2] = intKey;
+
+        final byte[] strKey = frame.strKeys[e1];
+        frame.strKeys[e1] = frame.strKeys[e2];
+        frame.strKeys[e2] = strKey;
+
+        for (int i = 0; i < 2; i++) {
+            final int s1 = (2 * e1) + i;
+            final int s2 = (2 * e2) + i;
+
+            final int size = frame.itemSizes[s1];
+            frame.itemSizes[s1] = frame.itemSizes[s2];
+            frame.itemSizes[s2] = size;
+
+            final int data = frame.itemData[s1];
+            frame.itemData[s1] = frame.itemData[s2];
+            frame.itemData[s2] = data;
+        }
+    }
+
+    //// The document
+
+    // Write the root: the last two bytes of a Fleece document.
+    private int finishDocument() {
+        final Frame root = frames.get(0);
+        if ((depth != 0) || (root.nItems != 1)) { throw new IllegalStateException("Incomplete document"); }
+
+        if (amendBase != null) { compact(root); }
+
+        int size = root.itemSizes[0];
+        int data = root.itemData[0];
+
+        // The root can hold a narrow, inline value.  Anything else must be written out of line.
+        if (size > NARROW) {
+            ensureCapacity(WIDE);
+            final int start = pos;
+            putSlot(start, WIDE, size, data);
+            pos += WIDE;
+            size = POINTER;
+            data = start;
+        }
+
+        ensureCapacity(2 * WIDE);
+        if ((size == POINTER) && (((pos - data) >> 1) > MAX_NARROW_OFFSET)) {
+            // Too far for a narrow pointer: point to a wide pointer.
+            putSlot(pos, WIDE, POINTER, data);
+            data = pos;
+            pos += WIDE;
+        }
+
+        putSlot(pos, NARROW, size, data);
+        pos += NARROW;
+
+        if (amendBase != null) { amendCount++; }
+
+        return pos;
+    }
+
+    // Drop the values that the amended document does not use, by copying the ones it does into the spare buffer.
+    // The base is still in the output buffer: this does not read the base document itself.
+    private void compact(@NonNull Frame root) {
+        // An inline root uses nothing in the output
+        if (root.itemSizes[0] != POINTER) {
+            pos = 0;
+            return;
+        }
+
+        if (spare.capacity() < pos) { spare = allocate(out.capacity()); }
+
+        final FleeceBuffer doc = FleeceBuffer.forOutput(out, pos);
+        final int rootValue = root.itemData[0];
+        pos = doc.compactTo(rootValue, spare);
+        // The root is the last value: everything it contains precedes it.
+        root.itemData[0] = pos - (int) doc.encodedSize(rootValue);
+
+        final ByteBuffer compacted = spare;
+        spare = out;
+        out = compacted;
+    }
+
+    private void ensureCapacity(int n) {
+        final int needed = pos + n;
+        if (needed <= out.capacity()) { return; }
+
+        int capacity = out.capacity() * 2;
+        while (capacity < needed) { capacity *= 2; }
+
+        final ByteBuffer newOut = allocate(capacity);
+        final ByteBuffer src = out.duplicate();
+        src.position(0).limit(pos);
+        newOut.put(src);
+        out = newOut;
+    }
+
+    private static int varIntSize(int n) {
+        int size = 1;
+        int v = n >>> 7;
+        while (v != 0) {
+            size++;
+            v >>>= 7;
+        }
+        return size;
+    }
+
+    private int putVarInt(int p, int n) {
+        int v = n;
+        int i = p;
+        while (v >= 0x80) {
+            out.put(i++, (byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put(i++, (byte) v);
+        return i;
+    }
+
+    //-------------------------------------------------------------------------
+    // native methods
+    //-------------------------------------------------------------------------
+
+    // Copy the first size bytes of the buffer into a new FLSliceResult.
+    private static native long toSliceResult(ByteBuffer buf, int size);
+}
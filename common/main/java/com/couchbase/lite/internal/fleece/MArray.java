@@ -79,6 +79,19 @@ public class MArray extends MCollection {
         return value;
     }
 
+    /**
+     * Get the MValue for the item at the index, but only if it already exists: that is, only if the item
+     * has already been read, or has been changed.  Otherwise, return null: the item is still only in the
+     * base Fleece array, from which scalars can be read without creating an MValue.
+     * If the index is out of range, returns an empty MValue.
+     */
+    public MValue getExisting(long index) {
+        if (index < 0 || index >= values.size()) { return MValue.EMPTY; }
+
+        final MValue value = values.get((int) index);
+        return (value.isEmpty() && (baseArray != null)) ? null : value;
+    }
+
     public boolean set(long index, Object value) {
         if (!isMutable()) { throw new IllegalStateException("Cannot set items in a non-mutable MArray"); }
 
@@ -16,20 +16,141 @@
 package com.couchbase.lite.internal.fleece;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
 public class MDict extends MCollection implements Iterable<String> {
+    //---------------------------------------------
+    // Types
+    //---------------------------------------------
+
+    // Walks the keys of the Fleece dictionary, lazily, skipping those that have been removed,
+    // and then the keys that have been added.  Changes made while iterating may or may not be visible.
+    private abstract class LazyIterator<T> implements Iterator<T> {
+        @Nullable
+        private final FLDict dict = flDict;
+        @Nullable
+        private final FleeceBuffer buffer = (dict == null) ? null : dict.getBuffer();
+        private final int dictOffset = (dict == null) ? 0 : dict.getOffset();
+        private final int dictCount = (dict == null) ? 0 : (int) dict.count();
+
+        // A Fleece dictionary that is not backed by a FleeceBuffer cannot be read lazily
+        @Nullable
+        private final List<Map.Entry<String, FLValue>> dictEntries;
+        @NonNull
+        private final List<String> addedKeys;
+
+        private int dictIndex;
+        private int addedIndex;
+
+        @Nullable
+        private String nextKey;
+        // null if the next key is in the Fleece dictionary and has not been read
+        @Nullable
+        private MValue nextValue;
+        private int nextDictIndex;
+
+        LazyIterator() {
+            if ((dict == null) || (buffer != null)) { dictEntries = null; }
+            else {
+                dictEntries = new ArrayList<>(dictCount);
+                dict.forEach((key, value) -> dictEntries.add(new AbstractMap.SimpleImmutableEntry<>(key, value)));
+            }
+            // a copy: keys may be added while iterating
+            addedKeys = new ArrayList<>(MDict.this.addedKeys);
+        }
+
+        @Override
+        public final boolean hasNext() { return advance(); }
+
+        @Override
+        public final T next() {
+            if (!advance()) { throw new NoSuchElementException(); }
+
+            final String key = nextKey;
+            nextKey = null;
+
+            return getNext(key, nextValue, nextDictIndex);
+        }
+
+        @NonNull
+        abstract T getNext(@NonNull String key, @Nullable MValue value, int index);
+
+        @NonNull
+        final FLValue getDictValue(int index) {
+            return (buffer != null)
+                ? new FLValue(buffer, buffer.dictValueAt(dictOffset, index))
+                : Preconditions.assertNotNull(dictEntries, "entries").get(index).getValue();
+        }
+
+        private boolean advance() {
+            if (nextKey != null) { return true; }
+
+            // stop walking the Fleece dictionary if it has been cleared
+            while ((dictIndex < dictCount) && (dict == flDict)) {
+                final int index = dictIndex++;
+                final String key = (buffer != null)
+                    ? buffer.dictKeyAt(dictOffset, index)
+                    : Preconditions.assertNotNull(dictEntries, "entries").get(index).getKey();
+                final MValue value = valueMap.get(key);
+                if ((value == null) || (!value.isEmpty())) { return setNext(key, value, index); }
+            }
+
+            while (addedIndex < addedKeys.size()) {
+                final String key = addedKeys.get(addedIndex++);
+                final MValue value = valueMap.get(key);
+                if ((value != null) && (!value.isEmpty())) { return setNext(key, value, -1); }
+            }
+
+            return false;
+        }
+
+        private boolean setNext(@NonNull String key, @Nullable MValue value, int index) {
+            nextKey = key;
+            nextValue = value;
+            nextDictIndex = index;
+            return true;
+        }
+    }
+
+    private final class KeyIterator extends LazyIterator<String> {
+        @NonNull
+        @Override
+        String getNext(@NonNull String key, @Nullable MValue value, int index) { return key; }
+    }
+
+    private final class EntryIterator extends LazyIterator<Map.Entry<String, MValue>> {
+        @NonNull
+        @Override
+        Map.Entry<String, MValue> getNext(@NonNull String key, @Nullable MValue value, int index) {
+            return new AbstractMap.SimpleImmutableEntry<>(
+                key,
+                (value != null) ? value : setInMap(key, new MValue(getDictValue(index))));
+        }
+    }
+
+
+    //---------------------------------------------
+    // Instance members
+    //---------------------------------------------
+
     // ??? What is this for?
     private final List<String> newKey = new ArrayList<>();
     private Map<String, MValue> valueMap = new HashMap<>();
+    // Keys that have been set and that are not in the Fleece dictionary, in the order they were added.
+    // A key stays here after it is removed (its value is then empty) so that setting it again needs no lookup.
+    private LinkedHashSet<String> addedKeys = new LinkedHashSet<>();
     private FLDict flDict;
     private long valCount;
 
@@ -42,6 +163,7 @@ public class MDict extends MCollection implements Iterable<String> {
         super.initAsCopyOf(d, isMutable);
         flDict = d.flDict;
         valueMap = new HashMap<>(d.valueMap);
+        addedKeys = new LinkedHashSet<>(d.addedKeys);
         valCount = d.valCount;
     }
 
@@ -53,9 +175,24 @@ public class MDict extends MCollection implements Iterable<String> {
     public long count() { return valCount; }
 
     /* Iterable */
+
+    /**
+     * Iterate over the keys of this dictionary, lazily: keys are read as the iteration reaches them.
+     *
+     * @return an iterator over the keys
+     */
     @NonNull
     @Override
-    public Iterator<String> iterator() { return getKeys().iterator(); }
+    public Iterator<String> iterator() { return new KeyIterator(); }
+
+    /**
+     * Iterate over the entries of this dictionary, lazily.  Each value is the MValue that get() would
+     * return for the key: getting it this way, though, does not require a second lookup.
+     *
+     * @return an iterator over the entries
+     */
+    @NonNull
+    public Iterator<Map.Entry<String, MValue>> entryIterator() { return new EntryIterator(); }
 
     /* Encodable */
 
@@ -79,21 +216,12 @@ public class MDict extends MCollection implements Iterable<String> {
             }
 
             if ((flDict != null) && (flDict.count() > 0)) {
-                final FLDictIterator itr = new FLDictIterator();
-                try {
-                    itr.begin(flDict);
-                    String key;
-                    while ((key = itr.getKeyString()) != null) {
-                        if (!valueMap.containsKey(key)) {
-                            enc.writeKey(key);
-                            enc.writeValue(itr.getValue());
-                        }
-                        itr.next();
+                flDict.forEach((key, value) -> {
+                    if (!valueMap.containsKey(key)) {
+                        enc.writeKey(key);
+                        enc.writeValue(value);
                     }
-                }
-                finally {
-                    itr.free();
-                }
+                });
             }
             enc.endDict();
         }
@@ -106,21 +234,10 @@ public class MDict extends MCollection implements Iterable<String> {
 
         mutate();
         valueMap.clear();
+        addedKeys.clear();
 
-        if ((flDict != null) && (flDict.count() > 0)) {
-            final FLDictIterator itr = new FLDictIterator();
-            try {
-                itr.begin(flDict);
-                String key;
-                while ((key = itr.getKeyString()) != null) {
-                    valueMap.put(key, MValue.EMPTY);
-                    itr.next();
-                }
-            }
-            finally {
-                itr.free();
-            }
-        }
+        // Rather than hiding each of its keys, drop the Fleece dictionary
+        flDict = null;
 
         valCount = 0;
         return true;
@@ -133,26 +250,8 @@ public class MDict extends MCollection implements Iterable<String> {
     }
 
     public List<String> getKeys() {
-        final List<String> keys = new ArrayList<>();
-        for (Map.Entry<String, MValue> entry : valueMap.entrySet()) {
-            if (!entry.getValue().isEmpty()) { keys.add(entry.getKey()); }
-        }
-
-        if ((flDict != null) && (flDict.count() > 0)) {
-            final FLDictIterator itr = new FLDictIterator();
-            try {
-                itr.begin(flDict);
-                String key;
-                while ((key = itr.getKeyString()) != null) {
-                    if (!valueMap.containsKey(key)) { keys.add(key); }
-                    itr.next();
-                }
-            }
-            finally {
-                itr.free();
-            }
-        }
-
+        final List<String> keys = new ArrayList<>((int) valCount);
+        for (String key : this) { keys.add(key); }
         return keys;
     }
 
@@ -169,6 +268,20 @@ public class MDict extends MCollection implements Iterable<String> {
         return (value == null) ? MValue.EMPTY : setInMap(key, new MValue(value));
     }
 
+    /**
+     * Get the MValue for the key, but only if it already exists: that is, only if the value has already
+     * been read, or has been changed.  Otherwise, return null: the value is still only in the backing
+     * Fleece dictionary, from which scalars can be read without creating an MValue.
+     *
+     * @param key the key
+     * @return the existing MValue, or null
+     */
+    @Nullable
+    public MValue getExisting(@NonNull String key) { return valueMap.get(key); }
+
+    @Nullable
+    public FLDict getBackingDict() { return flDict; }
+
     public boolean set(String key, MValue value) {
         Preconditions.assertNotNull(key, "key");
         Preconditions.assertThat(this, "Cannot call set on a non-mutable MDict", MCollection::isMutable);
@@ -188,7 +301,8 @@ public class MDict extends MCollection implements Iterable<String> {
             }
             else {
                 if (value.isEmpty()) { return true; }
-                else { valCount++; }
+                valCount++;
+                addedKeys.add(key);
             }
 
             mutate();
@@ -56,13 +56,13 @@ public class MRoot extends MCollection {
     public Object asNative() { return slot.asNative(this); }
 
     public AllocSlice encode() throws LiteCoreException {
-        final FLEncoder encoder = new FLEncoder();
+        final FLEncoder encoder = FLEncoderPool.acquire();
         try {
             slot.encodeTo(encoder);
             return encoder.finish2();
         }
         finally {
-            encoder.free();
+            FLEncoderPool.release(encoder);
         }
     }
 }
@@ -0,0 +1,101 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.fleece;
+
+import android.support.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * A fixed size table of strings decoded from UTF-8: decoding the same bytes again returns the same String.
+ * A string that collides with another simply replaces it.  Long strings are not interned.
+ * This class is thread safe, without locking: threads that race may replace each other's entries,
+ * but an entry is immutable, so a string is never returned for the wrong bytes.
+ */
+public final class StringInterner {
+    private static final class Entry {
+        @NonNull
+        final byte[] bytes;
+        @NonNull
+        final String str;
+
+        Entry(@NonNull byte[] bytes, @NonNull String str) {
+            this.bytes = bytes;
+            this.str = str;
+        }
+    }
+
+    // Size of the table: must be a power of 2
+    private static final int DEFAULT_SIZE = 1024;
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    @NonNull
+    private final Entry[] entries;
+
+    public StringInterner() { this(DEFAULT_SIZE); }
+
+    /**
+     * @param size the number of entries in the table: must be a power of 2.
+     */
+    public StringInterner(int size) {
+        if ((size <= 0) || ((size & (size - 1)) != 0)) {
+            throw new IllegalArgumentException("size must be a power of 2: " + size);
+        }
+        entries = new Entry[size];
+    }
+
+    /**
+     * Get the string for UTF-8 bytes, without creating a new String, if possible.
+     *
+     * @param data  the buffer that contains the string
+     * @param start the offset of the string's UTF-8 bytes
+     * @param len   the number of bytes in the string
+     * @return the string
+     */
+    @NonNull
+    public String intern(@NonNull ByteBuffer data, int start, int len) {
+        if (len > MAX_INTERNED_LENGTH) { return decode(data, start, len); }
+
+        // FNV-1a
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < len; i++) { hash = (hash ^ (data.get(start + i) & 0xFF)) * 0x01000193; }
+        final int idx = hash & (entries.length - 1);
+
+        final Entry entry = entries[idx];
+        if ((entry != null) && (entry.bytes.length == len)) {
+            final byte[] bytes = entry.bytes;
+            int i = 0;
+            while ((i < len) && (bytes[i] == data.get(start + i))) { i++; }
+            if (i == len) { return entry.str; }
+        }
+
+        final byte[] newBytes = new byte[len];
+        for (int i = 0; i < len; i++) { newBytes[i] = data.get(start + i); }
+        final String str = new String(newBytes, StandardCharsets.UTF_8);
+        entries[idx] = new Entry(newBytes, str);
+
+        return str;
+    }
+
+    @NonNull
+    private static String decode(@NonNull ByteBuffer data, int start, int len) {
+        final byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) { bytes[i] = data.get(start + i); }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -66,6 +66,8 @@ import com.couchbase.lite.internal.core.C4Replicator;
 import com.couchbase.lite.internal.core.C4Socket;
 import com.couchbase.lite.internal.core.NativeContext;
 import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLEncoderPool;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
 import com.couchbase.lite.internal.fleece.FLValue;
 import com.couchbase.lite.internal.support.Log;
 import com.couchbase.lite.internal.utils.Fn;
@@ -477,17 +479,22 @@ public class AbstractCBLWebSocket extends C4Socket {
         final Headers hs = response.headers();
         if ((hs == null) || (hs.size() <= 0)) { return; }
 
-        byte[] headersFleece = null;
+        FLSliceResult headersFleece = null;
         final Map<String, Object> headers = new HashMap<>();
         for (int i = 0; i < hs.size(); i++) { headers.put(hs.name(i), hs.value(i)); }
 
-        final FLEncoder enc = new FLEncoder();
-        enc.write(headers);
-        try { headersFleece = enc.finish(); }
+        final FLEncoder enc = FLEncoderPool.acquire();
+        try {
+            enc.write(headers);
+            headersFleece = enc.finish2();
+        }
         catch (LiteCoreException e) { Log.e(TAG, "CBLWebSocket failed to encode response header", e); }
-        finally { enc.free(); }
+        finally { FLEncoderPool.release(enc); }
 
-        gotHTTPResponse(httpStatus, headersFleece);
+        try { gotHTTPResponse(httpStatus, headersFleece); }
+        finally {
+            if (headersFleece != null) { headersFleece.free(); }
+        }
     }
 
     private void didClose(int code, String reason) {
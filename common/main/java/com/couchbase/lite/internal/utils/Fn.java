@@ -30,6 +30,8 @@ public interface Fn {
     @FunctionalInterface
     interface Consumer<T> { void accept(T x); }
     @FunctionalInterface
+    interface BiConsumer<T, U> { void accept(T x, U y); }
+    @FunctionalInterface
     interface TaskThrows<E extends Throwable> { void run() throws E; }
     @FunctionalInterface
     interface Runner { void run(Runnable r); }
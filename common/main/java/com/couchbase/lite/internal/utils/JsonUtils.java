@@ -15,6 +15,9 @@
 //
 package com.couchbase.lite.internal.utils;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -27,6 +30,23 @@ import org.json.JSONObject;
 
 
 public final class JsonUtils {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Write a tree of Maps, Lists and scalars as compact JSON, without building a JSONObject.
+     * Scalars are Strings, Numbers, Booleans and null: anything else is written as its string.
+     *
+     * @param value the root of the tree
+     * @return the JSON
+     * @throws JSONException if the tree contains a number that is not valid in JSON (NaN or infinity)
+     */
+    @NonNull
+    public static String toJsonString(@Nullable Object value) throws JSONException {
+        final StringBuilder buf = new StringBuilder();
+        writeJson(buf, value);
+        return buf.toString();
+    }
+
     @SuppressWarnings("unchecked")
     public static JSONObject toJson(Map<String, Object> map) throws JSONException {
         if (map == null) { return null; }
@@ -79,5 +99,69 @@ public final class JsonUtils {
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    private static void writeJson(@NonNull StringBuilder buf, @Nullable Object value) throws JSONException {
+        if (value == null) { buf.append("null"); }
+        else if (value instanceof String) { writeJsonString(buf, (String) value); }
+        else if (value instanceof Boolean) { buf.append(((Boolean) value) ? "true" : "false"); }
+        else if (value instanceof Number) { buf.append(JSONObject.numberToString((Number) value)); }
+        else if (value instanceof Map) {
+            buf.append('{');
+            boolean first = true;
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                if (!first) { buf.append(','); }
+                first = false;
+                writeJsonString(buf, entry.getKey());
+                buf.append(':');
+                writeJson(buf, entry.getValue());
+            }
+            buf.append('}');
+        }
+        else if (value instanceof List) {
+            buf.append('[');
+            boolean first = true;
+            for (Object item : (List<Object>) value) {
+                if (!first) { buf.append(','); }
+                first = false;
+                writeJson(buf, item);
+            }
+            buf.append(']');
+        }
+        else { writeJsonString(buf, value.toString()); }
+    }
+
+    private static void writeJsonString(@NonNull StringBuilder buf, @NonNull String str) {
+        buf.append('"');
+        final int n = str.length();
+        for (int i = 0; i < n; i++) {
+            final char c = str.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    buf.append('\\').append(c);
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                case '\b':
+                    buf.append("\\b");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\f':
+                    buf.append("\\f");
+                    break;
+                default:
+                    if (c > 0x1F) { buf.append(c); }
+                    else { buf.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]); }
+            }
+        }
+        buf.append('"');
+    }
+
     private JsonUtils() { }
 }
@@ -0,0 +1,146 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A lock-free, fixed-size, log-linear histogram of latencies, in the style of an HdrHistogram.
+ * Values are recorded in microseconds.  Each power of two is split into 16 linear sub-buckets,
+ * so any recorded value is reported with a relative error of no more than 1/16 (6.25%).
+ * Values larger than about 2^40us (12 days) are recorded as that maximum.
+ * <p>
+ * Recording is wait-free.  Reads are not atomic with respect to concurrent writes:
+ * a percentile computed while values are being recorded is only approximate.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // Values smaller than SUB_BUCKETS have their own bucket.
+    // Larger values are bucketed by exponent and the next SUB_BUCKET_BITS bits.
+    private static int bucketIndex(long us) {
+        if (us < SUB_BUCKETS) { return (int) Math.max(0, us); }
+        final int exp = Math.min(63 - Long.numberOfLeadingZeros(us), MAX_EXPONENT);
+        final int sub = (int) ((Math.min(us, (1L << (MAX_EXPONENT + 1)) - 1) >>> (exp - SUB_BUCKET_BITS))
+            & (SUB_BUCKETS - 1));
+        return ((exp - SUB_BUCKET_BITS + 1) * SUB_BUCKETS) + sub;
+    }
+
+    // The largest value that falls in the bucket with the passed index.
+    private static long bucketMax(int index) {
+        if (index < SUB_BUCKETS) { return index; }
+        final int exp = (index / SUB_BUCKETS) + SUB_BUCKET_BITS - 1;
+        final long width = 1L << (exp - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + (index % SUB_BUCKETS)) * width) + width - 1;
+    }
+
+
+    @NonNull
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    @NonNull
+    private final AtomicLong count = new AtomicLong();
+    @NonNull
+    private final AtomicLong total = new AtomicLong();
+    @NonNull
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency, in nanoseconds.
+     */
+    public void recordNanos(long nanos) {
+        final long us = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketIndex(us));
+        count.incrementAndGet();
+        total.addAndGet(us);
+
+        long prev = max.get();
+        while ((us > prev) && (!max.compareAndSet(prev, us))) { prev = max.get(); }
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long getCount() { return count.get(); }
+
+    /**
+     * @return the largest recorded value, in microseconds.
+     */
+    public long getMaxMicros() { return max.get(); }
+
+    /**
+     * @return the mean of the recorded values, in microseconds.
+     */
+    public double getMeanMicros() {
+        final long n = count.get();
+        return (n <= 0) ? 0 : ((double) total.get()) / n;
+    }
+
+    /**
+     * Get the value below which the passed percentage of recorded values fall.
+     *
+     * @param percentile a percentile: 0 &lt;= percentile &lt;= 100.
+     * @return the value at the passed percentile, in microseconds.
+     */
+    public long getValueAtPercentileMicros(double percentile) {
+        Preconditions.assertThat(percentile, "percentile must be between 0 and 100", p -> (p >= 0) && (p <= 100));
+
+        final long n = count.get();
+        if (n <= 0) { return 0; }
+
+        final long target = Math.max(1, (long) Math.ceil((percentile / 100.0) * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) { return Math.min(bucketMax(i), max.get()); }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) { counts.set(i, 0); }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(
+            Locale.ENGLISH,
+            "n=%d, mean=%.1fus, p50=%dus, p99=%dus, p99.9=%dus, max=%dus",
+            getCount(),
+            getMeanMicros(),
+            getValueAtPercentileMicros(50),
+            getValueAtPercentileMicros(99),
+            getValueAtPercentileMicros(99.9),
+            getMaxMicros());
+    }
+}
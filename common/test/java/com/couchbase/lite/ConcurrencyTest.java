@@ -16,6 +16,7 @@
 package com.couchbase.lite;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -29,6 +30,7 @@ import org.junit.Test;
 import com.couchbase.lite.internal.utils.ConcurrencyUnitTest;
 import com.couchbase.lite.internal.utils.Report;
 
+import static com.couchbase.lite.internal.utils.TestUtils.assertThrows;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -95,6 +97,99 @@ public class ConcurrencyTest extends BaseDbTest {
         for (int i = 0; i < kNThreads; i++) { verifyByTagName("tag-" + i, kNDocs); }
     }
 
+    @Test
+    @ConcurrencyUnitTest
+    public void testConcurrentCreateGroupCommit() throws CouchbaseLiteException {
+        final int kNDocs = 50;
+        final int kNThreads = 16;
+        final int kWaitInSec = 180;
+
+        baseTestDb = reopenDb(baseTestDb, new DatabaseConfiguration().setGroupCommit(true));
+
+        // concurrently creates documents
+        concurrentValidator(
+            kNThreads,
+            threadIndex -> {
+                String tag = "tag-" + threadIndex;
+                try { createDocs(kNDocs, tag); }
+                catch (CouchbaseLiteException e) { fail(); }
+            },
+            kWaitInSec);
+
+        // validate stored documents
+        assertEquals(kNDocs * kNThreads, baseTestDb.getCount());
+        for (int i = 0; i < kNThreads; i++) { verifyByTagName("tag-" + i, kNDocs); }
+    }
+
+    // Each save in a group gets its own result
+    @Test
+    @ConcurrencyUnitTest
+    public void testConcurrentSaveGroupCommitConflict() throws CouchbaseLiteException {
+        final int kNThreads = 8;
+        final int kWaitInSec = 180;
+
+        baseTestDb = reopenDb(baseTestDb, new DatabaseConfiguration().setGroupCommit(true));
+
+        baseTestDb.save(new MutableDocument("doc1"));
+
+        // every thread tries to update the same revision of the document
+        final MutableDocument[] docs = new MutableDocument[kNThreads];
+        for (int i = 0; i < kNThreads; i++) { docs[i] = baseTestDb.getDocument("doc1").toMutable(); }
+
+        final AtomicInteger saved = new AtomicInteger(0);
+        concurrentValidator(
+            kNThreads,
+            threadIndex -> {
+                docs[threadIndex].setInt("writer", threadIndex);
+                try {
+                    if (baseTestDb.save(docs[threadIndex], ConcurrencyControl.FAIL_ON_CONFLICT)) {
+                        saved.incrementAndGet();
+                    }
+                }
+                catch (CouchbaseLiteException e) { fail(); }
+            },
+            kWaitInSec);
+
+        assertEquals(1, saved.get());
+        assertEquals(1, baseTestDb.getCount());
+    }
+
+    // A writer that has no company does not wait for the group commit window
+    @Test
+    public void testGroupCommitSingleWriter() throws CouchbaseLiteException {
+        baseTestDb = reopenDb(
+            baseTestDb,
+            new DatabaseConfiguration().setGroupCommit(true).setGroupCommitWindowMs(10 * 1000));
+
+        final long start = System.currentTimeMillis();
+        baseTestDb.save(new MutableDocument("doc1"));
+        baseTestDb.save(new MutableDocument("doc2"));
+        assertTrue(System.currentTimeMillis() - start < 5 * 1000);
+
+        assertEquals(2, baseTestDb.getCount());
+    }
+
+    // A runtime exception in one write fails only that write
+    @Test
+    public void testGroupCommitWriteFailure() throws CouchbaseLiteException {
+        final List<String> committed = new ArrayList<>();
+        final GroupCommitter committer = new GroupCommitter(
+            writes -> {
+                for (GroupCommitter.PendingWrite write: writes) {
+                    if ("bad".equals(write.document.getId())) { write.fail(new IllegalStateException("bad")); }
+                    else { committed.add(write.document.getId()); }
+                }
+            },
+            1,
+            8);
+
+        committer.write(newPendingWrite("good1"));
+        assertThrows(IllegalStateException.class, () -> committer.write(newPendingWrite("bad")));
+        committer.write(newPendingWrite("good2"));
+
+        assertEquals(Arrays.asList("good1", "good2"), committed);
+    }
+
     @Test
     @ConcurrencyUnitTest
     public void testConcurrentUpdate() throws CouchbaseLiteException {
@@ -469,6 +564,14 @@ public class ConcurrencyTest extends BaseDbTest {
             180);
     }
 
+    private GroupCommitter.PendingWrite newPendingWrite(String docId) {
+        return new GroupCommitter.PendingWrite(
+            new MutableDocument(docId),
+            null,
+            false,
+            ConcurrencyControl.LAST_WRITE_WINS);
+    }
+
     private MutableDocument createDocumentWithTag(String tag) {
         MutableDocument doc = new MutableDocument();
 
@@ -117,6 +117,37 @@ public class DatabaseTest extends BaseDbTest {
         baseTestDb.getDocument("doc1");
     }
 
+    @Test
+    public void testGetDocuments() throws CouchbaseLiteException {
+        final int n = 10;
+        createDocsInBaseTestDb(n);
+
+        baseTestDb.delete(baseTestDb.getDocument("doc_003"));
+
+        List<String> ids = Arrays.asList("doc_009", "doc_003", "non-exist", "doc_000", "doc_009");
+        List<Document> docs = baseTestDb.getDocuments(ids);
+        assertEquals(ids.size(), docs.size());
+
+        assertEquals("doc_009", docs.get(0).getId());
+        assertEquals(9, docs.get(0).getInt("key"));
+        assertNull(docs.get(1));
+        assertNull(docs.get(2));
+        assertEquals("doc_000", docs.get(3).getId());
+        assertEquals(0, docs.get(3).getInt("key"));
+        assertEquals("doc_009", docs.get(4).getId());
+
+        assertTrue(baseTestDb.getDocuments(new ArrayList<>()).isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetDocumentsFromClosedDB() throws CouchbaseLiteException {
+        createSingleDocInBaseTestDb("doc1");
+
+        baseTestDb.close();
+
+        baseTestDb.getDocuments(Arrays.asList("doc1"));
+    }
+
     //---------------------------------------------
     //  Save Document
     //---------------------------------------------
@@ -368,6 +399,109 @@ public class DatabaseTest extends BaseDbTest {
         baseTestDb.delete(doc);
     }
 
+    //---------------------------------------------
+    //  Bulk Write
+    //---------------------------------------------
+    @Test
+    public void testSaveAll() throws CouchbaseLiteException {
+        // more than one chunk
+        final int nDocs = 300;
+
+        final List<MutableDocument> docs = new ArrayList<>();
+        for (int i = 0; i < nDocs; i++) {
+            MutableDocument doc = new MutableDocument(String.format(Locale.US, "doc_%03d", i));
+            doc.setValue("key", i);
+            docs.add(doc);
+        }
+
+        BulkWriteResult result = baseTestDb.saveAll(docs, ConcurrencyControl.FAIL_ON_CONFLICT);
+        assertEquals(nDocs, result.size());
+        assertTrue(result.isAllSaved());
+        assertEquals(nDocs, result.getSavedCount());
+        assertEquals(nDocs, baseTestDb.getCount());
+
+        for (int i = 0; i < nDocs; i++) {
+            assertEquals(BulkWriteResult.Outcome.SAVED, result.getOutcome(i));
+            assertNull(result.getError(i));
+            assertEquals(i, baseTestDb.getDocument(docs.get(i).getId()).getInt("key"));
+        }
+
+        // the saved documents can be updated
+        for (MutableDocument doc: docs) { doc.setValue("key", -1); }
+        result = baseTestDb.saveAll(docs, ConcurrencyControl.FAIL_ON_CONFLICT);
+        assertTrue(result.isAllSaved());
+        assertEquals(-1, baseTestDb.getDocument("doc_299").getInt("key"));
+    }
+
+    @Test
+    public void testSaveAllWithConflict() throws CouchbaseLiteException {
+        createSingleDocInBaseTestDb("doc1");
+
+        MutableDocument doc1a = baseTestDb.getDocument("doc1").toMutable();
+        MutableDocument doc1b = baseTestDb.getDocument("doc1").toMutable();
+
+        doc1a.setValue("name", "Scott");
+        saveDocInBaseTestDb(doc1a);
+
+        doc1b.setValue("name", "Scotty");
+        MutableDocument doc2 = new MutableDocument("doc2");
+        doc2.setValue("name", "Daniel");
+
+        BulkWriteResult result = baseTestDb.saveAll(Arrays.asList(doc1b, doc2), ConcurrencyControl.FAIL_ON_CONFLICT);
+        assertFalse(result.isAllSaved());
+        assertEquals(BulkWriteResult.Outcome.CONFLICTED, result.getOutcome(0));
+        assertEquals(BulkWriteResult.Outcome.SAVED, result.getOutcome(1));
+        assertEquals(1, result.getConflictedCount());
+        assertEquals(1, result.getSavedCount());
+        assertEquals("Scott", baseTestDb.getDocument("doc1").getString("name"));
+        assertEquals("Daniel", baseTestDb.getDocument("doc2").getString("name"));
+
+        result = baseTestDb.saveAll(Arrays.asList(doc1b), ConcurrencyControl.LAST_WRITE_WINS);
+        assertTrue(result.isAllSaved());
+        assertEquals("Scotty", baseTestDb.getDocument("doc1").getString("name"));
+    }
+
+    @Test
+    public void testSaveAllInDifferentDB() throws CouchbaseLiteException {
+        MutableDocument doc1 = createSingleDocInBaseTestDb("doc1").toMutable();
+        doc1.setValue("key", 2);
+
+        Database otherDb = openDatabase();
+        try {
+            MutableDocument doc2 = new MutableDocument("doc2");
+
+            BulkWriteResult result = otherDb.saveAll(Arrays.asList(doc1, doc2), ConcurrencyControl.LAST_WRITE_WINS);
+            assertEquals(BulkWriteResult.Outcome.FAILED, result.getOutcome(0));
+            assertEquals(CBLError.Code.INVALID_PARAMETER, result.getError(0).getCode());
+            assertEquals(BulkWriteResult.Outcome.SAVED, result.getOutcome(1));
+            assertEquals(1, otherDb.getCount());
+        }
+        finally {
+            deleteDb(otherDb);
+        }
+    }
+
+    @Test
+    public void testDeleteAll() throws CouchbaseLiteException {
+        final int nDocs = 10;
+        createDocsInBaseTestDb(nDocs);
+
+        final List<Document> docs = new ArrayList<>();
+        for (int i = 0; i < nDocs; i++) {
+            docs.add(baseTestDb.getDocument(String.format(Locale.US, "doc_%03d", i)));
+        }
+        // a document that was never saved
+        docs.add(new MutableDocument("doc_new"));
+
+        BulkWriteResult result = baseTestDb.deleteAll(docs, ConcurrencyControl.LAST_WRITE_WINS);
+        assertEquals(nDocs, result.getSavedCount());
+        assertEquals(1, result.getFailedCount());
+        assertEquals(BulkWriteResult.Outcome.FAILED, result.getOutcome(nDocs));
+        assertEquals(CBLError.Code.NOT_FOUND, result.getError(nDocs).getCode());
+        assertEquals(0, baseTestDb.getCount());
+        for (int i = 0; i < nDocs; i++) { assertTrue(docs.get(i).isDeleted()); }
+    }
+
     //---------------------------------------------
     //  Purge Document
     //---------------------------------------------
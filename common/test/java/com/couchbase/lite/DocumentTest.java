@@ -22,21 +22,28 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.couchbase.lite.internal.fleece.FLSliceResult;
+import com.couchbase.lite.internal.fleece.FleeceBuffer;
+import com.couchbase.lite.internal.fleece.FleeceWriter;
 import com.couchbase.lite.internal.utils.DateUtils;
 import com.couchbase.lite.internal.utils.StringUtils;
 import com.couchbase.lite.internal.utils.TestUtils;
 
+import static com.couchbase.lite.internal.utils.TestUtils.assertThrows;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -44,6 +51,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 
@@ -2494,6 +2502,387 @@ public class DocumentTest extends BaseDbTest {
         Assert.assertNotEquals(mDoc3.hashCode(), mDoc2.hashCode());
     }
 
+    // toMap on a saved document decodes the body in bulk: it must produce the same map as the Dictionary.
+    @Test
+    public void testToMapSavedDoc() throws CouchbaseLiteException {
+        final Blob blob = new Blob("text/plain", BLOB_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setValue("string", "Scott Tiger");
+        mDoc.setValue("long", 30L);
+        mDoc.setValue("max", Long.MAX_VALUE);
+        mDoc.setValue("double", 3.14159);
+        mDoc.setValue("boolean", true);
+        mDoc.setValue("null", null);
+        mDoc.setValue("blob", blob);
+
+        MutableDictionary address = new MutableDictionary();
+        address.setValue("street", "1 Main street");
+        address.setValue("blob", blob);
+        mDoc.setValue("address", address);
+
+        MutableArray phones = new MutableArray();
+        phones.addValue("650-123-0001");
+        phones.addValue(new MutableArray().addValue(blob));
+        mDoc.setValue("phones", phones);
+
+        Document doc = saveDocInBaseTestDb(mDoc);
+
+        Map<String, Object> map = doc.toMap();
+        assertEquals(doc.toMutable().toMap(), map);
+        assertEquals(blob, map.get("blob"));
+        assertTrue(map.containsKey("null"));
+        assertNull(map.get("null"));
+        assertEquals(Long.MAX_VALUE, map.get("max"));
+        assertEquals(blob, ((Map<?, ?>) map.get("address")).get("blob"));
+        assertEquals(blob, ((List<?>) ((List<?>) map.get("phones")).get(1)).get(0));
+    }
+
+    // Small updates to a large document are encoded as amendments to the previous revision.
+    // Repeated amendments must not lose or corrupt any of the unchanged content.
+    @Test
+    public void testUpdateLargeDocument() throws CouchbaseLiteException {
+        final int nProps = 500;
+
+        MutableDocument mDoc = new MutableDocument("doc1");
+        for (int i = 0; i < nProps; i++) {
+            final MutableDictionary dict = new MutableDictionary();
+            dict.setString("name", "property number " + i);
+            dict.setInt("index", i);
+            dict.setValue("tags", Arrays.asList("tag-" + i, "tag-" + (i + 1)));
+            mDoc.setDictionary("prop" + i, dict);
+        }
+        mDoc.setInt("counter", 0);
+        mDoc.setString("status", "new");
+
+        Document doc = saveDocInBaseTestDb(mDoc);
+
+        final long amends = baseTestDb.getSharedFleeceWriter().getAmendCount();
+
+        final int nUpdates = 50;
+        for (int i = 1; i <= nUpdates; i++) {
+            mDoc = doc.toMutable();
+            mDoc.setInt("counter", i);
+            mDoc.setString("status", "status-" + i);
+            mDoc.getDictionary("prop" + i).setString("name", "updated " + i);
+            doc = saveDocInBaseTestDb(mDoc);
+        }
+
+        // All of the updates should have been amendments.
+        assertEquals(nUpdates, baseTestDb.getSharedFleeceWriter().getAmendCount() - amends);
+
+        doc = baseTestDb.getDocument("doc1");
+        assertEquals(nUpdates, doc.getInt("counter"));
+        assertEquals("status-" + nUpdates, doc.getString("status"));
+        assertEquals(nProps + 2, doc.count());
+        for (int i = 0; i < nProps; i++) {
+            final Dictionary dict = doc.getDictionary("prop" + i);
+            assertNotNull(dict);
+            assertEquals(((i > 0) && (i <= nUpdates)) ? "updated " + i : "property number " + i, dict.getString("name"));
+            assertEquals(i, dict.getInt("index"));
+            assertEquals(Arrays.asList("tag-" + i, "tag-" + (i + 1)), dict.getArray("tags").toList());
+        }
+
+        // Removing most of the document is an amendment, too: the encoder drops the removed properties.
+        mDoc = doc.toMutable();
+        for (int i = 0; i < nProps - 10; i++) { mDoc.remove("prop" + i); }
+        final long nAmends = baseTestDb.getSharedFleeceWriter().getAmendCount();
+        doc = saveDocInBaseTestDb(mDoc);
+        assertEquals(nAmends + 1, baseTestDb.getSharedFleeceWriter().getAmendCount());
+        assertEquals(12, doc.count());
+        assertEquals("property number " + (nProps - 1), doc.getDictionary("prop" + (nProps - 1)).getString("name"));
+    }
+
+    @Test
+    public void testKeyIteration() throws CouchbaseLiteException {
+        final int nProps = 1000;
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        for (int i = 0; i < nProps; i++) { mDoc.setInt("key" + i, i); }
+        saveDocInBaseTestDb(mDoc);
+
+        final Document doc = baseTestDb.getDocument("doc1");
+        // read some of the values first: they must be iterated exactly once
+        for (int i = 0; i < nProps; i += 3) { assertEquals(i, doc.getValue("key" + i)); }
+
+        final Set<String> keys = new HashSet<>();
+        for (String key: doc) {
+            assertTrue(keys.add(key));
+            assertEquals(Integer.parseInt(key.substring(3)), doc.getInt(key));
+        }
+        assertEquals(nProps, keys.size());
+        assertEquals(nProps, doc.toMap().size());
+
+        final MutableDocument mDoc2 = doc.toMutable();
+        for (int i = 0; i < nProps; i += 2) { mDoc2.remove("key" + i); }
+        mDoc2.setInt("key1", -1);
+        mDoc2.setInt("new1", 1);
+        mDoc2.setInt("new2", 2);
+
+        final Set<String> expected = new HashSet<>();
+        for (int i = 1; i < nProps; i += 2) { expected.add("key" + i); }
+        expected.add("new1");
+        expected.add("new2");
+
+        keys.clear();
+        for (String key: mDoc2) {
+            assertTrue(keys.add(key));
+            // removing keys while iterating is allowed
+            if (key.startsWith("new")) { mDoc2.remove(key); }
+        }
+        assertEquals(expected, keys);
+        assertEquals(expected.size() - 2, mDoc2.count());
+
+        final Map<String, Object> props = mDoc2.toMap();
+        assertEquals(expected.size() - 2, props.size());
+        assertEquals(-1L, ((Number) props.get("key1")).longValue());
+    }
+
+    @Test
+    public void testClearThenSet() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        for (int i = 0; i < 100; i++) { mDoc.setInt("key" + i, i); }
+        saveDocInBaseTestDb(mDoc);
+
+        final MutableDocument mDoc2 = baseTestDb.getDocument("doc1").toMutable();
+        mDoc2.setData(new HashMap<>());
+        assertEquals(0, mDoc2.count());
+        assertFalse(mDoc2.iterator().hasNext());
+        assertFalse(mDoc2.contains("key1"));
+
+        mDoc2.setInt("key1", 42);
+        assertEquals(1, mDoc2.count());
+        assertEquals(Collections.singletonList("key1"), mDoc2.getKeys());
+
+        // an added key that is removed, and then set again, is iterated once
+        mDoc2.setInt("new1", 1);
+        mDoc2.remove("new1");
+        assertEquals(Collections.singletonList("key1"), mDoc2.getKeys());
+        mDoc2.setInt("new1", 2);
+        assertEquals(Arrays.asList("key1", "new1"), mDoc2.getKeys());
+        mDoc2.remove("new1");
+
+        final Document doc = saveDocInBaseTestDb(mDoc2);
+        assertEquals(1, doc.count());
+        assertEquals(42, doc.getInt("key1"));
+    }
+
+    // Document.encode writes with the database's shared keys:
+    // the Java reader, through the shared keys, and LiteCore must both be able to read the body.
+    @Test
+    public void testEncodeWithSharedKeys() throws CouchbaseLiteException, LiteCoreException {
+        final String longKey = "aKeyThatIsTooLongToBeShared";
+
+        final MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setString("name", "Scott");
+        mDoc.setInt(longKey, 42);
+        mDoc.setDictionary("address", new MutableDictionary().setString("city", "Berkeley"));
+
+        final FLSliceResult[] body = new FLSliceResult[1];
+        baseTestDb.inBatch(() -> {
+            try { body[0] = mDoc.encode(); }
+            catch (LiteCoreException e) { throw new IllegalStateException("encode failed", e); }
+        });
+
+        final FleeceWriter unshared = new FleeceWriter(null);
+        FLSliceResult unsharedBody = null;
+        try {
+            unshared.write(mDoc.toMap());
+            unsharedBody = unshared.finish2();
+
+            // the shared keys are written as small ints
+            assertTrue(body[0].getSize() < unsharedBody.getSize());
+
+            final FleeceBuffer buffer = FleeceBuffer.forSlice(body[0], baseTestDb.getFLSharedKeys());
+            assertNotNull(buffer);
+            final Map<String, Object> decoded = buffer.getRoot().asDict();
+            assertEquals(new HashSet<>(Arrays.asList("name", longKey, "address")), decoded.keySet());
+            assertEquals("Scott", decoded.get("name"));
+            assertEquals(42L, ((Number) decoded.get(longKey)).longValue());
+            assertEquals("Berkeley", ((Map<?, ?>) decoded.get("address")).get("city"));
+        }
+        finally {
+            body[0].free();
+            if (unsharedBody != null) { unsharedBody.free(); }
+            unshared.reset();
+        }
+
+        saveDocInBaseTestDb(mDoc);
+
+        // LiteCore decodes the shared keys to evaluate the query
+        final ResultSet rs = QueryBuilder.select(
+            SelectResult.property(longKey),
+            SelectResult.property("address.city"))
+            .from(DataSource.database(baseTestDb))
+            .where(Expression.property("name").equalTo(Expression.string("Scott")))
+            .execute();
+        final Result result = rs.next();
+        assertNotNull(result);
+        assertEquals(42, result.getInt(0));
+        assertEquals("Berkeley", result.getString(1));
+        assertNull(rs.next());
+    }
+
+    // Aborting a transaction discards the shared keys added in it:
+    // the writer must not go on using the numbers they had.
+    @Test
+    public void testSharedKeysAfterAbort() throws CouchbaseLiteException {
+        final MutableDocument mDoc1 = new MutableDocument("doc1");
+        mDoc1.setInt("abortedKey", 1);
+        assertThrows(
+            CouchbaseLiteException.class,
+            () -> baseTestDb.inBatch(() -> {
+                try { baseTestDb.save(mDoc1); }
+                catch (CouchbaseLiteException e) { throw new IllegalStateException("save failed", e); }
+                throw new IllegalStateException("abort");
+            }));
+        assertNull(baseTestDb.getDocument("doc1"));
+
+        // LiteCore gives the next new key the number that the aborted key had
+        final MutableDocument mDoc2 = new MutableDocument("doc2");
+        mDoc2.setInt("newKey", 2);
+        saveDocInBaseTestDb(mDoc2);
+
+        final MutableDocument mDoc3 = new MutableDocument("doc3");
+        mDoc3.setInt("abortedKey", 3);
+        saveDocInBaseTestDb(mDoc3);
+
+        final Document doc2 = baseTestDb.getDocument("doc2");
+        assertEquals(Collections.singletonList("newKey"), doc2.getKeys());
+        assertEquals(2, doc2.getInt("newKey"));
+
+        final Document doc3 = baseTestDb.getDocument("doc3");
+        assertEquals(Collections.singletonList("abortedKey"), doc3.getKeys());
+        assertEquals(3, doc3.getInt("abortedKey"));
+
+        final ResultSet rs = QueryBuilder.select(SelectResult.expression(Meta.id))
+            .from(DataSource.database(baseTestDb))
+            .where(Expression.property("abortedKey").equalTo(Expression.intValue(3)))
+            .execute();
+        final Result result = rs.next();
+        assertNotNull(result);
+        assertEquals("doc3", result.getString(0));
+        assertNull(rs.next());
+    }
+
+    private static final class Point {
+        final String name;
+        final long x;
+        final double y;
+        final boolean visible;
+
+        Point(String name, long x, double y, boolean visible) {
+            this.name = name;
+            this.x = x;
+            this.y = y;
+            this.visible = visible;
+        }
+    }
+
+    private static final DocumentCodec<Point> POINT_CODEC = new DocumentCodec<Point>() {
+        @Override
+        public Point decode(DictionaryInterface props) {
+            return new Point(props.getString("name"), props.getLong("x"), props.getDouble("y"), props.getBoolean("v"));
+        }
+
+        @Override
+        public void encode(Point pt, MutableDictionaryInterface props) {
+            props.setString("name", pt.name);
+            props.setLong("x", pt.x);
+            props.setDouble("y", pt.y);
+            props.setBoolean("v", pt.visible);
+        }
+    };
+
+    @Test
+    public void testDocumentCodec() throws CouchbaseLiteException {
+        final MutableDocument mDoc = new MutableDocument("doc1", POINT_CODEC, new Point("p1", 3L, 4.5, true));
+        assertEquals(4, mDoc.count());
+        assertEquals(3L, mDoc.getLong("x"));
+        saveDocInBaseTestDb(mDoc);
+
+        final Point pt = baseTestDb.getDocument("doc1", POINT_CODEC);
+        assertNotNull(pt);
+        assertEquals("p1", pt.name);
+        assertEquals(3L, pt.x);
+        assertEquals(4.5, pt.y, 0.0);
+        assertTrue(pt.visible);
+
+        assertEquals("p1", baseTestDb.getDocument("doc1").toObject(POINT_CODEC).name);
+        assertNull(baseTestDb.getDocument("doc2", POINT_CODEC));
+    }
+
+    // Scalars are read directly from Fleece until they are read as objects, or changed
+    @Test
+    public void testScalarGettersBeforeAndAfterRead() throws CouchbaseLiteException {
+        MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setInt("int", 42);
+        mDoc.setDouble("double", 3.25);
+        mDoc.setBoolean("bool", true);
+        mDoc.setString("string", "str");
+        mDoc.setValue("array", Arrays.asList(7L, 2.5, false));
+        saveDocInBaseTestDb(mDoc);
+
+        final Document doc = baseTestDb.getDocument("doc1");
+        for (int i = 0; i < 2; i++) {
+            assertEquals(42, doc.getInt("int"));
+            assertEquals(42L, doc.getLong("int"));
+            assertEquals(3.25, doc.getDouble("double"), 0.0);
+            assertEquals(3.25F, doc.getFloat("double"), 0.0F);
+            assertEquals(3, doc.getInt("double"));
+            assertTrue(doc.getBoolean("bool"));
+            assertEquals(1, doc.getInt("bool"));
+            assertTrue(doc.getBoolean("string"));
+            assertEquals(0, doc.getInt("string"));
+            assertEquals(0, doc.getInt("missing"));
+            assertFalse(doc.getBoolean("missing"));
+
+            final Array array = doc.getArray("array");
+            assertNotNull(array);
+            assertEquals(7, array.getInt(0));
+            assertEquals(2.5, array.getDouble(1), 0.0);
+            assertFalse(array.getBoolean(2));
+
+            // read every value as an object: the second pass reads the cached values
+            for (String key: doc.getKeys()) { doc.getValue(key); }
+            for (int j = 0; j < array.count(); j++) { array.getValue(j); }
+        }
+
+        mDoc = doc.toMutable();
+        mDoc.setInt("int", 43);
+        mDoc.remove("bool");
+        mDoc.getArray("array").setInt(0, 8);
+        assertEquals(43, mDoc.getInt("int"));
+        assertFalse(mDoc.getBoolean("bool"));
+        assertEquals(3.25, mDoc.getDouble("double"), 0.0);
+        assertEquals(8, mDoc.getArray("array").getInt(0));
+        assertEquals(2.5, mDoc.getArray("array").getDouble(1), 0.0);
+    }
+
+    // Keys that are too long to be shared keys are interned: two documents return the same String
+    @Test
+    public void testInternedKeys() throws CouchbaseLiteException {
+        final String longKey = "a-key-that-is-much-too-long-to-be-shared";
+
+        MutableDocument mDoc = new MutableDocument("doc1");
+        mDoc.setString(longKey, "value1");
+        mDoc.setString("short", "value1");
+        saveDocInBaseTestDb(mDoc);
+
+        mDoc = new MutableDocument("doc2");
+        mDoc.setString(longKey, "value2");
+        mDoc.setString("short", "value2");
+        saveDocInBaseTestDb(mDoc);
+
+        final List<String> keys1 = baseTestDb.getDocument("doc1").getKeys();
+        final List<String> keys2 = baseTestDb.getDocument("doc2").getKeys();
+        assertEquals(2, keys1.size());
+        assertEquals(keys1, keys2);
+        for (int i = 0; i < keys1.size(); i++) { assertSame(keys1.get(i), keys2.get(i)); }
+
+        assertEquals("value2", baseTestDb.getDocument("doc2").getString(longKey));
+    }
+
     @Test
     public void testRevisionIDNewDoc() throws CouchbaseLiteException {
         MutableDocument doc = new MutableDocument();
@@ -15,14 +15,19 @@
 //
 package com.couchbase.lite;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
+import com.couchbase.lite.internal.fleece.FleeceWriter;
 import com.couchbase.lite.internal.utils.LoadIntegrationTest;
 import com.couchbase.lite.internal.utils.Report;
 
@@ -136,6 +141,160 @@ public class LoadTest extends BaseDbTest {
         logPerformanceStats("testDelete()", (System.currentTimeMillis() - start));
     }
 
+    // Compare reading documents one at a time with reading them in a batch
+    @Test
+    @LoadIntegrationTest
+    public void testReadBatch() throws CouchbaseLiteException {
+        final int batchSize = 500;
+        final int rounds = 20;
+
+        final String tag = "ReadBatch";
+        createDocumentNSave(tag, batchSize);
+
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) { ids.add(String.format(Locale.ENGLISH, "doc-%010d", i)); }
+
+        // warm up
+        for (String id: ids) { assertNotNull(baseTestDb.getDocument(id)); }
+        baseTestDb.getDocuments(ids);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < rounds; i++) {
+            for (String id: ids) {
+                Document doc = baseTestDb.getDocument(id);
+                assertNotNull(doc);
+                assertEquals(tag, doc.getString("tag"));
+            }
+        }
+        logPerformanceStats("testReadBatch(looped)", (System.currentTimeMillis() - start));
+
+        start = System.currentTimeMillis();
+        for (int i = 0; i < rounds; i++) {
+            final List<Document> docs = baseTestDb.getDocuments(ids);
+            assertEquals(batchSize, docs.size());
+            for (Document doc: docs) {
+                assertNotNull(doc);
+                assertEquals(tag, doc.getString("tag"));
+            }
+        }
+        logPerformanceStats("testReadBatch(batched)", (System.currentTimeMillis() - start));
+    }
+
+    // Read every key of many documents that share a schema.
+    // Keys are interned, so this should allocate very little, beyond the key lists themselves.
+    @Test
+    @LoadIntegrationTest
+    public void testReadKeys() throws CouchbaseLiteException {
+        final int nDocs = 500;
+        final int nProps = 50;
+        final int rounds = 100;
+
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < nDocs; i++) {
+            final String id = String.format(Locale.ENGLISH, "doc-%010d", i);
+            final MutableDocument mDoc = new MutableDocument(id);
+            for (int j = 0; j < nProps; j++) { mDoc.setInt("a-property-with-a-long-name-" + j, i + j); }
+            saveDocInBaseTestDb(mDoc);
+            ids.add(id);
+        }
+
+        final List<Document> docs = baseTestDb.getDocuments(ids);
+
+        final long startBytes = getAllocatedBytes();
+        final long start = System.currentTimeMillis();
+        for (int i = 0; i < rounds; i++) {
+            for (Document doc: docs) { assertEquals(nProps, doc.getKeys().size()); }
+        }
+        logPerformanceStats("testReadKeys()", (System.currentTimeMillis() - start));
+
+        if (startBytes < 0) { return; }
+
+        // An uninterned key of this length would cost well over 100 bytes:
+        // the key list costs a few bytes per key.
+        final long bytesPerKey = (getAllocatedBytes() - startBytes) / ((long) rounds * nDocs * nProps);
+        Report.log(LogLevel.INFO, "PerformanceStats: testReadKeys() -> " + bytesPerKey + " bytes/key");
+        assertTrue("allocated " + bytesPerKey + " bytes per key", bytesPerKey < 64);
+    }
+
+    // Read the numeric properties of many documents, as an analytics loop would.
+    // The values are read straight from Fleece: this should allocate almost nothing.
+    @Test
+    @LoadIntegrationTest
+    public void testReadScalars() throws CouchbaseLiteException {
+        final int nDocs = 500;
+        final int nProps = 20;
+        final int rounds = 20;
+
+        final String[] longKeys = new String[nProps];
+        final String[] doubleKeys = new String[nProps];
+        for (int j = 0; j < nProps; j++) {
+            longKeys[j] = "long" + j;
+            doubleKeys[j] = "double" + j;
+        }
+
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < nDocs; i++) {
+            final String id = String.format(Locale.ENGLISH, "doc-%010d", i);
+            final MutableDocument mDoc = new MutableDocument(id);
+            for (int j = 0; j < nProps; j++) {
+                mDoc.setLong(longKeys[j], i * j);
+                mDoc.setDouble(doubleKeys[j], i + (j / 8.0));
+            }
+            saveDocInBaseTestDb(mDoc);
+            ids.add(id);
+        }
+
+        final List<Document> docs = baseTestDb.getDocuments(ids);
+
+        final long startBytes = getAllocatedBytes();
+        final long start = System.currentTimeMillis();
+        double total = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (Document doc: docs) {
+                for (int j = 0; j < nProps; j++) { total += doc.getLong(longKeys[j]) + doc.getDouble(doubleKeys[j]); }
+            }
+        }
+        logPerformanceStats("testReadScalars()", (System.currentTimeMillis() - start));
+
+        assertTrue(total > 0);
+
+        if (startBytes < 0) { return; }
+
+        // Boxing each value, or creating an FLValue for it, would cost at least 16 bytes per read.
+        final long bytesPerRead = (getAllocatedBytes() - startBytes) / ((long) rounds * nDocs * nProps * 2);
+        Report.log(LogLevel.INFO, "PerformanceStats: testReadScalars() -> " + bytesPerRead + " bytes/read");
+        assertTrue("allocated " + bytesPerRead + " bytes per read", bytesPerRead < 8);
+    }
+
+    // Compare the native Fleece encoder with the Java encoder, on small, medium and large documents
+    @Test
+    @LoadIntegrationTest
+    public void testEncode() throws LiteCoreException {
+        final int rounds = 1000;
+
+        final int[] sizes = {10, 100, 1000};
+        for (int size: sizes) {
+            final Map<String, Object> props = createEncodeTestProps(size);
+
+            final FLEncoder encoder = new FLEncoder();
+            try {
+                encodeRounds(encoder, props, rounds / 10); // warm up
+                final long start = System.currentTimeMillis();
+                encodeRounds(encoder, props, rounds);
+                logPerformanceStats("testEncode(native, " + size + ")", (System.currentTimeMillis() - start));
+            }
+            finally {
+                encoder.free();
+            }
+
+            final FleeceWriter writer = new FleeceWriter(null);
+            encodeRounds(writer, props, rounds / 10); // warm up
+            final long start = System.currentTimeMillis();
+            encodeRounds(writer, props, rounds);
+            logPerformanceStats("testEncode(java, " + size + ")", (System.currentTimeMillis() - start));
+        }
+    }
+
     // https://github.com/couchbase/couchbase-lite-android/issues/1447
     @Test
     @LoadIntegrationTest
@@ -242,6 +401,52 @@ public class LoadTest extends BaseDbTest {
         }
     }
 
+    private void encodeRounds(FLEncoder encoder, Map<String, Object> props, int rounds) throws LiteCoreException {
+        for (int i = 0; i < rounds; i++) {
+            encoder.write(props);
+            final FLSliceResult body = encoder.finish2();
+            try { assertTrue(body.getSize() > 0); }
+            finally {
+                body.free();
+                encoder.reset();
+            }
+        }
+    }
+
+    // A flat document with some nested structure: about a third of the properties are nested
+    private Map<String, Object> createEncodeTestProps(int nProps) {
+        final Map<String, Object> props = new HashMap<>();
+        for (int i = 0; i < nProps; i++) {
+            final String key = "prop" + i;
+            switch (i % 6) {
+                case 0:
+                    props.put(key, (long) i * 1000);
+                    break;
+                case 1:
+                    props.put(key, "value of property number " + i);
+                    break;
+                case 2:
+                    props.put(key, i * 1.5);
+                    break;
+                case 3:
+                    props.put(key, (i % 4) == 0);
+                    break;
+                case 4:
+                    final List<Object> list = new ArrayList<>();
+                    for (int j = 0; j < 5; j++) { list.add("item-" + j); }
+                    props.put(key, list);
+                    break;
+                default:
+                    final Map<String, Object> nested = new HashMap<>();
+                    nested.put("name", "nested-" + i);
+                    nested.put("count", (long) i);
+                    props.put(key, nested);
+                    break;
+            }
+        }
+        return props;
+    }
+
     private void logPerformanceStats(String name, long time) {
         Report.log(LogLevel.INFO, "PerformanceStats: " + name + " -> " + time + " ms");
     }
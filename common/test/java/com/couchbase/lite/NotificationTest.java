@@ -17,6 +17,7 @@ package com.couchbase.lite;
 
 import java.util.Locale;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
@@ -54,6 +55,19 @@ public class NotificationTest extends BaseDbTest {
         assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
 
+    // A failure to schedule a notification must not stop later notifications
+    @Test
+    public void testDatabaseChangeAfterRejectedNotification()
+        throws InterruptedException, CouchbaseLiteException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        baseTestDb.addChangeListener(testSerialExecutor, change -> latch.countDown());
+
+        baseTestDb.scheduleDbChangeNotification(task -> { throw new RejectedExecutionException("test"); });
+
+        saveDocInBaseTestDb(new MutableDocument("doc-1"));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
     @Test
     public void testDocumentChange()
         throws InterruptedException, CouchbaseLiteException {
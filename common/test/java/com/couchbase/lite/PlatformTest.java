@@ -38,4 +38,7 @@ public interface PlatformTest {
 
     /* Scheduled to execute a task asynchronously. */
     void executeAsync(long delayMs, Runnable task);
+
+    /* The number of bytes allocated by the current thread, or -1 if this platform cannot count them. */
+    long getAllocatedBytes();
 }
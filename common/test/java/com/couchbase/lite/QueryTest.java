@@ -25,9 +25,11 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TimeZone;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -2076,6 +2078,226 @@ public class QueryTest extends BaseQueryTest {
         assertEquals(0, rs.allResults().size());
     }
 
+    // The iterator reads rows only as it reaches them
+    @Test
+    public void testResultSetIteratorIsLazy() throws CouchbaseLiteException {
+        loadNumberedDocs(5);
+
+        Query query = QueryBuilder.select(SelectResult.expression(Meta.id))
+            .from(DataSource.database(baseTestDb))
+            .orderBy(Ordering.property("number1"));
+
+        ResultSet rs = query.execute();
+        int i = 0;
+        for (Result r: rs) {
+            assertEquals(String.format(Locale.ENGLISH, "doc%d", ++i), r.getString(0));
+            if (i >= 2) { break; }
+        }
+
+        // the remaining rows have not been read
+        Result result = rs.next();
+        assertNotNull(result);
+        assertEquals("doc3", result.getString(0));
+
+        Iterator<Result> itr = rs.iterator();
+        assertTrue(itr.hasNext());
+        assertTrue(itr.hasNext());
+        assertEquals("doc4", itr.next().getString(0));
+        assertEquals("doc5", itr.next().getString(0));
+        assertFalse(itr.hasNext());
+        assertThrows(NoSuchElementException.class, itr::next);
+    }
+
+    // Rows are fetched from the enumerator in batches: check results across batch boundaries.
+    @Test
+    public void testResultsAcrossBatches() throws CouchbaseLiteException {
+        final int n = 150;
+        loadNumberedDocs(n);
+
+        Query query = QueryBuilder.select(
+            SelectResult.property("number1"),
+            SelectResult.property("number2"),
+            SelectResult.property("nonexistent"))
+            .from(DataSource.database(baseTestDb))
+            .orderBy(Ordering.property("number1"));
+
+        List<Result> results = query.execute().allResults();
+        assertEquals(n, results.size());
+
+        // results from earlier batches are still valid
+        for (int i = 0; i < n; i++) {
+            Result r = results.get(i);
+            assertEquals(i + 1, r.getInt(0));
+            assertEquals(i + 1, r.getLong("number1"));
+            assertEquals(n - (i + 1), r.getInt("number2"));
+            assertEquals((double) (n - (i + 1)), r.getDouble(1), 0.0);
+            assertEquals(i + 1, r.getNumber(0).intValue());
+            assertNull(r.getValue(2));
+            assertFalse(r.contains("nonexistent"));
+            assertTrue(r.contains("number2"));
+        }
+    }
+
+    @Test
+    public void testColumnReaders() throws CouchbaseLiteException {
+        final int n = 150;
+        loadNumberedDocs(n);
+
+        Query query = QueryBuilder.select(
+            SelectResult.expression(Meta.id),
+            SelectResult.property("number1"),
+            SelectResult.property("nonexistent"))
+            .from(DataSource.database(baseTestDb))
+            .orderBy(Ordering.property("number1"));
+
+        long[] numbers = query.execute().getLongColumn(1);
+        assertEquals(n, numbers.length);
+        for (int i = 0; i < n; i++) { assertEquals(i + 1, numbers[i]); }
+
+        double[] doubles = query.execute().getDoubleColumn(1);
+        assertEquals(n, doubles.length);
+        for (int i = 0; i < n; i++) { assertEquals(i + 1, doubles[i], 0.0); }
+
+        boolean[] missing = query.execute().getBooleanColumn(2);
+        assertEquals(n, missing.length);
+        for (int i = 0; i < n; i++) { assertFalse(missing[i]); }
+
+        String[] ids = query.execute().getStringColumn(0);
+        assertEquals(n, ids.length);
+        for (int i = 0; i < n; i++) { assertEquals(String.format(Locale.ENGLISH, "doc%d", i + 1), ids[i]); }
+
+        // read into a buffer, after reading some rows with next()
+        ResultSet rs = query.execute();
+        assertEquals(1, rs.next().getInt(1));
+        long[] buffer = new long[100];
+        assertEquals(99, rs.readLongColumn(1, buffer, 1, 99));
+        for (int i = 1; i < 100; i++) { assertEquals(i + 1, buffer[i]); }
+        assertEquals(50, rs.readLongColumn(1, buffer, 0, 100));
+        assertEquals(150, buffer[49]);
+        assertEquals(0, rs.readLongColumn(1, buffer, 0, 100));
+        assertNull(rs.next());
+
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> query.execute().getLongColumn(3));
+        assertThrows(
+            ArrayIndexOutOfBoundsException.class,
+            () -> query.execute().readLongColumn(0, buffer, 50, 51));
+    }
+
+    @Test
+    public void testQueryCache() throws CouchbaseLiteException {
+        baseTestDb = reopenDb(baseTestDb, new DatabaseConfiguration().setQueryCacheSize(2));
+        loadNumberedDocs(10);
+
+        QueryCache cache = baseTestDb.getQueryCache();
+        QueryCacheMetrics metrics = baseTestDb.getQueryCacheMetrics();
+        assertEquals(0, cache.size());
+
+        // Different Query objects with the same structure share a compiled query
+        for (int i = 0; i < 3; i++) {
+            Query query = QueryBuilder.select(SelectResult.property("number1"))
+                .from(DataSource.database(baseTestDb))
+                .where(Expression.property("number1").lessThan(Expression.parameter("max")));
+            Parameters params = new Parameters();
+            params.setInt("max", 5 + i);
+            query.setParameters(params);
+            assertEquals(4 + i, query.execute().allResults().size());
+        }
+        assertEquals(1, cache.size());
+        assertEquals(1, metrics.getMissCount());
+        assertEquals(2, metrics.getHitCount());
+
+        // The least recently used query is evicted
+        Query query2 = QueryBuilder.select(SelectResult.property("number2")).from(DataSource.database(baseTestDb));
+        Query query3 = QueryBuilder.select(SelectResult.expression(Meta.id)).from(DataSource.database(baseTestDb));
+        assertEquals(10, query2.execute().allResults().size());
+        assertEquals(10, query3.execute().allResults().size());
+        assertEquals(2, cache.size());
+        assertEquals(3, metrics.getMissCount());
+        assertEquals(1, metrics.getEvictionCount());
+
+        // A result set outlives the eviction of its query
+        ResultSet rs = query2.execute();
+        assertEquals(3, metrics.getHitCount());
+        QueryBuilder.select(SelectResult.property("number1")).from(DataSource.database(baseTestDb)).execute();
+        assertEquals(4, metrics.getMissCount());
+        QueryBuilder.select(SelectResult.property("number2"), SelectResult.property("number1"))
+            .from(DataSource.database(baseTestDb))
+            .execute();
+        assertEquals(5, metrics.getMissCount());
+        assertEquals(10, rs.allResults().size());
+
+        baseTestDb.close();
+        assertEquals(0, cache.size());
+    }
+
+    // A query compiled before an index changed must not be reused after it
+    @Test
+    public void testQueryCacheInvalidatedByIndexChanges() throws CouchbaseLiteException {
+        MutableDocument mDoc1 = new MutableDocument("doc1");
+        mDoc1.setString("content", "cat");
+        saveDocInBaseTestDb(mDoc1);
+
+        MutableDocument mDoc2 = new MutableDocument("doc2");
+        mDoc2.setString("title", "cat");
+        saveDocInBaseTestDb(mDoc2);
+
+        QueryCacheMetrics metrics = baseTestDb.getQueryCacheMetrics();
+
+        baseTestDb.createIndex("ftsIndex", IndexBuilder.fullTextIndex(FullTextIndexItem.property("content")));
+        List<Result> results = QueryBuilder.select(SelectResult.expression(Meta.id))
+            .from(DataSource.database(baseTestDb))
+            .where(FullTextExpression.index("ftsIndex").match("cat"))
+            .execute()
+            .allResults();
+        assertEquals(1, results.size());
+        assertEquals("doc1", results.get(0).getString(0));
+        final long misses = metrics.getMissCount();
+
+        // drop the index and recreate it, on a different property
+        baseTestDb.deleteIndex("ftsIndex");
+        baseTestDb.createIndex("ftsIndex", IndexBuilder.fullTextIndex(FullTextIndexItem.property("title")));
+
+        results = QueryBuilder.select(SelectResult.expression(Meta.id))
+            .from(DataSource.database(baseTestDb))
+            .where(FullTextExpression.index("ftsIndex").match("cat"))
+            .execute()
+            .allResults();
+        assertEquals(1, results.size());
+        assertEquals("doc2", results.get(0).getString(0));
+        assertEquals(misses + 1, metrics.getMissCount());
+        assertTrue(metrics.getInvalidationCount() > 0);
+    }
+
+    @Test
+    public void testQueryJsonEncoding() throws CouchbaseLiteException {
+        final String str = "a\"b\\c/d\ne\tf\u0001g\u00e9h\ud83d\ude00";
+        MutableDocument doc = new MutableDocument("doc1");
+        doc.setString("str", str);
+        doc.setDouble("dbl", 1.5);
+        doc.setLong("lng", 1L << 40);
+        saveDocInBaseTestDb(doc);
+
+        Query query = QueryBuilder.select(SelectResult.property("str"))
+            .from(DataSource.database(baseTestDb))
+            .where(Expression.property("str").equalTo(Expression.string(str))
+                .and(Expression.property("dbl").equalTo(Expression.doubleValue(1.5)))
+                .and(Expression.property("lng").equalTo(Expression.longValue(1L << 40))));
+
+        List<Result> results = query.execute().allResults();
+        assertEquals(1, results.size());
+        assertEquals(str, results.get(0).getString("str"));
+
+        // The same query, built again, has the same JSON
+        final long hits = baseTestDb.getQueryCacheMetrics().getHitCount();
+        QueryBuilder.select(SelectResult.property("str"))
+            .from(DataSource.database(baseTestDb))
+            .where(Expression.property("str").equalTo(Expression.string(str))
+                .and(Expression.property("dbl").equalTo(Expression.doubleValue(1.5)))
+                .and(Expression.property("lng").equalTo(Expression.longValue(1L << 40))))
+            .execute();
+        assertEquals(hits + 1, baseTestDb.getQueryCacheMetrics().getHitCount());
+    }
+
     @Test
     public void testGetAllResults() throws CouchbaseLiteException {
         loadNumberedDocs(5);
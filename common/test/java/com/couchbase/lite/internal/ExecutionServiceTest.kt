@@ -31,6 +31,7 @@ import java.util.concurrent.Executor
 import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.ThreadPoolExecutor
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 
 private const val TIMEOUT_SEC = 5L
 private const val CAPACITY = AbstractExecutionService.MIN_CAPACITY * 2
@@ -142,38 +143,25 @@ class ExecutionServiceTest : PlatformBaseTest() {
             val blockLatch = CountDownLatch(1)
             executor.execute { blockLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS) }
 
-            val nTasks = 10
-            val startLatch = CountDownLatch(1)
-            val firstStartedLatch = CountDownLatch(1)
-            val firstFinishedLatch = CountDownLatch(1)
+            // put more tasks into the serial queue than can be run in a single batch.
+            val nTasks = AbstractExecutionService.MAX_BATCH_SIZE + 10
+            val batchLatch = CountDownLatch(AbstractExecutionService.MAX_BATCH_SIZE - 1)
             val finishLatch = CountDownLatch(nTasks)
-            // put some tasks into the serial queue.
-            // the first of these should be scheduled (but not run)
             for (i in 0 until nTasks - 1) {
                 executor.execute {
-                    try {
-                        firstStartedLatch.countDown()
-                        startLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS)
-                    } catch (ignore: InterruptedException) {
-                    } finally {
-                        firstFinishedLatch.countDown()
-                        finishLatch.countDown()
-                    }
+                    batchLatch.countDown()
+                    finishLatch.countDown()
                 }
             }
 
-            // clear the block and wait for the first of nTasks to start running
-            blockLatch.countDown()
-            assertTrue(firstStartedLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
-            // the first of the nTasks is now blocking the queue.
-
             // fill the executor
             val swampLatch = CountDownLatch(1)
             val clearSwampLatch = swamp(tinyExecutor, swampLatch)
 
-            startLatch.countDown()
-            assertTrue(firstFinishedLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
-            // the executing task completes but fails to restart the queue:
+            // clear the block and wait for the first batch to complete
+            blockLatch.countDown()
+            assertTrue(batchLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+            // the batch completes but fails to reschedule the queue:
 
             swampLatch.countDown()
             assertTrue(clearSwampLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
@@ -181,7 +169,7 @@ class ExecutionServiceTest : PlatformBaseTest() {
 
             // should be stalled.
             assertFalse(finishLatch.await(1, TimeUnit.SECONDS))
-            assertEquals(nTasks - 1L, finishLatch.count)
+            assertEquals(nTasks - AbstractExecutionService.MAX_BATCH_SIZE + 1L, finishLatch.count)
 
             executor.execute { finishLatch.countDown() }
 
@@ -246,6 +234,70 @@ class ExecutionServiceTest : PlatformBaseTest() {
     }
 
 
+    // A serial executor runs tasks in order, no matter how many threads submit them.
+    @Test
+    fun testSerialExecutorMultipleProducers() {
+        val nProducers = THREADS
+        val nTasks = AbstractExecutionService.MAX_BATCH_SIZE * 20
+        val finishLatch = CountDownLatch(nProducers * nTasks)
+
+        val last = IntArray(nProducers) { -1 }
+        var inOrder = true
+
+        val executor = baseService.serialExecutor
+
+        val producers = (0 until nProducers).map { p ->
+            Thread {
+                for (i in 0 until nTasks) {
+                    executor.execute {
+                        if (last[p] != i - 1) inOrder = false
+                        last[p] = i
+                        finishLatch.countDown()
+                    }
+                }
+            }
+        }
+        producers.forEach { it.start() }
+        producers.forEach { it.join() }
+
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(inOrder)
+        assertTrue(executor.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
+    // A task submitted while a serial executor is being stopped is either rejected
+    // or, if it is accepted, run before stop reports that the executor has stopped.
+    @Test
+    fun testSerialExecutorStopRace() {
+        for (round in 0 until 100) {
+            val executor = baseService.serialExecutor
+
+            val accepted = AtomicInteger()
+            val ran = AtomicInteger()
+            val startLatch = CountDownLatch(1)
+
+            val producer = Thread {
+                startLatch.countDown()
+                try {
+                    while (true) {
+                        executor.execute { ran.incrementAndGet() }
+                        accepted.incrementAndGet()
+                    }
+                } catch (expected: RejectedExecutionException) {
+                }
+            }
+            producer.start()
+
+            assertTrue(startLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+            assertTrue(executor.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+            val ranAtStop = ran.get()
+
+            producer.join(TIMEOUT_SEC * 1000)
+            assertEquals(accepted.get(), ranAtStop)
+        }
+    }
+
+
     // Concurrent Executor tests
 
     // The concurrent executor can execute out of order.
@@ -398,6 +450,150 @@ class ExecutionServiceTest : PlatformBaseTest() {
         assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
     }
 
+    // A bounded concurrent executor rejects tasks when it is full
+    @Test
+    fun testBoundedConcurrentExecutorRejects() {
+        val tinyExecutor = ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, ArrayBlockingQueue<Runnable>(5))
+        val tinyService = createTestService(tinyExecutor)
+        tinyService.setConcurrentExecutorLimit(3, ExecutionService.OverflowPolicy.REJECT)
+
+        val executor = tinyService.concurrentExecutor
+
+        // block the executor: it has a single thread so no tasks can run
+        val blockLatch = CountDownLatch(1)
+        tinyExecutor.execute { blockLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS) }
+
+        // These will all be enqueued, because `spaceAvailable` never returns true on this executor
+        val finishLatch = CountDownLatch(3)
+        for (i in 0 until 3) {
+            executor.execute { finishLatch.countDown() }
+        }
+
+        try {
+            executor.execute { fail("Full executor should not run this task") }
+            fail("Full executor should not accept new tasks")
+        } catch (expected: ExecutionService.CloseableExecutor.ExecutorFullException) {
+        }
+
+        blockLatch.countDown()
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
+    // A bounded, coalescing concurrent executor drops tasks that are equivalent to waiting tasks, when it is full
+    @Test
+    fun testBoundedConcurrentExecutorCoalesces() {
+        val tinyExecutor = ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, ArrayBlockingQueue<Runnable>(5))
+        val tinyService = createTestService(tinyExecutor)
+        tinyService.setConcurrentExecutorLimit(2, ExecutionService.OverflowPolicy.COALESCE)
+
+        val executor = tinyService.concurrentExecutor
+
+        // block the executor: it has a single thread so no tasks can run
+        val blockLatch = CountDownLatch(1)
+        tinyExecutor.execute { blockLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS) }
+
+        val runs = IntArray(2)
+        val coalesced = IntArray(2)
+        val finishLatch = CountDownLatch(2)
+        fun task(key: Int) = object : ExecutionService.CoalescingTask {
+            override fun getCoalescingKey(): Any = "task-$key"
+
+            override fun onCoalesced() {
+                synchronized(coalesced) { coalesced[key]++ }
+            }
+
+            override fun run() {
+                synchronized(runs) { runs[key]++ }
+                finishLatch.countDown()
+            }
+        }
+
+        executor.execute(task(0))
+        executor.execute(task(1))
+
+        // the executor is full: this is a different task, with the same key as a waiting task.  It is dropped.
+        executor.execute(task(1))
+
+        // a task that cannot be coalesced is not accepted
+        try {
+            (executor as ExecutionService.NonBlockingExecutor)
+                .executeWithoutBlocking { fail("Full executor should not run this task") }
+            fail("Full executor should not accept new tasks")
+        } catch (expected: ExecutionService.CloseableExecutor.ExecutorFullException) {
+        }
+
+        blockLatch.countDown()
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+
+        synchronized(runs) {
+            assertEquals(1, runs[0])
+            assertEquals(1, runs[1])
+        }
+        synchronized(coalesced) {
+            assertEquals(0, coalesced[0])
+            assertEquals(1, coalesced[1])
+        }
+    }
+
+    // A bounded, blocking concurrent executor blocks the caller until there is space
+    @Test
+    fun testBoundedConcurrentExecutorBlocks() {
+        val tinyExecutor = ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, ArrayBlockingQueue<Runnable>(5))
+        val tinyService = createTestService(tinyExecutor)
+        tinyService.setConcurrentExecutorLimit(2, ExecutionService.OverflowPolicy.BLOCK)
+
+        val executor = tinyService.concurrentExecutor
+
+        // block the executor: it has a single thread so no tasks can run
+        val blockLatch = CountDownLatch(1)
+        tinyExecutor.execute { blockLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS) }
+
+        val finishLatch = CountDownLatch(3)
+        executor.execute { finishLatch.countDown() }
+        executor.execute { finishLatch.countDown() }
+
+        // the executor is full: this should block
+        val scheduledLatch = CountDownLatch(1)
+        Thread {
+            executor.execute { finishLatch.countDown() }
+            scheduledLatch.countDown()
+        }.start()
+
+        assertFalse(scheduledLatch.await(1, TimeUnit.SECONDS))
+
+        blockLatch.countDown()
+        assertTrue(scheduledLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
+    // A bounded, blocking concurrent executor does not block the caller forever
+    @Test
+    fun testBoundedConcurrentExecutorBlockTimesOut() {
+        val tinyExecutor = ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, ArrayBlockingQueue<Runnable>(5))
+        val tinyService = createTestService(tinyExecutor)
+        tinyService.setConcurrentExecutorLimit(1, ExecutionService.OverflowPolicy.BLOCK)
+
+        val executor = tinyService.concurrentExecutor
+
+        // block the executor: it has a single thread so no tasks can run
+        val blockLatch = CountDownLatch(1)
+        tinyExecutor.execute { blockLatch.await(TIMEOUT_SEC * 2, TimeUnit.SECONDS) }
+
+        val finishLatch = CountDownLatch(1)
+        executor.execute { finishLatch.countDown() }
+
+        val start = System.currentTimeMillis()
+        try {
+            executor.execute { fail("Full executor should not run this task") }
+            fail("Full executor should not accept new tasks")
+        } catch (expected: ExecutionService.CloseableExecutor.ExecutorFullException) {
+        }
+        assertTrue(System.currentTimeMillis() - start >= AbstractExecutionService.MAX_BLOCK_WAIT_MS)
+
+        blockLatch.countDown()
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
     // A stopped concurrent executor finishes currently queued tasks.
     @Test
     fun testStoppedConcurrentExecutorCompletes() {
@@ -453,6 +649,144 @@ class ExecutionServiceTest : PlatformBaseTest() {
     }
 
 
+    // Executors record the latencies of the tasks they run, including those that fail
+    @Test
+    fun testExecutorMetrics() {
+        val nTasks = 10
+        val finishLatch = CountDownLatch((nTasks * 2) + 1)
+
+        val serialExecutor = baseService.serialExecutor
+        for (i in 0 until nTasks) {
+            baseService.concurrentExecutor.execute { finishLatch.countDown() }
+            serialExecutor.execute { finishLatch.countDown() }
+        }
+        baseService.concurrentExecutor.execute {
+            try {
+                throw IllegalStateException("This task is supposed to fail")
+            } finally {
+                finishLatch.countDown()
+            }
+        }
+
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(serialExecutor.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(baseService.concurrentExecutor.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+
+        val metrics = baseService.metrics
+        assertEquals(3, metrics.size)
+
+        val concurrentMetrics = metrics.first { it.name == "concurrent" }
+        assertEquals(nTasks + 1L, concurrentMetrics.queueWait.count)
+        assertEquals(nTasks + 1L, concurrentMetrics.runTime.count)
+        assertEquals(1L, concurrentMetrics.failureCount)
+
+        val serialMetrics = metrics.first { it.name.startsWith("serial") }
+        assertEquals(nTasks.toLong(), serialMetrics.queueWait.count)
+        assertEquals(nTasks.toLong(), serialMetrics.runTime.count)
+        assertEquals(0L, serialMetrics.failureCount)
+        assertEquals(0L, serialMetrics.rejectionCount)
+    }
+
+
+    // Execution Lane tests
+
+    // A lane never runs more than its maximum concurrency of tasks at once
+    @Test
+    fun testLaneConcurrencyCap() {
+        val nTasks = 20
+        val finishLatch = CountDownLatch(nTasks)
+
+        val running = AtomicInteger()
+        val maxRunning = AtomicInteger()
+
+        val lane = baseService.createLane("test", 1, 2)
+        for (i in 0 until nTasks) {
+            lane.execute {
+                val n = running.incrementAndGet()
+                maxRunning.accumulateAndGet(n) { a, b -> Math.max(a, b) }
+                try {
+                    Thread.sleep(5)
+                } catch (ignore: InterruptedException) {
+                }
+                running.decrementAndGet()
+                finishLatch.countDown()
+            }
+        }
+
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertEquals(2, maxRunning.get())
+        assertTrue(lane.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
+    // A busy lane does not starve a quiet one
+    @Test
+    fun testLaneFairness() {
+        val nTasks = 50
+        val noisyLatch = CountDownLatch(nTasks)
+        val quietLatch = CountDownLatch(1)
+
+        val noisyLane = baseService.createLane("noisy", 1, THREADS)
+        val quietLane = baseService.createLane("quiet", 1, THREADS)
+
+        for (i in 0 until nTasks) {
+            noisyLane.execute {
+                try {
+                    Thread.sleep(20)
+                } catch (ignore: InterruptedException) {
+                }
+                noisyLatch.countDown()
+            }
+        }
+
+        var noisyRemaining = 0L
+        quietLane.execute {
+            noisyRemaining = noisyLatch.count
+            quietLatch.countDown()
+        }
+
+        assertTrue(quietLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        // the quiet task ran as soon as a thread was free: it did not wait behind the noisy lane's queue
+        assertTrue(noisyRemaining > nTasks - (THREADS * 2))
+
+        assertTrue(noisyLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(noisyLane.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(quietLane.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
+    // A lane's serial executors run tasks in order
+    @Test
+    fun testLaneSerialExecutor() {
+        val nTasks = AbstractExecutionService.MAX_BATCH_SIZE * 4
+        val finishLatch = CountDownLatch(nTasks)
+
+        var last = -1
+        var inOrder = true
+
+        val lane = baseService.createLane("test", 1, 1)
+        val executor = lane.serialExecutor
+        for (i in 0 until nTasks) {
+            executor.execute {
+                if (last != i - 1) inOrder = false
+                last = i
+                finishLatch.countDown()
+            }
+        }
+
+        assertTrue(finishLatch.await(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(inOrder)
+        assertTrue(executor.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+        assertTrue(lane.stop(TIMEOUT_SEC, TimeUnit.SECONDS))
+    }
+
+    // A stopped lane throws on further attempts to schedule
+    @Test(expected = RejectedExecutionException::class)
+    fun testStoppedLaneRejects() {
+        val lane = baseService.createLane("test", 1, 1)
+        assertTrue(lane.stop(0, TimeUnit.SECONDS)) // no tasks
+        lane.execute { Log.d(LogDomain.DATABASE, "This test is about to fail!") }
+    }
+
+
     // Implementation tests
     // These are tests of the platform specific implementations of the ExecutionService
 
@@ -537,6 +871,24 @@ class ExecutionServiceTest : PlatformBaseTest() {
         assertFalse(completed[0])
     }
 
+    private fun createTestService(baseExecutor: ThreadPoolExecutor) = object : AbstractExecutionService(baseExecutor) {
+        override fun postDelayedOnExecutor(
+            delayMs: Long,
+            executor: Executor,
+            task: Runnable
+        ): ExecutionService.Cancellable {
+            throw UnsupportedOperationException()
+        }
+
+        override fun cancelDelayedTask(future: ExecutionService.Cancellable) {
+            throw UnsupportedOperationException()
+        }
+
+        override fun getMainExecutor(): Executor {
+            throw UnsupportedOperationException()
+        }
+    }
+
     // fill an executor.
     private fun swamp(ex: Executor, startLatch: CountDownLatch): CountDownLatch {
         val stopLatch = CountDownLatch(1)
@@ -15,21 +15,35 @@
 //
 package com.couchbase.lite.internal.core;
 
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.couchbase.lite.LiteCoreException;
+import com.couchbase.lite.internal.fleece.FLDict;
 import com.couchbase.lite.internal.fleece.FLEncoder;
+import com.couchbase.lite.internal.fleece.FLEncoderPool;
+import com.couchbase.lite.internal.fleece.FLSliceResult;
 import com.couchbase.lite.internal.fleece.FLValue;
+import com.couchbase.lite.internal.fleece.FleeceBuffer;
+import com.couchbase.lite.internal.fleece.FleeceWriter;
 
 import static com.couchbase.lite.internal.fleece.FLConstants.ValueType.DATA;
 import static com.couchbase.lite.internal.fleece.FLConstants.ValueType.DICT;
+import static com.couchbase.lite.internal.utils.TestUtils.assertThrows;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 
@@ -83,4 +97,327 @@ public class C4FleeceTest extends C4BaseTest {
             enc.free();
         }
     }
+
+    // The Java decoder must produce exactly what the native decoder produces
+    @Test
+    public void testJavaDecoder() throws LiteCoreException {
+        final Map<String, Object> map = createFleeceTestMap();
+
+        final FLEncoder enc = new FLEncoder();
+        FLSliceResult slice = null;
+        try {
+            enc.write(map);
+            slice = enc.finish2();
+
+            final FLValue nativeRoot = FLValue.fromData(slice);
+            assertNotNull(nativeRoot);
+
+            final FLValue javaRoot = FleeceBuffer.forSlice(slice, null).getRoot();
+            assertEquals(DICT, javaRoot.getType());
+
+            final Map<String, Object> nativeMap = nativeRoot.asDict();
+            final Map<String, Object> javaMap = javaRoot.asDict();
+            assertEquals(nativeMap.keySet(), javaMap.keySet());
+            for (String key: nativeMap.keySet()) {
+                final Object expected = nativeMap.get(key);
+                final Object actual = javaMap.get(key);
+                if (expected instanceof byte[]) { Assert.assertArrayEquals((byte[]) expected, (byte[]) actual); }
+                else { assertEquals(expected, actual); }
+            }
+        }
+        finally {
+            if (slice != null) { slice.free(); }
+            enc.free();
+        }
+    }
+
+    @Test
+    public void testJavaDecoderGet() throws LiteCoreException {
+        final Map<String, Object> map = createFleeceTestMap();
+
+        final FLEncoder enc = new FLEncoder();
+        FLSliceResult slice = null;
+        try {
+            enc.write(map);
+            slice = enc.finish2();
+
+            final FLDict dict = FleeceBuffer.forSlice(slice, null).getRoot().asFLDict();
+            assertEquals(map.size(), dict.count());
+
+            assertEquals(7L, dict.get("small").asInt());
+            assertEquals(-2048L, dict.get("negative").asInt());
+            assertEquals(Long.MAX_VALUE, dict.get("long").asInt());
+            assertEquals(Math.PI, dict.get("double").asDouble(), 0.0);
+            assertTrue(dict.get("true").asBool());
+            assertEquals("a string that is longer than fifteen bytes", dict.get("string").asString());
+            assertEquals(Arrays.asList(1L, "two", 3L), dict.get("array").asArray());
+            assertEquals("nested", dict.get("dict").asFLDict().get("key").asString());
+            assertNull(dict.get("missing"));
+
+            final List<String> keys = new ArrayList<>();
+            dict.forEach((key, value) -> keys.add(key));
+            assertEquals(map.size(), keys.size());
+            assertTrue(keys.containsAll(map.keySet()));
+        }
+        finally {
+            if (slice != null) { slice.free(); }
+            enc.free();
+        }
+    }
+
+    // Documents with external pointers or inherited dictionaries must be left to the native decoder
+    @Test
+    public void testJavaDecoderUnsupported() {
+        // {"a": <external pointer>}
+        final byte[] externPointer = new byte[] {0x70, 0x01, 0x41, 0x61, (byte) 0xC0, 0x01, (byte) 0x80, 0x03};
+        FLSliceResult slice = new FLSliceResult(externPointer);
+        try { assertNull(FleeceBuffer.forSlice(slice, null)); }
+        finally { slice.free(); }
+
+        // {<parent key>: null}
+        final byte[] inherited = new byte[] {0x70, 0x01, 0x08, 0x00, 0x30, 0x00, (byte) 0x80, 0x03};
+        slice = new FLSliceResult(inherited);
+        try { assertNull(FleeceBuffer.forSlice(slice, null)); }
+        finally { slice.free(); }
+
+        // {"a": null}: the same document without either
+        final byte[] plain = new byte[] {0x70, 0x01, 0x41, 0x61, 0x30, 0x00, (byte) 0x80, 0x03};
+        slice = new FLSliceResult(plain);
+        try {
+            final FleeceBuffer buffer = FleeceBuffer.forSlice(slice, null);
+            assertNotNull(buffer);
+            assertEquals(1L, buffer.getRoot().asFLDict().count());
+        }
+        finally { slice.free(); }
+    }
+
+    // The native decoder must be able to read what the Java encoder writes
+    @Test
+    public void testJavaEncoder() throws LiteCoreException {
+        final Map<String, Object> map = createFleeceTestMap();
+
+        final FleeceWriter writer = new FleeceWriter(null);
+        FLSliceResult slice = null;
+        try {
+            writer.write(map);
+            slice = writer.finish2();
+
+            final FLValue root = FLValue.fromData(slice);
+            assertNotNull(root);
+            assertEquals(DICT, root.getType());
+
+            final Map<String, Object> decoded = root.asDict();
+            assertEquals(map.keySet(), decoded.keySet());
+            for (String key: map.keySet()) {
+                final Object expected = map.get(key);
+                final Object actual = decoded.get(key);
+                if (expected instanceof byte[]) { Assert.assertArrayEquals((byte[]) expected, (byte[]) actual); }
+                else { assertEquals(expected, actual); }
+            }
+        }
+        finally {
+            if (slice != null) { slice.free(); }
+            writer.reset();
+        }
+    }
+
+    // The Java encoder must inline exactly the strings that the native encoder inlines
+    @Test
+    public void testJavaEncoderShortStrings() throws LiteCoreException {
+        final List<Object> list = Arrays.asList("", "a", "ab", "abc", "abcd");
+
+        final FLEncoder enc = new FLEncoder();
+        final FleeceWriter writer = new FleeceWriter(null);
+        try {
+            enc.write(list);
+            writer.write(list);
+            Assert.assertArrayEquals(enc.finish(), writer.finish());
+        }
+        finally {
+            enc.free();
+            writer.reset();
+        }
+    }
+
+    // The Java encoder encodes numbers exactly, or not at all
+    @Test
+    public void testJavaEncoderNumbers() throws LiteCoreException {
+        final FleeceWriter writer = new FleeceWriter(null);
+        FLSliceResult slice = null;
+        try {
+            final List<Number> numbers
+                = Arrays.asList((byte) 7, (short) 300, new AtomicInteger(70000), new AtomicLong(1L << 40), Math.PI);
+            writer.write(numbers);
+            slice = writer.finish2();
+
+            final FLValue root = FLValue.fromData(slice);
+            assertNotNull(root);
+            assertEquals(Arrays.asList(7L, 300L, 70000L, 1L << 40, Math.PI), root.asArray());
+
+            writer.reset();
+            assertThrows(IllegalArgumentException.class, () -> writer.write(Arrays.asList(BigDecimal.ONE)));
+        }
+        finally {
+            if (slice != null) { slice.free(); }
+            writer.reset();
+        }
+    }
+
+    // An amended document must contain only the values that it uses: nothing that was removed from its base.
+    @Test
+    public void testJavaEncoderAmend() throws LiteCoreException {
+        final Map<String, Object> baseMap = new HashMap<>();
+        for (int i = 0; i < 500; i++) { baseMap.put("key" + i, "value number " + i); }
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("kept", "value number 7");
+        map.put("new", "new value");
+
+        final FleeceWriter writer = new FleeceWriter(null);
+        FLSliceResult baseSlice = null;
+        FLSliceResult slice = null;
+        try {
+            // the size of the document, encoded from scratch
+            writer.write(map);
+            slice = writer.finish2();
+            final long size = slice.getSize();
+            slice.free();
+            slice = null;
+            writer.reset();
+
+            writer.write(baseMap);
+            baseSlice = writer.finish2();
+            writer.reset();
+
+            final FleeceBuffer buffer = FleeceBuffer.forSlice(baseSlice, null);
+            assertNotNull(buffer);
+            final FLDict base = buffer.getRoot().asFLDict();
+
+            final long amends = writer.getAmendCount();
+            assertTrue(writer.amend(base));
+            writer.beginDict(2);
+            writer.writeKey("kept");
+            writer.writeValue(base.get("key7"));
+            writer.writeKey("new");
+            writer.writeString("new value");
+            writer.endDict();
+            slice = writer.finish2();
+            assertEquals(amends + 1, writer.getAmendCount());
+
+            assertEquals(size, slice.getSize());
+            final FLValue root = FLValue.fromData(slice);
+            assertNotNull(root);
+            assertEquals(map, root.asDict());
+        }
+        finally {
+            if (slice != null) { slice.free(); }
+            if (baseSlice != null) { baseSlice.free(); }
+            writer.reset();
+        }
+    }
+
+    @Test
+    public void testSliceContent() throws LiteCoreException {
+        final FLEncoder enc = new FLEncoder();
+        FLSliceResult slice = null;
+        try {
+            enc.write(createFleeceTestMap());
+            slice = enc.finish2();
+
+            final byte[] expected = slice.getBuf();
+            final FLSliceResult res = slice;
+            final byte[] actual = slice.withContent(buf -> {
+                assertTrue(buf.isDirect());
+                assertTrue(buf.isReadOnly());
+                final byte[] bytes = new byte[buf.remaining()];
+                buf.get(bytes);
+
+                // freeing the slice while its content is in use is deferred
+                res.free();
+                assertEquals(bytes.length, res.getSize());
+
+                return bytes;
+            });
+            slice = null;
+
+            Assert.assertArrayEquals(expected, actual);
+
+            // the deferred free has happened: the content is no longer readable
+            assertThrows(IllegalStateException.class, () -> res.withContent(buf -> buf.remaining()));
+        }
+        finally {
+            if (slice != null) { slice.free(); }
+            enc.free();
+        }
+    }
+
+    @Test
+    public void testEncoderPool() throws LiteCoreException {
+        final Map<String, Object> map = createFleeceTestMap();
+
+        FLEncoder enc = FLEncoderPool.acquire();
+        final FLEncoder first = enc;
+        FLSliceResult slice = null;
+        try {
+            enc.write(map);
+            slice = enc.finish2();
+        }
+        finally {
+            FLEncoderPool.release(enc);
+            if (slice != null) { slice.free(); }
+        }
+
+        // a released encoder is reused
+        enc = FLEncoderPool.acquire();
+        try {
+            assertSame(first, enc);
+
+            // an encoder that failed part way through is reset
+            enc.beginDict(1);
+            enc.writeKey("key");
+        }
+        finally { FLEncoderPool.release(enc); }
+
+        enc = FLEncoderPool.acquire();
+        slice = null;
+        try {
+            enc.write(map);
+            slice = enc.finish2();
+            assertEquals(map.size(), FLValue.fromData(slice).asDict().size());
+        }
+        finally {
+            FLEncoderPool.release(enc);
+            if (slice != null) { slice.free(); }
+        }
+
+        try {
+            FLEncoderPool.release(enc);
+            Assert.fail("Released a pooled encoder twice");
+        }
+        catch (IllegalStateException ignore) { }
+
+        try {
+            enc.free();
+            Assert.fail("Freed a pooled encoder");
+        }
+        catch (IllegalStateException ignore) { }
+    }
+
+    private Map<String, Object> createFleeceTestMap() {
+        final Map<String, Object> nested = new HashMap<>();
+        nested.put("key", "nested");
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("small", 7L);
+        map.put("negative", -2048L);
+        map.put("long", Long.MAX_VALUE);
+        map.put("double", Math.PI);
+        map.put("true", true);
+        map.put("false", false);
+        map.put("string", "a string that is longer than fifteen bytes");
+        map.put("data", "some bytes".getBytes(StandardCharsets.UTF_8));
+        map.put("array", Arrays.asList(1L, "two", 3L));
+        map.put("dict", nested);
+        return map;
+    }
 }
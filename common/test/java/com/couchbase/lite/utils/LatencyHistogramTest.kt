@@ -0,0 +1,76 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.utils
+
+import com.couchbase.lite.internal.utils.LatencyHistogram
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+
+class LatencyHistogramTest {
+
+    @Test
+    fun testEmpty() {
+        val histogram = LatencyHistogram()
+        assertEquals(0L, histogram.count)
+        assertEquals(0L, histogram.maxMicros)
+        assertEquals(0.0, histogram.meanMicros, 0.0)
+        assertEquals(0L, histogram.getValueAtPercentileMicros(99.0))
+    }
+
+    @Test
+    fun testPercentiles() {
+        val histogram = LatencyHistogram()
+        for (i in 1..1000) histogram.recordNanos(i * 1000L)
+
+        assertEquals(1000L, histogram.count)
+        assertEquals(1000L, histogram.maxMicros)
+        assertEquals(500.5, histogram.meanMicros, 0.01)
+
+        // values are accurate to within 1/16
+        assertWithin(500, histogram.getValueAtPercentileMicros(50.0))
+        assertWithin(990, histogram.getValueAtPercentileMicros(99.0))
+        assertEquals(1000L, histogram.getValueAtPercentileMicros(100.0))
+    }
+
+    @Test
+    fun testSmallValuesAreExact() {
+        val histogram = LatencyHistogram()
+        for (i in 0 until 16) histogram.recordNanos(i * 1000L)
+        for (i in 0 until 16) {
+            assertEquals(i.toLong(), histogram.getValueAtPercentileMicros(((i + 1) * 100.0) / 16))
+        }
+    }
+
+    @Test
+    fun testReset() {
+        val histogram = LatencyHistogram()
+        histogram.recordNanos(1_000_000L)
+        histogram.reset()
+        assertEquals(0L, histogram.count)
+        assertEquals(0L, histogram.maxMicros)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun testBadPercentile() {
+        LatencyHistogram().getValueAtPercentileMicros(101.0)
+    }
+
+    private fun assertWithin(expected: Long, actual: Long) {
+        assertTrue("${actual} is not within 1/16 of ${expected}", Math.abs(actual - expected) <= (expected / 16))
+    }
+}
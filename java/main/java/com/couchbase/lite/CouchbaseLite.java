@@ -21,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 
 import com.couchbase.lite.internal.CouchbaseLiteInternal;
+import com.couchbase.lite.internal.VirtualThreadExecutionService;
 
 
 public final class CouchbaseLite {
@@ -38,7 +39,19 @@ public final class CouchbaseLite {
      *
      * @param rootDirectory the root directory for CBL files
      */
-    public static void init(@Nullable File rootDirectory) {
+    public static void init(@Nullable File rootDirectory) { init(rootDirectory, false); }
+
+    /**
+     * Initialize CouchbaseLite library.
+     * This method allows specifying a root directory for CBL files
+     * and requesting that Couchbase Lite run its tasks (including the delivery of
+     * change notifications) on virtual threads.  Virtual threads require Java 21 or later:
+     * on earlier JVMs, Couchbase Lite will use its default thread pool.
+     *
+     * @param rootDirectory     the root directory for CBL files
+     * @param useVirtualThreads run tasks on virtual threads, if possible
+     */
+    public static void init(@Nullable File rootDirectory, boolean useVirtualThreads) {
         String rootDirPath = null;
         if (rootDirectory != null) {
             try { rootDirPath = rootDirectory.getCanonicalPath(); }
@@ -47,6 +60,11 @@ public final class CouchbaseLite {
             }
         }
 
-        CouchbaseLiteInternal.init(new MValueDelegate(), rootDirPath);
+        CouchbaseLiteInternal.init(
+            new MValueDelegate(),
+            rootDirPath,
+            ((!useVirtualThreads) || (!VirtualThreadExecutionService.isSupported()))
+                ? null
+                : VirtualThreadExecutionService::new);
     }
 }
@@ -33,6 +33,7 @@ import com.couchbase.lite.LogDomain;
 import com.couchbase.lite.internal.core.C4Base;
 import com.couchbase.lite.internal.fleece.MValue;
 import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.Fn;
 import com.couchbase.lite.internal.utils.Preconditions;
 
 
@@ -63,10 +64,30 @@ public final class CouchbaseLiteInternal {
     private static String tmpDirPath;
 
     public static void init(@NonNull MValue.Delegate mValueDelegate, @Nullable String rootDirectoryPath) {
+        init(mValueDelegate, rootDirectoryPath, null);
+    }
+
+    /**
+     * Initialize Couchbase Lite, optionally specifying the ExecutionService it will use.
+     * The factory is called only by the first initialization: later calls to init are ignored.
+     * If the factory is null, or returns null, the default JavaExecutionService will be used.
+     *
+     * @param mValueDelegate          the MValue delegate
+     * @param rootDirectoryPath       the root directory for CBL files
+     * @param executionServiceFactory creates the execution service, or null
+     */
+    public static void init(
+        @NonNull MValue.Delegate mValueDelegate,
+        @Nullable String rootDirectoryPath,
+        @Nullable Fn.Provider<ExecutionService> executionServiceFactory) {
         Preconditions.assertNotNull(mValueDelegate, "mValueDelegate");
 
         if (INITIALIZED.getAndSet(true)) { return; }
 
+        final ExecutionService executionService
+            = (executionServiceFactory == null) ? null : executionServiceFactory.get();
+        if (executionService != null) { EXECUTION_SERVICE.set(executionService); }
+
         // This is complicated by the fact that we need the temp directory
         // in order to load the native libraries, but that the native libraries
         // need to know where the temp directory is...
@@ -0,0 +1,375 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.support.Log;
+import com.couchbase.lite.internal.utils.Preconditions;
+
+
+/**
+ * A hashed wheel timer, after Varghese and Lauck, for delayed tasks.
+ * <p>
+ * Scheduling and cancelling a task are both O(1).  New tasks are put on a lock-free queue
+ * and moved to their slot on the wheel by the timer thread.  A cancelled task is simply
+ * marked as such: the timer thread drops it when it next visits the task's slot.
+ * <p>
+ * The timer thread wakes at the end of each tick.  All of the tasks whose deadlines fell within
+ * that tick are submitted, in the order in which they were scheduled, as a single batch to each
+ * target executor.  The price for this efficiency is precision: a task is never submitted early,
+ * but may be submitted up to one tick late.
+ * Tasks with no delay are the exception: the timer thread is woken to submit them immediately.
+ * <p>
+ * The timer thread never blocks on a target executor.  A bounded executor that is full is
+ * offered its batch again on the next tick.  A task that fails to be submitted for any other
+ * reason is logged and dropped: it does not affect other tasks.
+ * <p>
+ * When there are no tasks on the wheel, the timer thread parks until a new one is scheduled.
+ */
+final class HashedWheelTimer {
+    private static final LogDomain DOMAIN = LogDomain.DATABASE;
+
+    private static final class Timeout implements ExecutionService.Cancellable {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE
+            = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        // nanoseconds since the start of the timer
+        private final long deadline;
+        @NonNull
+        private final Executor executor;
+        @Nullable
+        private volatile Runnable task;
+
+        private volatile int state = PENDING;
+
+        // owned by the timer thread
+        private long remainingRounds;
+        @Nullable
+        private Timeout next;
+
+        Timeout(long deadline, @NonNull Executor executor, @NonNull Runnable task) {
+            this.deadline = deadline;
+            this.executor = executor;
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            // release the task: it may be holding a lot of stuff.
+            if (STATE.compareAndSet(this, PENDING, CANCELLED)) { task = null; }
+        }
+
+        boolean isCancelled() { return state == CANCELLED; }
+
+        @Nullable
+        Runnable expire() { return (!STATE.compareAndSet(this, PENDING, EXPIRED)) ? null : task; }
+    }
+
+    // Run a batch of tasks that expired on the same tick and are bound for the same executor.
+    // A failing task does not prevent the rest of the batch from running.  Each failure is logged,
+    // as the executors log failed tasks, and the first is rethrown, as it would have been had it run alone.
+    private static final class Batch implements Runnable {
+        @NonNull
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
+        @Override
+        public void run() {
+            RuntimeException failure = null;
+            for (Runnable task: tasks) {
+                try { task.run(); }
+                catch (RuntimeException e) {
+                    Log.w(DOMAIN, "Uncaught exception on thread " + Thread.currentThread().getName() + " in " + task, e);
+                    if (failure == null) { failure = e; }
+                    else { failure.addSuppressed(e); }
+                }
+            }
+            if (failure != null) { throw failure; }
+        }
+
+        @NonNull
+        @Override
+        public String toString() { return "Batch" + tasks; }
+    }
+
+
+    private final long tickNanos;
+    private final int mask;
+
+    @NonNull
+    private final Timeout[] wheel;
+
+    @NonNull
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    // Timeouts with no delay: the timer thread submits them as soon as it sees them
+    @NonNull
+    private final Queue<Timeout> immediateTimeouts = new ConcurrentLinkedQueue<>();
+
+    @NonNull
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    @NonNull
+    private final String name;
+
+    @Nullable
+    private volatile Thread timerThread;
+
+    // true while the timer thread is, or is about to be, parked with nothing to do
+    private volatile boolean idle;
+
+    private final long startTime = System.nanoTime();
+
+    // the current tick: owned by the timer thread
+    private long tick;
+
+    // the number of timeouts on the wheel: owned by the timer thread
+    private int wheelTimeouts;
+
+    /**
+     * Create a new timer.
+     *
+     * @param name      the name of the timer thread.
+     * @param tickMs    the timer precision, in ms.
+     * @param wheelSize the number of slots on the wheel.  Must be a power of 2.
+     */
+    HashedWheelTimer(@NonNull String name, long tickMs, int wheelSize) {
+        Preconditions.assertPositive(tickMs, "tick");
+        Preconditions.assertThat(wheelSize, "wheel size must be a power of 2", x -> (x > 0) && ((x & (x - 1)) == 0));
+        this.name = name;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.mask = wheelSize - 1;
+        this.wheel = new Timeout[wheelSize];
+    }
+
+    /**
+     * Run the passed task on the passed executor, after a delay.
+     * The task is always submitted to the executor from the timer thread, never from the caller's,
+     * even if there is no delay.  If the executor rejects the task, it is dropped.
+     *
+     * @param delayMs  delay before submitting the task to the executor.
+     * @param executor an executor on which to run the task.
+     * @param task     the task to be run.
+     * @return a handle that can be used to cancel the task.
+     */
+    @NonNull
+    ExecutionService.Cancellable schedule(long delayMs, @NonNull Executor executor, @NonNull Runnable task) {
+        if (started.compareAndSet(false, true)) { startTimerThread(); }
+
+        final Timeout timeout = new Timeout(
+            (System.nanoTime() - startTime) + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs)),
+            executor,
+            task);
+
+        if (delayMs > 0) {
+            newTimeouts.add(timeout);
+            if (!idle) { return timeout; }
+        }
+        else { immediateTimeouts.add(timeout); }
+
+        final Thread thread = timerThread;
+        if (thread != null) { LockSupport.unpark(thread); }
+
+        return timeout;
+    }
+
+    private void startTimerThread() {
+        final Thread thread = new Thread(
+            () -> {
+                try { runTimer(); }
+                finally {
+                    // should never happen: let the next call to schedule start a new thread
+                    timerThread = null;
+                    started.set(false);
+                }
+            },
+            name);
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, e) ->
+            Log.w(DOMAIN, "Uncaught exception on thread " + t.getName(), e));
+        timerThread = thread;
+        thread.start();
+    }
+
+    // The timer thread.
+    @SuppressWarnings("InfiniteLoopStatement")
+    private void runTimer() {
+        while (true) {
+            dispatch(expireImmediateTimeouts());
+
+            if ((wheelTimeouts <= 0) && newTimeouts.isEmpty()) {
+                waitForNewTimeouts();
+                continue;
+            }
+
+            // woken early, to submit immediate timeouts
+            if (!waitForNextTick()) { continue; }
+
+            transferNewTimeouts();
+            final int slot = (int) (tick & mask);
+            dispatch(expireTimeouts(wheel[slot], slot));
+            tick++;
+        }
+    }
+
+    // The wheel is empty: park until something is scheduled.
+    private void waitForNewTimeouts() {
+        idle = true;
+        // a timeout scheduled after this check will unpark this thread
+        if (newTimeouts.isEmpty() && immediateTimeouts.isEmpty()) { LockSupport.park(this); }
+        idle = false;
+
+        // nothing was waiting for the ticks that passed while parked: skip them
+        tick = (System.nanoTime() - startTime) / tickNanos;
+    }
+
+    // Returns false if woken early, because there are immediate timeouts to submit.
+    private boolean waitForNextTick() {
+        final long deadline = (tick + 1) * tickNanos;
+        while (true) {
+            if (!immediateTimeouts.isEmpty()) { return false; }
+            final long remaining = deadline - (System.nanoTime() - startTime);
+            if (remaining <= 0) { return true; }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    // Move new timeouts from the queue to their slots on the wheel.
+    private void transferNewTimeouts() {
+        while (true) {
+            final Timeout timeout = newTimeouts.poll();
+            if (timeout == null) { return; }
+
+            if (timeout.isCancelled()) { continue; }
+
+            // the slot for a tick is visited at the end of the tick:
+            // a timeout never expires early, and at most one tick late
+            final long expiresOn = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (expiresOn - tick) / wheel.length;
+
+            final int slot = (int) (expiresOn & mask);
+            timeout.next = wheel[slot];
+            wheel[slot] = timeout;
+            wheelTimeouts++;
+        }
+    }
+
+    // Take all of the immediate timeouts from their queue, in order.
+    @NonNull
+    private Map<Executor, Batch> expireImmediateTimeouts() {
+        final Map<Executor, Batch> batches = new IdentityHashMap<>();
+        while (true) {
+            final Timeout timeout = immediateTimeouts.poll();
+            if (timeout == null) { return batches; }
+            addToBatch(batches, timeout);
+        }
+    }
+
+    // Remove expired and cancelled timeouts from the slot.
+    // Returns a map of executors to the batches of tasks to be submitted to them.
+    @NonNull
+    private Map<Executor, Batch> expireTimeouts(@Nullable Timeout head, int slot) {
+        final Map<Executor, Batch> batches = new IdentityHashMap<>();
+
+        // The slot list is built by pushing on its head: reverse it so that tasks run in order
+        Timeout timeout = head;
+        Timeout remaining = null;
+        Timeout expired = null;
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            if (timeout.isCancelled()) {
+                timeout.next = null;
+                wheelTimeouts--;
+            }
+            else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                timeout.next = remaining;
+                remaining = timeout;
+            }
+            else {
+                timeout.next = expired;
+                expired = timeout;
+                wheelTimeouts--;
+            }
+            timeout = next;
+        }
+        wheel[slot] = remaining;
+
+        while (expired != null) {
+            addToBatch(batches, expired);
+            expired = expired.next;
+        }
+
+        return batches;
+    }
+
+    private void addToBatch(@NonNull Map<Executor, Batch> batches, @NonNull Timeout timeout) {
+        final Runnable task = timeout.expire();
+        if (task == null) { return; }
+
+        Batch batch = batches.get(timeout.executor);
+        if (batch == null) {
+            batch = new Batch();
+            batches.put(timeout.executor, batch);
+        }
+        batch.tasks.add(task);
+    }
+
+    // Submit each batch to its executor, without blocking.
+    // Nothing that happens while submitting one batch may stop the timer thread or affect other batches.
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private void dispatch(@NonNull Map<Executor, Batch> batches) {
+        for (Map.Entry<Executor, Batch> entry: batches.entrySet()) {
+            final Executor executor = entry.getKey();
+            final Batch batch = entry.getValue();
+            final Runnable task = (batch.tasks.size() == 1) ? batch.tasks.get(0) : batch;
+            try {
+                if (!(executor instanceof ExecutionService.NonBlockingExecutor)) { executor.execute(task); }
+                else { ((ExecutionService.NonBlockingExecutor) executor).executeWithoutBlocking(task); }
+            }
+            catch (ExecutionService.CloseableExecutor.ExecutorFullException e) {
+                // try again on the next tick
+                newTimeouts.add(new Timeout((tick + 1) * tickNanos, executor, task));
+            }
+            catch (RejectedExecutionException e) {
+                Log.w(DOMAIN, "Executor %s rejected delayed task %s", e, executor, task);
+            }
+            catch (RuntimeException e) {
+                Log.w(DOMAIN, "Failed submitting delayed task %s to executor %s", e, task, executor);
+            }
+        }
+    }
+}
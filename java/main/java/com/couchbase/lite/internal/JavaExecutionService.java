@@ -16,13 +16,11 @@
 package com.couchbase.lite.internal;
 
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +40,12 @@ public class JavaExecutionService extends AbstractExecutionService {
     // Constants
     //---------------------------------------------
     private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final int POOL_SIZE = CPU_COUNT * 2 + 1;
+    private static final int THREAD_TTL_SEC = 30;
+
+    // Delayed tasks run within 10ms of their due time.  One turn of the wheel is about 5 sec.
+    private static final long TIMER_TICK_MS = 10;
+    private static final int TIMER_WHEEL_SIZE = 512;
 
     private static final ThreadFactory THREAD_FACTORY = new ThreadFactory() {
         private final AtomicInteger id = new AtomicInteger(1);
@@ -55,25 +59,41 @@ public class JavaExecutionService extends AbstractExecutionService {
         }
     };
 
-    private static final ThreadPoolExecutor THREAD_POOL_EXECUTOR = new ThreadPoolExecutor(
-        2, CPU_COUNT * 2 + 1,        // pool varies between two threads and 2xCPUs
-        30, TimeUnit.SECONDS,        // unused threads die after 30 sec
-        new LinkedBlockingQueue<>(), // unbounded queue
-        THREAD_FACTORY);             // nice recognizable names for our threads.
+    private static final ThreadPoolExecutor THREAD_POOL_EXECUTOR = createThreadPool(POOL_SIZE);
+
+    // Shared by all instances
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer("CBL-timer", TIMER_TICK_MS, TIMER_WHEEL_SIZE);
 
     //---------------------------------------------
-    // Types
+    // Class methods
     //---------------------------------------------
-    private static class CancellableTask implements Cancellable {
-        private final Future future;
-
-        private CancellableTask(@NonNull Future future) {
-            Preconditions.assertNotNull(future, "future");
-            this.future = future;
-        }
 
-        @Override
-        public void cancel() { future.cancel(false); }
+    @VisibleForTesting
+    @NonNull
+    static ThreadPoolExecutor createThreadPool(int poolSize) { return createThreadPool(poolSize, THREAD_FACTORY); }
+
+    /**
+     * Create a thread pool whose size tracks its load.
+     * A ThreadPoolExecutor never grows beyond its core size while its queue accepts tasks:
+     * with an unbounded queue, that is always.  Instead, make the core size the whole pool
+     * and let idle core threads time out.  The pool will grow to <code>poolSize</code> threads
+     * as tasks arrive and shrink back to nothing when it is idle.
+     *
+     * @param poolSize      the maximum number of threads in the pool
+     * @param threadFactory the factory for the pool's threads
+     * @return a new thread pool executor
+     */
+    @NonNull
+    static ThreadPoolExecutor createThreadPool(int poolSize, @NonNull ThreadFactory threadFactory) {
+        Preconditions.assertThat(poolSize, "pool size must be > 0", x -> x > 0);
+        Preconditions.assertNotNull(threadFactory, "thread factory");
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            poolSize, poolSize,                    // pool grows up to poolSize threads
+            THREAD_TTL_SEC, TimeUnit.SECONDS,      // unused threads die after 30 sec
+            new LinkedBlockingQueue<>(),           // unbounded queue
+            threadFactory);                        // nice recognizable names for our threads.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
 
@@ -81,15 +101,15 @@ public class JavaExecutionService extends AbstractExecutionService {
     // Instance variables
     //---------------------------------------------
     private final Executor mainExecutor;
-    private final ScheduledExecutorService scheduler;
 
     //---------------------------------------------
     // Constructor
     //---------------------------------------------
-    public JavaExecutionService() {
-        super(THREAD_POOL_EXECUTOR);
-        mainExecutor = Executors.newSingleThreadExecutor();
-        scheduler = Executors.newSingleThreadScheduledExecutor();
+    public JavaExecutionService() { this(THREAD_POOL_EXECUTOR, Executors.newSingleThreadExecutor()); }
+
+    protected JavaExecutionService(@NonNull ThreadPoolExecutor baseExecutor, @NonNull Executor mainExecutor) {
+        super(baseExecutor);
+        this.mainExecutor = instrumentMainExecutor(mainExecutor);
     }
 
     //---------------------------------------------
@@ -99,18 +119,24 @@ public class JavaExecutionService extends AbstractExecutionService {
     @Override
     public Executor getMainExecutor() { return mainExecutor; }
 
+    /**
+     * Run the passed task on the passed executor, after a delay.
+     * Tasks are scheduled on a hashed wheel timer and will run no more than one timer tick after they are due.
+     * The timer submits a task with no delay immediately but, like any other, from its own thread:
+     * this method never calls the executor on the caller's thread.
+     *
+     * @param delayMs  delay before posting the task.  There may be additional queue delays in the executor.
+     * @param executor an executor on which to execute the task.
+     * @param task     the task to be executed.
+     * @return a cancellable task
+     */
     @NonNull
     @Override
     public Cancellable postDelayedOnExecutor(long delayMs, @NonNull Executor executor, @NonNull Runnable task) {
         Preconditions.assertNotNull(executor, "executor");
         Preconditions.assertNotNull(task, "task");
-        final Runnable delayedTask = () -> {
-            try { executor.execute(task); }
-            catch (RejectedExecutionException ignore) { }
-        };
 
-        final Future future = scheduler.schedule(delayedTask, delayMs, TimeUnit.MILLISECONDS);
-        return new CancellableTask(future);
+        return TIMER.schedule(delayMs, executor, task);
     }
 
     @Override
@@ -0,0 +1,113 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.couchbase.lite.LogDomain;
+import com.couchbase.lite.internal.support.Log;
+
+
+/**
+ * ExecutionService for Java that runs tasks on virtual threads (JDK 21+).
+ * <p>
+ * Serial and concurrent executors are backed by a thread pool whose threads are virtual threads,
+ * as is the main executor, which is still guaranteed to be a single (virtual) thread.
+ * A task that blocks on I/O (a listener, for instance) unmounts its virtual thread
+ * instead of occupying one of the few platform threads in the pool.
+ * Note that a virtual thread that is in native code (any call into LiteCore) pins its carrier thread.
+ * <p>
+ * This code must compile for, and run on, earlier JVMs: the virtual thread API is found by reflection.
+ * Use <code>isSupported()</code> to find out whether this service can be created.
+ */
+public final class VirtualThreadExecutionService extends JavaExecutionService {
+
+    //---------------------------------------------
+    // Constants
+    //---------------------------------------------
+
+    // Virtual threads are cheap: this only bounds the number of concurrently running tasks.
+    private static final int POOL_SIZE = 256;
+
+    @Nullable
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory("CBL-V #");
+
+    // Shared by all instances, as is the platform thread pool, and created on first use.
+    // Its idle threads time out: when there is no work, it holds no threads.
+    private static final class PoolHolder {
+        @NonNull
+        static final ThreadPoolExecutor VIRTUAL_THREAD_POOL = createThreadPool(POOL_SIZE, getVirtualThreadFactory());
+    }
+
+    //---------------------------------------------
+    // Class methods
+    //---------------------------------------------
+
+    /**
+     * Test whether this JVM supports virtual threads.
+     *
+     * @return true if a VirtualThreadExecutionService can be created.
+     */
+    public static boolean isSupported() { return VIRTUAL_THREAD_FACTORY != null; }
+
+    @NonNull
+    private static ThreadFactory getVirtualThreadFactory() {
+        if (VIRTUAL_THREAD_FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        return VIRTUAL_THREAD_FACTORY;
+    }
+
+    // Reflective equivalent of: Thread.ofVirtual().name(prefix, 1).uncaughtExceptionHandler(...).factory()
+    @Nullable
+    private static ThreadFactory createVirtualThreadFactory(@NonNull String prefix) {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            final Thread.UncaughtExceptionHandler handler = (t, e) ->
+                Log.w(LogDomain.DATABASE, "Uncaught exception on thread " + t.getName(), e);
+            builder = builderClass.getMethod("uncaughtExceptionHandler", Thread.UncaughtExceptionHandler.class)
+                .invoke(builder, handler);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException
+            | ClassCastException ignore) {
+            return null;
+        }
+    }
+
+    //---------------------------------------------
+    // Constructor
+    //---------------------------------------------
+
+    /**
+     * Create an execution service that runs tasks on virtual threads.
+     *
+     * @throws UnsupportedOperationException if this JVM does not support virtual threads.
+     */
+    public VirtualThreadExecutionService() {
+        super(PoolHolder.VIRTUAL_THREAD_POOL, Executors.newSingleThreadExecutor(getVirtualThreadFactory()));
+    }
+}
@@ -17,6 +17,8 @@ package com.couchbase.lite;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -140,6 +142,14 @@ public abstract class PlatformBaseTest implements PlatformTest {
         executionService.postDelayedOnExecutor(delayMs, executionService.getMainExecutor(), task);
     }
 
+    @Override
+    public long getAllocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return (!(threads instanceof com.sun.management.ThreadMXBean))
+            ? -1
+            : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
     @NotNull
     private String getDirPath(File dir) {
         try {
@@ -0,0 +1,223 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.couchbase.lite.PlatformBaseTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+
+public class HashedWheelTimerTest extends PlatformBaseTest {
+    private static final long TIMEOUT_SEC = 10;
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    // Tasks that expire on the same tick are submitted to their executor, in order, as a single batch.
+    @Test
+    public void testSameTickTasksAreBatched() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK_MS, WHEEL_SIZE);
+
+        final AtomicInteger submissions = new AtomicInteger();
+        final Executor executor = task -> {
+            submissions.incrementAndGet();
+            task.run();
+        };
+
+        final int nTasks = 10;
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(nTasks);
+        for (int i = 0; i < nTasks; i++) {
+            final int n = i;
+            timer.schedule(TICK_MS, executor, () -> {
+                order.add(n);
+                latch.countDown();
+            });
+        }
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertTrue(submissions.get() < nTasks);
+        for (int i = 0; i < nTasks; i++) { assertEquals(i, order.get(i).intValue()); }
+    }
+
+    // A task whose delay is longer than one turn of the wheel is not run early
+    @Test
+    public void testDelayLongerThanWheel() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK_MS, WHEEL_SIZE);
+
+        final long delayMs = TICK_MS * WHEEL_SIZE * 3;
+        final long[] ranAt = new long[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        final long start = System.nanoTime();
+        timer.schedule(delayMs, Runnable::run, () -> {
+            ranAt[0] = System.nanoTime();
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(ranAt[0] - start) >= delayMs);
+    }
+
+    // A cancelled task is never run, even when other tasks expire on the same tick.
+    @Test
+    public void testCancel() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK_MS, WHEEL_SIZE);
+
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        final ExecutionService.Cancellable cancelled
+            = timer.schedule(TICK_MS * 5, Runnable::run, cancelledRuns::incrementAndGet);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(TICK_MS * 5, Runnable::run, latch::countDown);
+
+        cancelled.cancel();
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    // An exception in one task in a batch does not prevent the others from running.
+    @Test
+    public void testFailingTaskInBatch() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK_MS, WHEEL_SIZE);
+
+        // an executor thread would survive the exception: so must the timer thread.
+        final AtomicInteger failures = new AtomicInteger();
+        final Executor executor = task -> {
+            try { task.run(); }
+            catch (IllegalStateException e) { failures.incrementAndGet(); }
+        };
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(TICK_MS, executor, () -> { throw new IllegalStateException("fail!"); });
+        timer.schedule(TICK_MS, executor, latch::countDown);
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertFalse(failures.get() > 1);
+    }
+
+    // An executor that throws when a task is submitted to it does not stop the timer.
+    @Test
+    public void testFailingExecutor() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK_MS, WHEEL_SIZE);
+
+        final Executor failingExecutor = task -> { throw new IllegalStateException("fail!"); };
+        timer.schedule(TICK_MS, failingExecutor, () -> { });
+        timer.schedule(0, failingExecutor, () -> { });
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(TICK_MS * 3, Runnable::run, latch::countDown);
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+    }
+
+    // The timer thread never blocks on a full executor: it offers the task again, on the next tick.
+    @Test
+    public void testFullExecutorIsRetried() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK_MS, WHEEL_SIZE);
+
+        final AtomicInteger offers = new AtomicInteger();
+        final AtomicInteger blockingCalls = new AtomicInteger();
+        final Executor executor = new ExecutionService.NonBlockingExecutor() {
+            @Override
+            public void executeWithoutBlocking(@NonNull Runnable task) {
+                if (offers.incrementAndGet() < 3) {
+                    throw new ExecutionService.CloseableExecutor.ExecutorFullException("full");
+                }
+                task.run();
+            }
+
+            @Override
+            public void execute(@NonNull Runnable task) {
+                blockingCalls.incrementAndGet();
+                task.run();
+            }
+        };
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(TICK_MS, executor, latch::countDown);
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertEquals(3, offers.get());
+        assertEquals(0, blockingCalls.get());
+    }
+
+    // A task with no delay is submitted promptly, but never on the caller's thread.
+    @Test
+    public void testNoDelayIsAsynchronous() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 1000, WHEEL_SIZE);
+
+        final Thread caller = Thread.currentThread();
+        final Thread[] submitter = new Thread[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Executor executor = task -> {
+            submitter[0] = Thread.currentThread();
+            task.run();
+        };
+
+        // the tick is a second: the task must not wait for it
+        final long start = System.nanoTime();
+        timer.schedule(0, executor, latch::countDown);
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertNotSame(caller, submitter[0]);
+    }
+
+    // When there is nothing on the wheel, the timer thread parks.  It wakes up when a task is scheduled.
+    @Test
+    public void testTimerParksWhenIdle() throws InterruptedException {
+        final String name = "test-timer-idle";
+        final HashedWheelTimer timer = new HashedWheelTimer(name, TICK_MS, WHEEL_SIZE);
+
+        final CountDownLatch latch1 = new CountDownLatch(1);
+        timer.schedule(TICK_MS, Runnable::run, latch1::countDown);
+        assertTrue(latch1.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+
+        Thread timerThread = null;
+        for (Thread thread: Thread.getAllStackTraces().keySet()) {
+            if (name.equals(thread.getName())) { timerThread = thread; }
+        }
+        assertNotNull(timerThread);
+
+        // a ticking timer thread is in TIMED_WAITING.  A parked one is WAITING.
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SEC);
+        while ((timerThread.getState() != Thread.State.WAITING) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(TICK_MS);
+        }
+        assertEquals(Thread.State.WAITING, timerThread.getState());
+
+        final CountDownLatch latch2 = new CountDownLatch(1);
+        timer.schedule(TICK_MS * 3, Runnable::run, latch2::countDown);
+        assertTrue(latch2.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,217 @@
+//
+// Copyright (c) 2020 Couchbase, Inc All rights reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+package com.couchbase.lite.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.couchbase.lite.LogLevel;
+import com.couchbase.lite.PlatformBaseTest;
+import com.couchbase.lite.internal.fleece.MValueDelegate;
+import com.couchbase.lite.internal.utils.LoadIntegrationTest;
+import com.couchbase.lite.internal.utils.Report;
+import com.couchbase.lite.internal.utils.StopWatch;
+
+import static com.couchbase.lite.internal.utils.TestUtils.assertThrows;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class JavaExecutionServiceTest extends PlatformBaseTest {
+    private static final long TIMEOUT_SEC = 30;
+    private static final int POOL_SIZE = 9;
+    private static final int TASKS = 360;
+    private static final long TASK_MS = 5;
+    private static final int BLOCKING_TASKS = 2000;
+    private static final long BLOCKING_TASK_MS = 20;
+
+    private static class TestExecutionService extends AbstractExecutionService {
+        TestExecutionService(ThreadPoolExecutor baseExecutor) { super(baseExecutor); }
+
+        @Override
+        public Executor getMainExecutor() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public Cancellable postDelayedOnExecutor(long delayMs, Executor executor, Runnable task) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cancelDelayedTask(Cancellable future) { throw new UnsupportedOperationException(); }
+    }
+
+    // The pool grows past two threads, under load.
+    @Test
+    public void testThreadPoolGrows() throws InterruptedException {
+        final ThreadPoolExecutor pool = JavaExecutionService.createThreadPool(POOL_SIZE);
+        try {
+            runTasks(new TestExecutionService(pool), POOL_SIZE * 4, TASK_MS);
+            assertEquals(POOL_SIZE, pool.getLargestPoolSize());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    // Compare throughput of the load-sized pool with that of the previous
+    // (core size 2, unbounded queue) pool.
+    @Test
+    @LoadIntegrationTest
+    public void testThreadPoolThroughput() throws InterruptedException {
+        final ThreadPoolExecutor legacyPool
+            = new ThreadPoolExecutor(2, POOL_SIZE, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        final ThreadPoolExecutor adaptivePool = JavaExecutionService.createThreadPool(POOL_SIZE);
+        try {
+            final double legacyMs = runTasks(new TestExecutionService(legacyPool), TASKS, TASK_MS);
+            final double adaptiveMs = runTasks(new TestExecutionService(adaptivePool), TASKS, TASK_MS);
+
+            Report.log(
+                LogLevel.INFO,
+                "%d tasks: legacy pool (%d threads) %.3f ms, adaptive pool (%d threads) %.3f ms",
+                TASKS,
+                legacyPool.getLargestPoolSize(),
+                legacyMs,
+                adaptivePool.getLargestPoolSize(),
+                adaptiveMs);
+
+            assertTrue(adaptiveMs < legacyMs);
+        }
+        finally {
+            legacyPool.shutdown();
+            adaptivePool.shutdown();
+        }
+    }
+
+    // The virtual thread main executor always uses the same thread.
+    @Test
+    public void testVirtualThreadMainExecutor() throws InterruptedException {
+        Assume.assumeTrue(VirtualThreadExecutionService.isSupported());
+
+        final Executor executor = new VirtualThreadExecutionService().getMainExecutor();
+
+        final Thread[] threads = new Thread[2];
+        final CountDownLatch latch = new CountDownLatch(2);
+        executor.execute(() -> {
+            threads[0] = Thread.currentThread();
+            latch.countDown();
+        });
+        executor.execute(() -> {
+            threads[1] = Thread.currentThread();
+            latch.countDown();
+        });
+
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        assertEquals(threads[0], threads[1]);
+    }
+
+    // Stopping a lane after its serial executors, even before they have drained,
+    // does not strand the tasks that are still queued on them.
+    @Test
+    public void testStoppedLaneDrainsSerialExecutors() throws InterruptedException {
+        final ThreadPoolExecutor pool = JavaExecutionService.createThreadPool(POOL_SIZE);
+        try {
+            final ExecutionService.ExecutionLane lane
+                = new TestExecutionService(pool).createLane("test", 1, 2);
+            final ExecutionService.CloseableExecutor serial = lane.getSerialExecutor();
+
+            final CountDownLatch gate = new CountDownLatch(1);
+            final int nTasks = AbstractExecutionService.MAX_BATCH_SIZE * 3;
+            final CountDownLatch done = new CountDownLatch(nTasks);
+            serial.execute(() -> {
+                try { gate.await(TIMEOUT_SEC, TimeUnit.SECONDS); }
+                catch (InterruptedException ignore) { }
+            });
+            for (int i = 0; i < nTasks; i++) { serial.execute(done::countDown); }
+
+            assertFalse(serial.stop(0, TimeUnit.SECONDS));
+            assertFalse(lane.stop(0, TimeUnit.SECONDS));
+            gate.countDown();
+
+            assertTrue(done.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+            assertTrue(lane.stop(TIMEOUT_SEC, TimeUnit.SECONDS));
+
+            assertThrows(
+                ExecutionService.CloseableExecutor.ExecutorClosedException.class,
+                () -> lane.execute(() -> { }));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    // A later init is ignored: it must not create an execution service
+    @Test
+    public void testInitIgnoresExecutionServiceFactory() {
+        initCouchbase();
+
+        final AtomicInteger created = new AtomicInteger();
+        CouchbaseLiteInternal.init(
+            new MValueDelegate(),
+            null,
+            () -> {
+                created.incrementAndGet();
+                return new JavaExecutionService();
+            });
+        assertEquals(0, created.get());
+    }
+
+    // Compare throughput of blocking tasks (e.g., listeners doing I/O)
+    // on virtual threads with that on the platform thread pool
+    @Test
+    @LoadIntegrationTest
+    public void testVirtualThreadThroughput() throws InterruptedException {
+        Assume.assumeTrue(VirtualThreadExecutionService.isSupported());
+
+        final double platformMs = runTasks(new JavaExecutionService(), BLOCKING_TASKS, BLOCKING_TASK_MS);
+        final double virtualMs = runTasks(new VirtualThreadExecutionService(), BLOCKING_TASKS, BLOCKING_TASK_MS);
+
+        Report.log(
+            LogLevel.INFO,
+            "%d blocking tasks: platform threads %.3f ms, virtual threads %.3f ms",
+            BLOCKING_TASKS,
+            platformMs,
+            virtualMs);
+
+        assertTrue(virtualMs < platformMs);
+    }
+
+    private double runTasks(AbstractExecutionService service, int nTasks, long taskMs)
+        throws InterruptedException {
+        final ExecutionService.CloseableExecutor executor = service.getConcurrentExecutor();
+        final CountDownLatch latch = new CountDownLatch(nTasks);
+
+        final StopWatch timer = new StopWatch();
+        for (int i = 0; i < nTasks; i++) {
+            executor.execute(() -> {
+                try { Thread.sleep(taskMs); }
+                catch (InterruptedException ignore) { }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(TIMEOUT_SEC, TimeUnit.SECONDS));
+        timer.stop();
+
+        return timer.getElapsedTimeMillis();
+    }
+}